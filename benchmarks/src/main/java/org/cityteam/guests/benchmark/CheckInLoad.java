@@ -0,0 +1,258 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.benchmark;
+
+import org.cityteam.guests.action.Assign;
+import org.cityteam.guests.client.DevModeClient;
+import org.cityteam.guests.client.FacilityClient;
+import org.cityteam.guests.client.GuestClient;
+import org.cityteam.guests.client.RegistrationClient;
+import org.cityteam.guests.client.TemplateClient;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Registration;
+import org.cityteam.guests.model.Template;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.craigmcc.library.shared.exception.NotUnique;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.cityteam.guests.model.types.PaymentType.CT;
+
+/**
+ * <p>Replays the check-in rush against one facility and date: many staff
+ * threads start together, and each repeatedly looks up a guest by name,
+ * checks for a ban on that date, and assigns the guest to a mat.  Reports
+ * p50/p99/p999 latency per step and the number of assign conflicts.</p>
+ *
+ * <p>Run with <code>java -cp target/benchmarks.jar
+ * org.cityteam.guests.benchmark.CheckInLoad</code>, tuned by these system
+ * properties:</p>
+ * <ul>
+ *     <li><code>load.facility</code> - Facility name
+ *         (default "San Francisco")</li>
+ *     <li><code>load.template</code> - Template that generates the mats
+ *         (default "San Francisco COVID")</li>
+ *     <li><code>load.date</code> - Registration date
+ *         (default 2020-08-01)</li>
+ *     <li><code>load.staff</code> - Concurrent staff clients
+ *         (default 16)</li>
+ *     <li><code>load.checkins</code> - Check-ins per staff client
+ *         (default 50)</li>
+ * </ul>
+ */
+public class CheckInLoad {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final String[] STEPS = {
+            "findGuestsByName",
+            "findBansByGuestIdAndRegistrationDate",
+            "assign",
+            "checkIn"
+    };
+
+    // Instance Variables ----------------------------------------------------
+
+    private final int checkins = Integer.getInteger("load.checkins", 50);
+    private final String facilityName =
+            System.getProperty("load.facility", "San Francisco");
+    private final LocalDate registrationDate = LocalDate.parse
+            (System.getProperty("load.date", "2020-08-01"));
+    private final int staff = Integer.getInteger("load.staff", 16);
+    private final String templateName =
+            System.getProperty("load.template", "San Francisco COVID");
+
+    private final AtomicInteger banned = new AtomicInteger();
+    private final AtomicInteger conflicts = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    private Facility facility;
+    private List<Guest> guests;
+    private List<Registration> registrations;
+
+    // Main Program ----------------------------------------------------------
+
+    public static void main(String[] args) throws Exception {
+        new CheckInLoad().run();
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public void run() throws Exception {
+
+        setup();
+
+        // Each staff member records its own samples, one array per step
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(staff);
+        long[][] samples = new long[STEPS.length][0];
+        long elapsed;
+        try {
+            List<Future<long[][]>> futures = new ArrayList<>();
+            for (int i = 0; i < staff; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return checkIns();
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<long[][]> future : futures) {
+                long[][] staffSamples = future.get();
+                for (int i = 0; i < STEPS.length; i++) {
+                    samples[i] = concat(samples[i], staffSamples[i]);
+                }
+            }
+            elapsed = System.nanoTime() - started;
+        } finally {
+            // Also interrupts any staff still running after a failure
+            executor.shutdownNow();
+        }
+
+        report(samples, elapsed);
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private long[] concat(long[] first, long[] second) {
+        long[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private double millis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private void report(long[][] samples, long elapsed) {
+        System.out.printf("Check-in load: %d staff x %d check-ins, %s on %s%n",
+                staff, checkins, facilityName, registrationDate);
+        System.out.printf("%-40s %8s %10s %10s %10s%n",
+                "Step", "Count", "p50 (ms)", "p99 (ms)", "p999 (ms)");
+        for (int i = 0; i < STEPS.length; i++) {
+            long[] sorted = samples[i];
+            Arrays.sort(sorted);
+            System.out.printf("%-40s %8d %10.2f %10.2f %10.2f%n",
+                    STEPS[i], sorted.length,
+                    millis(sorted, 0.50),
+                    millis(sorted, 0.99),
+                    millis(sorted, 0.999));
+        }
+        System.out.printf("Elapsed: %.2f s, check-ins/s: %.1f%n",
+                elapsed / 1_000_000_000.0,
+                samples[3].length / (elapsed / 1_000_000_000.0));
+        System.out.printf("Assign conflicts: %d, banned guests: %d, errors: %d%n",
+                conflicts.get(), banned.get(), errors.get());
+    }
+
+    private void setup() throws Exception {
+
+        DevModeClient devModeClient = new DevModeClient();
+        devModeClient.depopulate();
+        devModeClient.populate();
+
+        FacilityClient facilityClient = new FacilityClient();
+        facility = facilityClient.findByNameExact(facilityName);
+        guests = facilityClient.findGuestsByFacilityId(facility.getId());
+        Template template = facilityClient.findTemplatesByNameExact
+                (facility.getId(), templateName);
+        registrations = new TemplateClient().generate
+                (template.getId(), registrationDate);
+
+    }
+
+    // Perform this staff member's check-ins, returning samples per step
+    private long[][] checkIns() throws Exception {
+
+        FacilityClient facilityClient = new FacilityClient();
+        GuestClient guestClient = new GuestClient();
+        RegistrationClient registrationClient = new RegistrationClient();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[][] samples = new long[STEPS.length][checkins];
+        int[] counts = new int[STEPS.length];
+
+        for (int i = 0; i < checkins; i++) {
+
+            Guest guest = guests.get(random.nextInt(guests.size()));
+            long started = System.nanoTime();
+
+            long before = System.nanoTime();
+            facilityClient.findGuestsByName
+                    (facility.getId(), guest.getLastName());
+            samples[0][counts[0]++] = System.nanoTime() - before;
+
+            before = System.nanoTime();
+            boolean isBanned = true;
+            try {
+                guestClient.findBansByGuestIdAndRegistrationDate
+                        (guest.getId(), registrationDate);
+            } catch (NotFound e) {
+                isBanned = false;
+            }
+            samples[1][counts[1]++] = System.nanoTime() - before;
+            if (isBanned) {
+                banned.incrementAndGet();
+                continue;
+            }
+
+            Registration registration =
+                    registrations.get(random.nextInt(registrations.size()));
+            Assign assign = new Assign(
+                    "Check-in load",
+                    guest.getId(),
+                    null,
+                    CT,
+                    null,
+                    null
+            );
+            before = System.nanoTime();
+            try {
+                registrationClient.assign(registration.getId(), assign);
+            } catch (BadRequest | NotUnique e) {
+                // Mat already taken, or guest already has one tonight
+                conflicts.incrementAndGet();
+            } catch (Exception e) {
+                errors.incrementAndGet();
+            }
+            samples[2][counts[2]++] = System.nanoTime() - before;
+            samples[3][counts[3]++] = System.nanoTime() - started;
+
+        }
+
+        for (int i = 0; i < STEPS.length; i++) {
+            samples[i] = Arrays.copyOf(samples[i], counts[i]);
+        }
+        return samples;
+
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.benchmark;
+
+import org.cityteam.guests.action.ImportRequest;
+import org.cityteam.guests.client.ClientMetrics;
+import org.cityteam.guests.client.DevModeClient;
+import org.cityteam.guests.client.FacilityClient;
+import org.cityteam.guests.client.GuestClient;
+import org.cityteam.guests.client.RegistrationClient;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.types.FeatureType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.cityteam.guests.model.types.PaymentType.CT;
+
+/**
+ * <p>Latency (sampled percentiles) of the largest client payloads, with
+ * compression on and off: listing all guests and registrations, and
+ * importing a full night of registrations.  The dataset is grown well
+ * beyond the devmode seed first, so that payloads are realistically
+ * large.  Bytes sent and received per request, as recorded by
+ * <code>ClientMetrics</code>, are printed at the end of each fork.  Run
+ * with <code>java -jar target/benchmarks.jar CompressionBenchmarks</code>.
+ * </p>
+ *
+ * <p>Client settings are read once per JVM, and JMH runs each parameter
+ * value in its own fork, so each fork sets them before creating any
+ * client.  Conditional GETs are turned off so that every request
+ * transfers a full response.</p>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 10)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 10)
+public class CompressionBenchmarks {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final int DAYS = 10;
+    private static final int MATS = 100;
+
+    // Instance Variables ----------------------------------------------------
+
+    @Param({"true", "false"})
+    public String compression;
+
+    private FacilityClient facilityClient;
+    private GuestClient guestClient;
+    private RegistrationClient registrationClient;
+
+    private Facility facility;
+    private List<ImportRequest> imports;
+    private LocalDate importDate;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+
+        System.setProperty("guests.client.compression", compression);
+        System.setProperty("guests.client.compressionMinSize",
+                Boolean.parseBoolean(compression) ? "1024" : "-1");
+        System.setProperty("guests.client.conditional", "false");
+        System.setProperty("guests.metrics.report",
+                "target/compression-" + compression);
+
+        facilityClient = new FacilityClient();
+        guestClient = new GuestClient();
+        registrationClient = new RegistrationClient();
+
+        DevModeClient devModeClient = new DevModeClient();
+        devModeClient.depopulate();
+        devModeClient.populate();
+
+        // DAYS nights of MATS registrations, each with its own new guest
+        facility = facilityClient.findByNameExact("San Jose");
+        LocalDate first = LocalDate.parse("2020-09-01");
+        for (int day = 0; day < DAYS; day++) {
+            LocalDate registrationDate = first.plusDays(day);
+            facilityClient.importRegistrationsByFacilityAndDate(
+                    facility.getId(), registrationDate,
+                    newImports(registrationDate, true));
+        }
+
+        // Unassigned, so that importRegistrations() can delete them again
+        importDate = first.plusDays(DAYS);
+        imports = newImports(importDate, false);
+        ClientMetrics.global().reset();
+
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%nCompression %s:%n", compression);
+        System.out.printf("%-64s %8s %12s %12s%n",
+                "Endpoint", "Count", "Sent/req", "Received/req");
+        ClientMetrics.global().getEndpoints().forEach((name, endpoint) ->
+                System.out.printf("%-64s %8d %12d %12d%n",
+                        name,
+                        endpoint.getCount(),
+                        endpoint.getRequestBytes() /
+                                Math.max(1, endpoint.getCount()),
+                        endpoint.getResponseBytes() /
+                                Math.max(1, endpoint.getCount())));
+    }
+
+    // Benchmark Methods -----------------------------------------------------
+
+    @Benchmark
+    public void findAllGuests(Blackhole blackhole) throws Exception {
+        blackhole.consume(guestClient.findAll());
+    }
+
+    @Benchmark
+    public void findAllRegistrations(Blackhole blackhole) throws Exception {
+        blackhole.consume(registrationClient.findAll());
+    }
+
+    @Benchmark
+    public void importRegistrations(Blackhole blackhole) throws Exception {
+        // Each import needs a matching delete to be repeatable
+        blackhole.consume(facilityClient.importRegistrationsByFacilityAndDate
+                (facility.getId(), importDate, imports));
+        blackhole.consume(facilityClient.deleteRegistrationsByFacilityAndDate
+                (facility.getId(), importDate));
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static List<ImportRequest> newImports(LocalDate registrationDate,
+                                                  boolean assigned) {
+        List<FeatureType> features = List.of(FeatureType.H);
+        List<ImportRequest> imports = new ArrayList<>();
+        for (int matNumber = 1; matNumber <= MATS; matNumber++) {
+            if (assigned) {
+                imports.add(new ImportRequest(
+                        "Imported on Mat " + matNumber,
+                        features,
+                        "Guest " + matNumber,
+                        "Imported " + registrationDate,
+                        matNumber,
+                        null,
+                        CT,
+                        null,
+                        null
+                ));
+            } else {
+                imports.add(new ImportRequest(features, matNumber));
+            }
+        }
+        return imports;
+    }
+
+}
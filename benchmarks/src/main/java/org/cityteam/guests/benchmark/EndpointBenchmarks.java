@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.benchmark;
+
+import org.cityteam.guests.action.Assign;
+import org.cityteam.guests.client.DevModeClient;
+import org.cityteam.guests.client.EmbeddedServer;
+import org.cityteam.guests.client.FacilityClient;
+import org.cityteam.guests.client.GuestClient;
+import org.cityteam.guests.client.RegistrationClient;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Registration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.cityteam.guests.model.types.PaymentType.CT;
+
+/**
+ * <p>Throughput and latency (sampled percentiles) of the hot client calls,
+ * against a local server repopulated with the devmode dataset before
+ * each run.  Run with <code>java -jar target/benchmarks.jar</code>.
+ * With <code>-jvmArgsAppend -Dguests.embedded=true</code>, each trial
+ * starts the in-process stand-in (see {@link EmbeddedServer}) instead of
+ * needing a running server.</p>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@Fork(1)
+@Measurement(iterations = 5, time = 10)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 10)
+public class EndpointBenchmarks {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final FacilityClient facilityClient = new FacilityClient();
+    private final GuestClient guestClient = new GuestClient();
+    private final RegistrationClient registrationClient =
+            new RegistrationClient();
+
+    private Assign assign;
+    private LocalDate banDate;
+    private Facility facility;
+    private Guest guest;
+    private Registration registration;
+    private LocalDate registrationDate;
+    private EmbeddedServer server;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+
+        if (EmbeddedServer.ENABLED) {
+            server = new EmbeddedServer(EmbeddedServer.BASE_URI);
+        }
+
+        DevModeClient devModeClient = new DevModeClient();
+        devModeClient.depopulate();
+        devModeClient.populate();
+
+        facility = facilityClient.findByNameExact("San Francisco");
+        guest = facilityClient.findGuestsByNameExact
+                (facility.getId(), "Fred", "Flintstone");
+        banDate = LocalDate.parse("2020-08-15");
+        registrationDate = LocalDate.parse("2020-07-04");
+
+        // Dedicated registration that assign() can flip back and forth
+        registration = registrationClient.insert(new Registration(
+                facility.getId(),
+                null,
+                99,
+                LocalDate.parse("2020-07-10")
+        ));
+        assign = new Assign(
+                "Benchmark assign",
+                guest.getId(),
+                null,
+                CT,
+                null,
+                null
+        );
+
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        if (server != null) {
+            server.close();
+            server = null;
+        }
+    }
+
+    // Benchmark Methods -----------------------------------------------------
+
+    @Benchmark
+    public void assign(Blackhole blackhole) throws Exception {
+        // Each assign needs a matching deassign to be repeatable
+        blackhole.consume(registrationClient.assign
+                (registration.getId(), assign));
+        blackhole.consume(registrationClient.deassign
+                (registration.getId()));
+    }
+
+    @Benchmark
+    public void findBansByGuestIdAndRegistrationDate(Blackhole blackhole)
+            throws Exception {
+        blackhole.consume(guestClient.findBansByGuestIdAndRegistrationDate
+                (guest.getId(), banDate));
+    }
+
+    @Benchmark
+    public void findGuestsByName(Blackhole blackhole) throws Exception {
+        blackhole.consume(facilityClient.findGuestsByName
+                (facility.getId(), "ubble"));
+    }
+
+    @Benchmark
+    public void findRegistrationsByFacilityAndDate(Blackhole blackhole)
+            throws Exception {
+        blackhole.consume(facilityClient.findRegistrationsByFacilityAndDate
+                (facility.getId(), registrationDate));
+    }
+
+}
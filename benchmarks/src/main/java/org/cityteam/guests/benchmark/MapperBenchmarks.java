@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.cityteam.guests.client.ClientMappers;
+import org.cityteam.guests.model.Registration;
+import org.cityteam.guests.model.types.FeatureType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.GenericType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.cityteam.guests.model.types.PaymentType.CT;
+
+/**
+ * <p>CPU time to deserialize a <code>List&lt;Registration&gt;</code>
+ * response body, the work each <code>findAll</code>-style request does
+ * once its bytes arrive:</p>
+ * <ul>
+ *     <li><code>defaultMapper</code> - A mapper configured as the clients'
+ *         mappers used to be, with a reader built per request.</li>
+ *     <li><code>sharedReader</code> - The cached reader from
+ *         <code>ClientMappers</code>, with Afterburner, which every
+ *         request through the shared client reads with (by way of
+ *         <code>ClientMappers.JsonProvider</code>).</li>
+ *     <li><code>sharedSmile</code> - The same, reading the Smile encoding
+ *         of the same registrations.</li>
+ * </ul>
+ *
+ * <p>No server is needed, since the payloads are built in memory.  Run
+ * with <code>java -jar target/benchmarks.jar MapperBenchmarks</code>, and
+ * add <code>-prof gc</code> to compare allocation per request too.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class MapperBenchmarks {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Type REGISTRATIONS =
+            new GenericType<List<Registration>>() {}.getType();
+
+    // Instance Variables ----------------------------------------------------
+
+    @Param({"100", "1000"})
+    public int count;
+
+    private ObjectMapper defaultMapper;
+    private JavaType defaultType;
+    private byte[] json;
+    private byte[] smile;
+    private ObjectReader smileReader;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+
+        defaultMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .registerModule(new JavaTimeModule());
+        defaultType = defaultMapper.constructType(REGISTRATIONS);
+        smileReader = ClientMappers.smile().readerFor
+                (ClientMappers.smile().constructType(REGISTRATIONS));
+
+        List<Registration> registrations = newRegistrations(count);
+        json = ClientMappers.writer(REGISTRATIONS)
+                .writeValueAsBytes(registrations);
+        smile = ClientMappers.smile().writeValueAsBytes(registrations);
+
+    }
+
+    // Benchmark Methods -----------------------------------------------------
+
+    @Benchmark
+    public List<Registration> defaultMapper() throws Exception {
+        return defaultMapper.readerFor(defaultType).readValue(json);
+    }
+
+    @Benchmark
+    public List<Registration> sharedReader() throws Exception {
+        return ClientMappers.reader(REGISTRATIONS).readValue(json);
+    }
+
+    @Benchmark
+    public List<Registration> sharedSmile() throws Exception {
+        return smileReader.readValue(smile);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static List<Registration> newRegistrations(int count) {
+        List<FeatureType> features = List.of(FeatureType.H);
+        LocalDate registrationDate = LocalDate.parse("2020-09-01");
+        LocalDateTime published = LocalDateTime.parse("2020-08-31T18:00:00");
+        List<Registration> registrations = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Registration registration = new Registration(1L, features,
+                    i, registrationDate);
+            registration.setComments("Registered on Mat " + i);
+            registration.setGuestId((long) i);
+            registration.setId((long) i);
+            registration.setPaymentAmount(new BigDecimal("5.00"));
+            registration.setPaymentType(CT);
+            registration.setPublished(published);
+            registration.setShowerTime(LocalTime.of(4, 30));
+            registration.setUpdated(published);
+            registration.setVersion(0);
+            registration.setWakeupTime(LocalTime.of(5, 15));
+            registrations.add(registration);
+        }
+        return registrations;
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.craigmcc.library.shared.exception.Forbidden;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.craigmcc.library.shared.exception.NotUnique;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * <p>Base class for clients whose methods return a <code>CompletionStage</code>
+ * instead of blocking, using Jersey's <code>rx()</code> invoker.  Error
+ * statuses complete the stage exceptionally with the same exceptions
+ * (<code>BadRequest</code>, <code>Forbidden</code>, <code>NotFound</code>,
+ * <code>NotUnique</code>, <code>InternalServerError</code>) the blocking
+ * clients throw.</p>
+ *
+ * @param <M> Model class managed by the concrete client
+ */
+public abstract class AbstractAsyncClient<M> extends AbstractClient {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final GenericType<List<M>> listType;
+    private final GenericType<M> modelType;
+    private final WebTarget modelTarget;
+
+    // Constructors ----------------------------------------------------------
+
+    protected AbstractAsyncClient(String path,
+                                  GenericType<M> modelType,
+                                  GenericType<List<M>> listType) {
+        this.listType = listType;
+        this.modelType = modelType;
+        this.modelTarget = getBaseTarget().path(path);
+    }
+
+    // For a server at the specified base target, instead of the default
+    protected AbstractAsyncClient(WebTarget baseTarget,
+                                  String path,
+                                  GenericType<M> modelType,
+                                  GenericType<List<M>> listType) {
+        this.listType = listType;
+        this.modelType = modelType;
+        this.modelTarget = baseTarget.path(path);
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public CompletionStage<M> delete(Long id) {
+        return read(modelTarget.path(id.toString())
+                .request(MediaType.APPLICATION_JSON)
+                .rx()
+                .delete(), modelType);
+    }
+
+    public CompletionStage<M> find(Long id) {
+        return get(modelTarget.path(id.toString()), modelType);
+    }
+
+    public CompletionStage<List<M>> findAll() {
+        return get(modelTarget, listType);
+    }
+
+    public CompletionStage<M> insert(M model) {
+        return post(modelTarget, Entity.json(model), modelType);
+    }
+
+    public CompletionStage<M> update(Long id, M model) {
+        return read(modelTarget.path(id.toString())
+                .request(MediaType.APPLICATION_JSON)
+                .rx()
+                .put(Entity.json(model)), modelType);
+    }
+
+    // Protected Methods -----------------------------------------------------
+
+    protected <T> CompletionStage<T> get(WebTarget target,
+                                         GenericType<T> type) {
+        return read(target
+                .request(MediaType.APPLICATION_JSON)
+                .rx()
+                .get(), type);
+    }
+
+    protected WebTarget getModelTarget() {
+        return modelTarget;
+    }
+
+    protected <T> CompletionStage<T> post(WebTarget target,
+                                          Entity<?> entity,
+                                          GenericType<T> type) {
+        return read(target
+                .request(MediaType.APPLICATION_JSON)
+                .rx()
+                .post(entity), type);
+    }
+
+    // Read the entity of a successful response, or fail with the exception
+    // corresponding to an error status
+    protected <T> CompletionStage<T> read(CompletionStage<Response> stage,
+                                          GenericType<T> type) {
+        return stage.thenCompose(response -> {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            try {
+                int status = response.getStatus();
+                if ((status >= 200) && (status < 300)) {
+                    result.complete(response.readEntity(type));
+                } else {
+                    result.completeExceptionally(exception(response));
+                }
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                response.close();
+            }
+            return result;
+        });
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private Exception exception(Response response) {
+        String message = response.hasEntity()
+                ? response.readEntity(String.class)
+                : response.getStatusInfo().getReasonPhrase();
+        int status = response.getStatus();
+        if (status == RESPONSE_BAD_REQUEST) {
+            return new BadRequest(message);
+        } else if (status == RESPONSE_FORBIDDEN) {
+            return new Forbidden(message);
+        } else if (status == RESPONSE_NOT_FOUND) {
+            return new NotFound(message);
+        } else if (status == RESPONSE_CONFLICT) {
+            return new NotUnique(message);
+        } else {
+            return new InternalServerError(message);
+        }
+    }
+
+}
@@ -15,14 +15,53 @@
  */
 package org.cityteam.guests.client;
 
+import org.craigmcc.library.shared.exception.BadRequest;
 import org.craigmcc.library.shared.exception.Forbidden;
 import org.craigmcc.library.shared.exception.InternalServerError;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.craigmcc.library.shared.exception.NotUnique;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
 
 public class AbstractClientTest {
 
+    // Static Variables ------------------------------------------------------
+
+    // Run @Isolated tests concurrently on per-worker facility clones?
+    protected static final boolean PARALLEL =
+            Boolean.getBoolean("guests.parallel");
+
+    // Have any facility clones been added since the last populate()?
+    private static volatile boolean cloned = false;
+
+    // Number of times the dataset has been populated, so that workers
+    // can tell when their facility clones have been wiped out
+    private static volatile int generation = 0;
+
+    // Shared by concurrent @Isolated tests, exclusive for everything else
+    private static final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private static final ThreadLocal<FacilityNamespace> namespaces =
+            ThreadLocal.withInitial(FacilityNamespace::new);
+
+    // Does the server still hold the dataset from the last populate()?
+    private static volatile boolean populated = false;
+
+    // Time spent in reseed() and facility cloning by the current test,
+    // which LatencyGate ignores
+    private static final ThreadLocal<Long> fixtureNanos =
+            ThreadLocal.withInitial(() -> 0L);
+
     // Instance Variables ----------------------------------------------------
 
     protected Boolean depopulateEnabled = null;
@@ -30,6 +69,45 @@ public class AbstractClientTest {
 
     protected DevModeClient devModeClient = new DevModeClient();
 
+    // Any test not marked @ReadOnly may have changed data, so the next
+    // test must see a freshly populated dataset (or, for @Isolated tests
+    // in parallel mode, freshly cloned facilities)
+    @Rule
+    public final TestRule fixtureRule = (base, description) -> new Statement() {
+        @Override
+        public void evaluate() throws Throwable {
+            boolean isolated = PARALLEL &&
+                    (description.getAnnotation(Isolated.class) != null);
+            Lock held = acquire(isolated);
+            try {
+                fixtureNanos.set(0L);
+                long started = System.nanoTime();
+                base.evaluate();
+                LatencyGate.global().test(description.getTestClass()
+                                .getSimpleName() + "." + description.getMethodName(),
+                        System.nanoTime() - started - fixtureNanos.get());
+            } finally {
+                if (description.getAnnotation(ReadOnly.class) == null) {
+                    if (isolated) {
+                        namespaces.get().invalidate();
+                    } else {
+                        populated = false;
+                    }
+                }
+                held.unlock();
+            }
+        }
+    };
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @BeforeClass
+    public static void startEmbeddedServer() {
+        if (EmbeddedServer.ENABLED) {
+            EmbeddedServer.global();
+        }
+    }
+
     // Protected Methods -----------------------------------------------------
 
     protected boolean depopulate() {
@@ -51,6 +129,21 @@ public class AbstractClientTest {
         return FALSE.equals(depopulateEnabled) || FALSE.equals(populateEnabled);
     }
 
+    // Return the name this test should use for the specified facility name
+    protected String facilityName(String name)
+            throws BadRequest, InternalServerError, NotFound, NotUnique {
+        if (!PARALLEL) {
+            return name;
+        }
+        cloned = true;
+        long started = System.nanoTime();
+        try {
+            return namespaces.get().resolve(name, generation);
+        } finally {
+            fixtureNanos.set(fixtureNanos.get() + System.nanoTime() - started);
+        }
+    }
+
     protected boolean populate() {
         if (FALSE.equals(populateEnabled)) {
             return false;
@@ -66,4 +159,50 @@ public class AbstractClientTest {
         return populateEnabled;
     }
 
+    protected boolean reseed() {
+        if (populated) {
+            return true;
+        }
+        long started = System.nanoTime();
+        try {
+            return repopulate();
+        } finally {
+            fixtureNanos.set(fixtureNanos.get() + System.nanoTime() - started);
+        }
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private boolean repopulate() {
+        if ((depopulateEnabled == null) || (TRUE == depopulateEnabled)) {
+            depopulate();
+        }
+        if ((populateEnabled == null) || (TRUE == populateEnabled)) {
+            populate();
+        }
+        populated = !disabled();
+        if (populated) {
+            cloned = false;
+            generation++;
+        }
+        return populated;
+    }
+
+    private Lock acquire(boolean isolated) {
+        lock.writeLock().lock();
+        if (!isolated) {
+            if (cloned) {
+                populated = false;
+            }
+            return lock.writeLock();
+        }
+        try {
+            reseed();
+            lock.readLock().lock();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return lock.readLock();
+    }
+
 }
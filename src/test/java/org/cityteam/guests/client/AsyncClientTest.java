@@ -0,0 +1,380 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Ban;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Registration;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.craigmcc.library.shared.exception.NotUnique;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThrows;
+
+public class AsyncClientTest extends AbstractClientTest {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final String BASE_URI = "http://localhost:8080/guests/api";
+
+    // Looked up by the stand-in connector tests, only the first one matches
+    private static final List<GuestName> NAMES = List.of
+            (new GuestName("Fred", "Flintstone"),
+                    new GuestName("Barney", "Rubble"));
+
+    // Instance Variables ----------------------------------------------------
+
+    private final AsyncFacilityClient asyncFacilityClient =
+            new AsyncFacilityClient();
+    private final AsyncGuestClient asyncGuestClient = new AsyncGuestClient();
+
+    private final FacilityClient facilityClient = new FacilityClient();
+    private final GuestClient guestClient = new GuestClient();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        reseed();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // Fan out facility, guest, and ban lookups without blocking on each
+
+    @ReadOnly
+    @Isolated
+    @Test
+    public void fanOutHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility =
+                join(asyncFacilityClient.findByNameExact(facilityName("Oakland")));
+        List<Guest> guests =
+                join(asyncFacilityClient.findGuestsByFacilityId(facility.getId()));
+        assertThat(guests.size(), is(greaterThan(0)));
+
+        List<CompletableFuture<List<Ban>>> futures = new ArrayList<>();
+        for (Guest guest : guests) {
+            futures.add(asyncGuestClient.findBansByGuestId(guest.getId())
+                    .toCompletableFuture());
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .get();
+
+        for (int i = 0; i < guests.size(); i++) {
+            assertThat(futures.get(i).get(), is(equalTo(
+                    guestClient.findBansByGuestId(guests.get(i).getId()))));
+        }
+
+    }
+
+    // find() tests
+
+    @ReadOnly
+    @Test
+    public void findHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        List<Facility> facilities = facilityClient.findAll();
+        assertThat(facilities.size(), is(greaterThan(0)));
+        assertThat(join(asyncFacilityClient.findAll()),
+                is(equalTo(facilities)));
+
+        for (Facility facility : facilities) {
+            Facility found = join(asyncFacilityClient.find(facility.getId()));
+            assertThat(found.equals(facility), is(true));
+        }
+
+    }
+
+    @ReadOnly
+    @Isolated
+    @Test
+    public void findNotFound() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        assertThrows(NotFound.class,
+                () -> join(asyncFacilityClient.find(Long.MAX_VALUE)));
+        assertThrows(NotFound.class,
+                () -> join(asyncFacilityClient.findByNameExact("unmatched")));
+
+    }
+
+    // findBansByGuestIdAndRegistrationDate() tests
+
+    @ReadOnly
+    @Isolated
+    @Test
+    public void findBansByGuestIdAndRegistrationDate()
+            throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility =
+                facilityClient.findByNameExact(facilityName("San Francisco"));
+        Guest guest = facilityClient.findGuestsByNameExact
+                (facility.getId(), "Fred", "Flintstone");
+
+        join(asyncGuestClient.findBansByGuestIdAndRegistrationDate
+                (guest.getId(), LocalDate.parse("2020-08-15")));
+        assertThrows(NotFound.class,
+                () -> join(asyncGuestClient.findBansByGuestIdAndRegistrationDate
+                        (guest.getId(), LocalDate.parse("2020-09-15"))));
+
+    }
+
+    // findGuestsByNamesExact() tests
+
+    @ReadOnly
+    @Isolated
+    @Test
+    public void findGuestsByNamesExactHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
+        List<GuestName> names = new ArrayList<>();
+        for (Guest guest :
+                facilityClient.findGuestsByFacilityId(facility.getId())) {
+            names.add(new GuestName(guest.getFirstName(), guest.getLastName()));
+        }
+        assertThat(names.size(), is(greaterThan(0)));
+        names.add(new GuestName("Unmatched", "Person"));
+
+        // A roster large enough to need many round trips one at a time
+        List<GuestName> roster = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            roster.addAll(names);
+        }
+
+        List<Guest> guests = join(asyncFacilityClient.findGuestsByNamesExact
+                (facility.getId(), roster));
+        assertThat(guests.size(), is(roster.size()));
+        for (int i = 0; i < names.size(); i++) {
+            GuestName name = names.get(i);
+            Guest expected = null;
+            try {
+                expected = facilityClient.findGuestsByNameExact
+                        (facility.getId(), name.getFirstName(), name.getLastName());
+            } catch (NotFound e) {
+                // Batch lookup returns null for this name
+            }
+            for (int j = i; j < roster.size(); j += names.size()) {
+                assertThat(guests.get(j), is(equalTo(expected)));
+            }
+        }
+        if (EmbeddedServer.ENABLED) {
+            // The stand-in offers the batch endpoint, so align() was used
+            assertThat(asyncFacilityClient.isBatchSupported(), is(true));
+        }
+
+    }
+
+    @ReadOnly
+    @Isolated
+    @Test
+    public void findGuestsByNamesExactNoMatch() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        boolean batchSupported = asyncFacilityClient.isBatchSupported();
+        List<Guest> guests = join(asyncFacilityClient.findGuestsByNamesExact
+                (Long.MAX_VALUE, List.of(new GuestName("Fred", "Flintstone"))));
+        assertThat(guests.size(), is(1));
+        assertThat(guests.get(0), is(nullValue()));
+        // A missing facility is not a missing batch endpoint
+        assertThat(asyncFacilityClient.isBatchSupported(),
+                is(batchSupported));
+
+    }
+
+    // Stand-in connector tests of findGuestsByNamesExact() on servers
+    // without a batch endpoint (no server needed)
+
+    @ReadOnly
+    @Test
+    public void findGuestsByNamesExactMethodNotAllowed() throws Exception {
+
+        StandInConnector connector = new StandInConnector(request ->
+                "POST".equals(request.getMethod())
+                        ? StandInConnector.empty
+                                (request, Response.Status.METHOD_NOT_ALLOWED)
+                        : nameExact(request));
+        AsyncFacilityClient client = standIn(connector);
+        assertMatches(join(client.findGuestsByNamesExact(1L, NAMES)));
+        assertThat(client.isBatchSupported(), is(false));
+        assertThat(connector.getCalls(), is(1 + NAMES.size()));
+
+        // Single-name lookups only, from now on
+        assertMatches(join(client.findGuestsByNamesExact(1L, NAMES)));
+        assertThat(connector.getCalls(), is(1 + (2 * NAMES.size())));
+
+    }
+
+    @ReadOnly
+    @Test
+    public void findGuestsByNamesExactMissingFacility() throws Exception {
+
+        StandInConnector connector = new StandInConnector(request ->
+                StandInConnector.text(request, Response.Status.NOT_FOUND,
+                        "Missing facility 1"));
+        AsyncFacilityClient client = standIn(connector);
+        List<Guest> guests = join(client.findGuestsByNamesExact(1L, NAMES));
+        assertThat(guests.size(), is(NAMES.size()));
+        assertThat(guests.get(0), is(nullValue()));
+        assertThat(guests.get(1), is(nullValue()));
+        // The batch lookup, then the facility
+        assertThat(connector.getCalls(), is(2));
+        assertThat(client.isBatchSupported(), is(true));
+
+    }
+
+    // Servers describe unknown paths in the body of their 404s too
+    @ReadOnly
+    @Test
+    public void findGuestsByNamesExactUnrouted() throws Exception {
+
+        StandInConnector connector = new StandInConnector(request -> {
+            String path = request.getUri().getPath();
+            if ("POST".equals(request.getMethod())) {
+                return StandInConnector.text(request, Response.Status.NOT_FOUND,
+                        "Could not find resource for full path: " + path);
+            } else if (path.endsWith("/facilities/1")) {
+                return StandInConnector.ok(request,
+                        "{\"id\":1,\"name\":\"Oakland\"}");
+            }
+            return nameExact(request);
+        });
+        AsyncFacilityClient client = standIn(connector);
+        assertMatches(join(client.findGuestsByNamesExact(1L, NAMES)));
+        assertThat(client.isBatchSupported(), is(false));
+        // The batch lookup, the facility, then each name
+        assertThat(connector.getCalls(), is(2 + NAMES.size()));
+
+    }
+
+    // findRegistrationsByFacilityAndDate() tests
+
+    @ReadOnly
+    @Isolated
+    @Test
+    public void findRegistrationsByFacilityAndDate() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
+        LocalDate registrationDate = LocalDate.parse("2020-07-04");
+        List<Registration> registrations =
+                join(asyncFacilityClient.findRegistrationsByFacilityAndDate
+                        (facility.getId(), registrationDate));
+        assertThat(registrations.size(), is(greaterThan(0)));
+        assertThat(registrations, is(equalTo(
+                facilityClient.findRegistrationsByFacilityAndDate
+                        (facility.getId(), registrationDate))));
+
+    }
+
+    // insert() tests
+
+    @Isolated
+    @Test
+    public void insertNotUnique() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
+        assertThrows(NotUnique.class,
+                () -> join(asyncFacilityClient.insert(facility)));
+
+    }
+
+    // Support Methods -------------------------------------------------------
+
+    // Check the results of looking up NAMES
+    private static void assertMatches(List<Guest> guests) {
+        assertThat(guests.size(), is(NAMES.size()));
+        assertThat(guests.get(0).getFirstName(), is("Fred"));
+        assertThat(guests.get(0).getLastName(), is("Flintstone"));
+        assertThat(guests.get(1), is(nullValue()));
+    }
+
+    // Wait for the result, rethrowing the exception a stage failed with
+    private <T> T join(CompletionStage<T> stage) throws Exception {
+        try {
+            return stage.toCompletableFuture().get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // Answer a single-name lookup, where only Fred Flintstone matches
+    private static ClientResponse nameExact
+            (ClientRequest request) {
+        if (request.getUri().getPath().endsWith("/nameExact/Fred/Flintstone")) {
+            return StandInConnector.ok(request, "{\"id\":2," +
+                    "\"facilityId\":1,\"firstName\":\"Fred\"," +
+                    "\"lastName\":\"Flintstone\"}");
+        }
+        return StandInConnector.text(request, Response.Status.NOT_FOUND,
+                "Missing guest");
+    }
+
+    // Return a facility client whose requests all go to the connector
+    private static AsyncFacilityClient standIn(StandInConnector connector) {
+        return new AsyncFacilityClient(connector.client().target(BASE_URI));
+    }
+
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.action.ImportRequest;
+import org.cityteam.guests.action.ImportResults;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Registration;
+import org.cityteam.guests.model.Template;
+
+import org.craigmcc.library.shared.exception.NotFound;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static javax.ws.rs.core.Response.Status.METHOD_NOT_ALLOWED;
+
+public class AsyncFacilityClient extends AbstractAsyncClient<Facility> {
+
+    // Static Variables ------------------------------------------------------
+
+    // Single lookups in flight at once when no batch endpoint is available
+    private static final int PIPELINE_DEPTH = SharedClientBuilder.MAX_PER_ROUTE;
+
+    private static final GenericType<List<Guest>> GUESTS =
+            new GenericType<List<Guest>>() {};
+    private static final GenericType<List<Registration>> REGISTRATIONS =
+            new GenericType<List<Registration>>() {};
+    private static final GenericType<List<Template>> TEMPLATES =
+            new GenericType<List<Template>>() {};
+
+    // Instance Variables ----------------------------------------------------
+
+    private volatile boolean batchSupported = true;
+
+    // Constructors ----------------------------------------------------------
+
+    public AsyncFacilityClient() {
+        super("/facilities",
+                new GenericType<Facility>() {},
+                new GenericType<List<Facility>>() {});
+    }
+
+    public AsyncFacilityClient(WebTarget baseTarget) {
+        super(baseTarget,
+                "/facilities",
+                new GenericType<Facility>() {},
+                new GenericType<List<Facility>>() {});
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public CompletionStage<List<Registration>>
+            deleteRegistrationsByFacilityAndDate
+                (Long facilityId, LocalDate registrationDate) {
+        return read(registrationsTarget(facilityId, registrationDate)
+                .request(MediaType.APPLICATION_JSON)
+                .rx()
+                .delete(), REGISTRATIONS);
+    }
+
+    public CompletionStage<List<Facility>> findByName(String name) {
+        return get(getModelTarget()
+                        .path("/name")
+                        .path(name),
+                new GenericType<List<Facility>>() {});
+    }
+
+    public CompletionStage<Facility> findByNameExact(String name) {
+        return get(getModelTarget()
+                        .path("/nameExact")
+                        .path(name),
+                new GenericType<Facility>() {});
+    }
+
+    public CompletionStage<List<Guest>> findGuestsByFacilityId
+            (Long facilityId) {
+        return get(guestsTarget(facilityId), GUESTS);
+    }
+
+    public CompletionStage<List<Guest>> findGuestsByName
+            (Long facilityId, String name) {
+        return get(guestsTarget(facilityId)
+                        .path("/name")
+                        .path(name),
+                GUESTS);
+    }
+
+    public CompletionStage<Guest> findGuestsByNameExact
+            (Long facilityId, String firstName, String lastName) {
+        return get(guestsTarget(facilityId)
+                        .path("/nameExact")
+                        .path(firstName)
+                        .path(lastName),
+                new GenericType<Guest>() {});
+    }
+
+    /**
+     * <p>Look up many guests of a facility by exact first and last name,
+     * in a single request where the server offers a batch endpoint.
+     * Otherwise (remembered after the first 405), the single-name lookups
+     * are pipelined instead.</p>
+     *
+     * <p>Servers put a body on 404s for unknown paths too, so a 404 cannot
+     * tell a missing batch endpoint from a missing facility.  The facility
+     * is looked up to decide: if it exists, the batch endpoint is missing
+     * and single-name lookups are used from then on; if not, no names
+     * match, as the single-name lookups would report.</p>
+     *
+     * @param facilityId Facility whose guests are looked up
+     * @param names Names to look up
+     *
+     * @return Guests in the same order as <code>names</code>, with
+     *         <code>null</code> for names that have no match
+     */
+    public CompletionStage<List<Guest>> findGuestsByNamesExact
+            (Long facilityId, List<GuestName> names) {
+        if (!batchSupported) {
+            return pipelineGuestsByNameExact(facilityId, names);
+        }
+        return guestsTarget(facilityId)
+                .path("/namesExact")
+                .request(MediaType.APPLICATION_JSON)
+                .rx()
+                .post(Entity.json(names))
+                .thenCompose(response -> {
+                    int status = response.getStatus();
+                    if (status == METHOD_NOT_ALLOWED.getStatusCode()) {
+                        response.close();
+                        batchSupported = false;
+                        return pipelineGuestsByNameExact(facilityId, names);
+                    }
+                    if (status == RESPONSE_NOT_FOUND) {
+                        response.close();
+                        return notFound(facilityId, names);
+                    }
+                    return read(CompletableFuture.completedFuture(response),
+                            GUESTS)
+                            .thenApply(guests -> align(names, guests));
+                });
+    }
+
+    public boolean isBatchSupported() {
+        return batchSupported;
+    }
+
+    public CompletionStage<List<Registration>>
+            findRegistrationsByFacilityAndDate
+                (Long facilityId, LocalDate registrationDate) {
+        return get(registrationsTarget(facilityId, registrationDate),
+                REGISTRATIONS);
+    }
+
+    public CompletionStage<List<Template>> findTemplatesByFacilityId
+            (Long facilityId) {
+        return get(templatesTarget(facilityId), TEMPLATES);
+    }
+
+    public CompletionStage<List<Template>> findTemplatesByName
+            (Long facilityId, String name) {
+        return get(templatesTarget(facilityId)
+                        .path("/name")
+                        .path(name),
+                TEMPLATES);
+    }
+
+    public CompletionStage<Template> findTemplatesByNameExact
+            (Long facilityId, String name) {
+        return get(templatesTarget(facilityId)
+                        .path("/nameExact")
+                        .path(name),
+                new GenericType<Template>() {});
+    }
+
+    public CompletionStage<ImportResults> importRegistrationsByFacilityAndDate
+            (Long facilityId,
+             LocalDate registrationDate,
+             List<ImportRequest> importRequests) {
+        return post(registrationsTarget(facilityId, registrationDate),
+                Entity.json(importRequests),
+                new GenericType<ImportResults>() {});
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private List<Guest> align(List<GuestName> names, List<Guest> guests) {
+        Map<GuestName, Guest> matches = new HashMap<>();
+        for (Guest guest : guests) {
+            matches.put(new GuestName
+                    (guest.getFirstName(), guest.getLastName()), guest);
+        }
+        Guest[] results = new Guest[names.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = matches.get(names.get(i));
+        }
+        return Arrays.asList(results);
+    }
+
+    // One lane of the pipeline: claim the next name, look it up, repeat
+    private CompletionStage<Void> lane(Long facilityId,
+                                       List<GuestName> names,
+                                       Guest[] results,
+                                       AtomicInteger next) {
+        int index = next.getAndIncrement();
+        if (index >= names.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        GuestName name = names.get(index);
+        return findGuestsByNameExact
+                (facilityId, name.getFirstName(), name.getLastName())
+                .handle((guest, throwable) -> {
+                    Throwable cause = (throwable instanceof CompletionException)
+                            ? throwable.getCause() : throwable;
+                    if ((cause != null) && !(cause instanceof NotFound)) {
+                        throw new CompletionException(cause);
+                    }
+                    results[index] = guest;
+                    return (Void) null;
+                })
+                .thenCompose(ignored ->
+                        lane(facilityId, names, results, next));
+    }
+
+    // A 404 from the batch endpoint: either the facility or the endpoint
+    // itself is missing
+    private CompletionStage<List<Guest>> notFound(Long facilityId,
+                                                  List<GuestName> names) {
+        return find(facilityId)
+                .handle((facility, throwable) -> (throwable instanceof
+                        CompletionException) ? throwable.getCause() : throwable)
+                .thenCompose(cause -> {
+                    if (cause == null) {
+                        batchSupported = false;
+                        return pipelineGuestsByNameExact(facilityId, names);
+                    }
+                    if (!(cause instanceof NotFound)) {
+                        throw new CompletionException(cause);
+                    }
+                    return CompletableFuture.completedFuture
+                            (Arrays.asList(new Guest[names.size()]));
+                });
+    }
+
+    private CompletionStage<List<Guest>> pipelineGuestsByNameExact
+            (Long facilityId, List<GuestName> names) {
+        Guest[] results = new Guest[names.size()];
+        AtomicInteger next = new AtomicInteger();
+        CompletableFuture<?>[] lanes =
+                new CompletableFuture<?>[Math.min(PIPELINE_DEPTH, names.size())];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = lane(facilityId, names, results, next)
+                    .toCompletableFuture();
+        }
+        return CompletableFuture.allOf(lanes)
+                .thenApply(ignored -> Arrays.asList(results));
+    }
+
+    private WebTarget guestsTarget(Long facilityId) {
+        return getModelTarget()
+                .path(facilityId.toString())
+                .path("/guests");
+    }
+
+    private WebTarget registrationsTarget
+            (Long facilityId, LocalDate registrationDate) {
+        return getModelTarget()
+                .path(facilityId.toString())
+                .path("/registrations")
+                .path(registrationDate.toString());
+    }
+
+    private WebTarget templatesTarget(Long facilityId) {
+        return getModelTarget()
+                .path(facilityId.toString())
+                .path("/templates");
+    }
+
+}
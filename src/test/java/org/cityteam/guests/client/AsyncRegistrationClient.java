@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.action.Assign;
+import org.cityteam.guests.model.Registration;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.GenericType;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+public class AsyncRegistrationClient extends AbstractAsyncClient<Registration> {
+
+    // Constructors ----------------------------------------------------------
+
+    public AsyncRegistrationClient() {
+        super("/registrations",
+                new GenericType<Registration>() {},
+                new GenericType<List<Registration>>() {});
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public CompletionStage<Registration> assign
+            (Long registrationId, Assign assign) {
+        return post(getModelTarget()
+                        .path(registrationId.toString())
+                        .path("/assign"),
+                Entity.json(assign),
+                new GenericType<Registration>() {});
+    }
+
+    public CompletionStage<Registration> deassign(Long registrationId) {
+        return post(getModelTarget()
+                        .path(registrationId.toString())
+                        .path("/deassign"),
+                Entity.text(""),
+                new GenericType<Registration>() {});
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Registration;
+import org.cityteam.guests.model.Template;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.GenericType;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+public class AsyncTemplateClient extends AbstractAsyncClient<Template> {
+
+    // Constructors ----------------------------------------------------------
+
+    public AsyncTemplateClient() {
+        super("/templates",
+                new GenericType<Template>() {},
+                new GenericType<List<Template>>() {});
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public CompletionStage<List<Registration>> generate
+            (Long templateId, LocalDate registrationDate) {
+        return post(getModelTarget()
+                        .path(templateId.toString())
+                        .path("/generate")
+                        .path(registrationDate.toString()),
+                Entity.text(""),
+                new GenericType<List<Registration>>() {});
+    }
+
+}
@@ -23,7 +23,6 @@ import org.junit.Test;
 import java.time.LocalDate;
 import java.util.List;
 
-import static java.lang.Boolean.TRUE;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
@@ -40,12 +39,7 @@ public class BanClientTest extends AbstractClientTest {
 
     @Before
     public void before() {
-        if ((depopulateEnabled == null) || (TRUE == depopulateEnabled)) {
-            depopulate();
-        }
-        if ((populateEnabled == null) || (TRUE == populateEnabled)) {
-            populate();
-        }
+        reseed();
     }
 
     // Test Methods ----------------------------------------------------------
@@ -74,6 +68,8 @@ public class BanClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void deleteNotFound() throws Exception {
 
@@ -88,6 +84,7 @@ public class BanClientTest extends AbstractClientTest {
 
     // find() tests
 
+    @ReadOnly
     @Test
     public void findHappy() throws Exception {
 
@@ -105,6 +102,8 @@ public class BanClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findNotFound() throws Exception {
 
@@ -119,6 +118,7 @@ public class BanClientTest extends AbstractClientTest {
 
     // findAll() tests
 
+    @ReadOnly
     @Test
     public void findAllHappy() throws Exception {
 
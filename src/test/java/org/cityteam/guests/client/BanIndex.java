@@ -0,0 +1,244 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Ban;
+import org.craigmcc.library.shared.exception.InternalServerError;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Client-side index of active bans, kept current from a
+ * {@link ChangeFeed}, answering "is this guest banned on this date"
+ * without a server round trip.  Each guest's bans are flattened into
+ * disjoint date intervals, each mapped to a ban covering it, so a lookup
+ * is a single <code>floorEntry()</code> in O(log n).</p>
+ *
+ * <p>{@link #refresh()} polls the feed for bans, which asks the server
+ * only for the bans updated since the previous poll, and rebuilds only the
+ * guests whose bans were added, removed, or changed.  Bans are kept grouped
+ * by guest, so a rebuild reads just that guest's bans.  Deletions arrive
+ * with the feed's periodic full poll.  Local changes can also be applied
+ * directly with {@link #put(Ban)} and {@link #remove(Ban)}.  Lookups never
+ * block on refreshes.</p>
+ */
+public class BanIndex implements ChangeListener<Ban> {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final ChangeFeed changeFeed;
+
+    // All bans (active or not) by ban id, as of the last change
+    private final Map<Long, Ban> bans = new HashMap<>();
+
+    // All bans (active or not) by ban id, per guest with any bans
+    private final Map<Long, Map<Long, Ban>> guestBans = new HashMap<>();
+
+    // Covering ban by interval start date, per guest with any active bans
+    private final Map<Long, TreeMap<LocalDate, Interval>> guests =
+            new ConcurrentHashMap<>();
+
+    // Constructors ----------------------------------------------------------
+
+    public BanIndex() {
+        this(new ChangeFeed());
+    }
+
+    // Listen to a (possibly shared) feed, which may also be started to
+    // keep this index fresh in the background
+    public BanIndex(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+        changeFeed.addListener(Ban.class, this);
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    // Return an active ban covering this guest on this date, or null
+    public Ban find(Long guestId, LocalDate registrationDate) {
+        TreeMap<LocalDate, Interval> intervals = guests.get(guestId);
+        if (intervals == null) {
+            return null;
+        }
+        Map.Entry<LocalDate, Interval> entry =
+                intervals.floorEntry(registrationDate);
+        if ((entry == null) ||
+                entry.getValue().banTo.isBefore(registrationDate)) {
+            return null;
+        }
+        return entry.getValue().ban;
+    }
+
+    public boolean isBanned(Long guestId, LocalDate registrationDate) {
+        return find(guestId, registrationDate) != null;
+    }
+
+    // Apply the ban changes reported by the feed
+    @Override
+    public synchronized void onChanges(ChangeSet<Ban> changes) {
+        Set<Long> changed = new HashSet<>();
+        for (Ban ban : changes.getInserted()) {
+            add(ban, changed);
+        }
+        for (Ban ban : changes.getUpdated()) {
+            add(ban, changed);
+        }
+        for (Ban ban : changes.getDeleted()) {
+            discard(ban, changed);
+        }
+        rebuild(changed);
+    }
+
+    // Add or replace a ban that has been inserted or updated locally
+    public synchronized void put(Ban ban) {
+        Set<Long> changed = new HashSet<>();
+        add(ban, changed);
+        rebuild(changed);
+    }
+
+    // Poll the feed for bans changed since the previous poll, applying
+    // them, and return the number of changes applied.  Not synchronized,
+    // since the feed calls back into onChanges() while holding its own lock
+    public int refresh() throws InternalServerError {
+        return changeFeed.poll(Ban.class);
+    }
+
+    // Remove a ban that has been deleted locally
+    public synchronized void remove(Ban ban) {
+        Set<Long> changed = new HashSet<>();
+        discard(ban, changed);
+        rebuild(changed);
+    }
+
+    // Return the number of guests with at least one active ban
+    public int size() {
+        return guests.size();
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    // Record a new or updated ban, noting the guests whose bans changed
+    private void add(Ban ban, Set<Long> changed) {
+        Ban previous = bans.put(ban.getId(), ban);
+        if (previous != null) {
+            unlink(previous);
+            changed.add(previous.getGuestId());
+        }
+        guestBans.computeIfAbsent(ban.getGuestId(), k -> new HashMap<>())
+                .put(ban.getId(), ban);
+        changed.add(ban.getGuestId());
+    }
+
+    // Flatten the active bans of one guest into disjoint intervals
+    private static TreeMap<LocalDate, Interval> build(List<Ban> active) {
+        TreeSet<LocalDate> boundaries = new TreeSet<>();
+        for (Ban ban : active) {
+            boundaries.add(ban.getBanFrom());
+            boundaries.add(ban.getBanTo().plusDays(1));
+        }
+        TreeMap<LocalDate, Interval> intervals = new TreeMap<>();
+        Interval last = null;
+        LocalDate from = null;
+        for (LocalDate boundary : boundaries) {
+            if (from != null) {
+                Ban covering = null;
+                for (Ban ban : active) {
+                    if (!ban.getBanFrom().isAfter(from) &&
+                            !ban.getBanTo().isBefore(from)) {
+                        covering = ban;
+                        break;
+                    }
+                }
+                LocalDate to = boundary.minusDays(1);
+                if (covering == null) {
+                    last = null;
+                } else if ((last != null) && (last.ban == covering)) {
+                    last.banTo = to;
+                } else {
+                    last = new Interval(covering, to);
+                    intervals.put(from, last);
+                }
+            }
+            from = boundary;
+        }
+        return intervals;
+    }
+
+    // Forget a deleted ban, noting the guests whose bans changed
+    private void discard(Ban ban, Set<Long> changed) {
+        Ban previous = bans.remove(ban.getId());
+        if (previous != null) {
+            unlink(previous);
+            changed.add(previous.getGuestId());
+        }
+        changed.add(ban.getGuestId());
+    }
+
+    // Rebuild the intervals of these guests from their own bans only
+    private void rebuild(Set<Long> guestIds) {
+        for (Long guestId : guestIds) {
+            List<Ban> active = new ArrayList<>();
+            for (Ban ban : guestBans.getOrDefault(guestId, Map.of()).values()) {
+                if (Boolean.TRUE.equals(ban.getActive()) &&
+                        (ban.getBanFrom() != null) &&
+                        (ban.getBanTo() != null) &&
+                        !ban.getBanFrom().isAfter(ban.getBanTo())) {
+                    active.add(ban);
+                }
+            }
+            if (active.isEmpty()) {
+                guests.remove(guestId);
+            } else {
+                guests.put(guestId, build(active));
+            }
+        }
+    }
+
+    // Remove a previously recorded ban from its guest's bans
+    private void unlink(Ban previous) {
+        Map<Long, Ban> forGuest = guestBans.get(previous.getGuestId());
+        if (forGuest != null) {
+            forGuest.remove(previous.getId());
+            if (forGuest.isEmpty()) {
+                guestBans.remove(previous.getGuestId());
+            }
+        }
+    }
+
+    // Private Classes -------------------------------------------------------
+
+    // Dates from the map key through banTo (inclusive) covered by one ban
+    private static class Interval {
+
+        final Ban ban;
+        LocalDate banTo;
+
+        Interval(Ban ban, LocalDate banTo) {
+            this.ban = ban;
+            this.banTo = banTo;
+        }
+
+    }
+
+}
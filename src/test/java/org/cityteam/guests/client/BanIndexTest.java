@@ -0,0 +1,217 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Ban;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class BanIndexTest extends AbstractClientTest {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final BanClient banClient = new BanClient();
+    private final FacilityClient facilityClient = new FacilityClient();
+    private final GuestClient guestClient = new GuestClient();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        reseed();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // The index must agree with the server for every guest and many dates,
+    // including the days on and around each ban boundary
+
+    @ReadOnly
+    @Test
+    public void matchesServer() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        BanIndex banIndex = new BanIndex();
+        assertThat(banIndex.refresh(), is(greaterThan(0)));
+        assertThat(banIndex.size(), is(greaterThan(0)));
+
+        TreeSet<LocalDate> dates = new TreeSet<>();
+        for (LocalDate date = LocalDate.parse("2020-01-01");
+             date.isBefore(LocalDate.parse("2022-01-01"));
+             date = date.plusDays(9)) {
+            dates.add(date);
+        }
+        for (Ban ban : banClient.findAll()) {
+            dates.add(ban.getBanFrom().minusDays(1));
+            dates.add(ban.getBanFrom());
+            dates.add(ban.getBanTo());
+            dates.add(ban.getBanTo().plusDays(1));
+        }
+
+        int banned = 0;
+        for (Guest guest : guestClient.findAll()) {
+            for (LocalDate date : dates) {
+                Ban expected = null;
+                try {
+                    expected = guestClient.findBansByGuestIdAndRegistrationDate
+                            (guest.getId(), date);
+                } catch (NotFound e) {
+                    // Not banned on this date
+                }
+                Ban actual = banIndex.find(guest.getId(), date);
+                String message = guest.getId() + " on " + date;
+                if (expected == null) {
+                    assertThat(message, actual, is(nullValue()));
+                } else {
+                    assertThat(message, actual, is(notNullValue()));
+                    checkCovers(actual, guest.getId(), date);
+                    banned++;
+                }
+            }
+        }
+        assertThat(banned, is(greaterThan(0)));
+
+    }
+
+    // refresh() tests, not @Isolated since concurrent tests changing
+    // other bans would change the counts
+
+    @Test
+    public void refreshIncremental() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        BanIndex banIndex = new BanIndex();
+        banIndex.refresh();
+        assertThat(banIndex.refresh(), is(equalTo(0)));
+
+        Facility facility = facilityClient.findByNameExact(facilityName("Chester"));
+        Guest guest = facilityClient.findGuestsByNameExact
+                (facility.getId(), "Barney", "Rubble");
+        LocalDate date = LocalDate.parse("2021-10-15");
+        assertThat(banIndex.isBanned(guest.getId(), date), is(false));
+
+        // Insert
+        Ban ban = banClient.insert(new Ban(true, LocalDate.parse("2021-10-04"),
+                LocalDate.parse("2021-10-31"), "Index Comments",
+                guest.getId(), "Index Staff"));
+        assertThat(banIndex.isBanned(guest.getId(), date), is(false));
+        assertThat(banIndex.refresh(), is(equalTo(1)));
+        assertThat(banIndex.isBanned(guest.getId(), date), is(true));
+
+        // Update to inactive
+        ban.setActive(false);
+        banClient.update(ban.getId(), ban);
+        assertThat(banIndex.refresh(), is(equalTo(1)));
+        assertThat(banIndex.isBanned(guest.getId(), date), is(false));
+
+        // Delete, which only a full poll of the feed can see
+        banClient.delete(ban.getId());
+        int deleted = 0;
+        for (int i = 0; i < ChangeFeed.DEFAULT_FULL_EVERY; i++) {
+            deleted += banIndex.refresh();
+        }
+        assertThat(deleted, is(equalTo(1)));
+        assertThat(banIndex.isBanned(guest.getId(), date), is(false));
+        assertThat(banIndex.refresh(), is(equalTo(0)));
+
+    }
+
+    // put() and remove() tests, which need no server
+
+    @ReadOnly
+    @Test
+    public void overlappingBans() {
+
+        BanIndex banIndex = new BanIndex();
+        Long guestId = 123L;
+        Ban ban1 = newBan(1L, guestId, "2021-01-01", "2021-01-31");
+        Ban ban2 = newBan(2L, guestId, "2021-01-10", "2021-01-15");
+        Ban ban3 = newBan(3L, guestId, "2021-01-20", "2021-02-10");
+        Ban ban4 = newBan(4L, guestId, "2021-03-01", "2021-03-31");
+        ban4.setActive(false);
+        for (Ban ban : List.of(ban1, ban2, ban3, ban4)) {
+            banIndex.put(ban);
+        }
+
+        checkRange(banIndex, guestId, "2020-12-25", "2020-12-31", false);
+        checkRange(banIndex, guestId, "2021-01-01", "2021-02-10", true);
+        checkRange(banIndex, guestId, "2021-02-11", "2021-04-10", false);
+
+        // Removing the outer ban leaves the inner ones
+        banIndex.remove(ban1);
+        checkRange(banIndex, guestId, "2021-01-01", "2021-01-09", false);
+        checkRange(banIndex, guestId, "2021-01-10", "2021-01-15", true);
+        checkRange(banIndex, guestId, "2021-01-16", "2021-01-19", false);
+        checkRange(banIndex, guestId, "2021-01-20", "2021-02-10", true);
+
+        banIndex.remove(ban2);
+        banIndex.remove(ban3);
+        assertThat(banIndex.size(), is(equalTo(0)));
+        assertThat(banIndex.isBanned(guestId, LocalDate.parse("2021-01-20")),
+                is(false));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void checkCovers(Ban ban, Long guestId, LocalDate date) {
+        assertThat(ban.getGuestId(), is(equalTo(guestId)));
+        assertThat(ban.getActive(), is(true));
+        assertThat(ban.getBanFrom().isAfter(date), is(false));
+        assertThat(ban.getBanTo().isBefore(date), is(false));
+    }
+
+    private void checkRange(BanIndex banIndex, Long guestId,
+                            String from, String to, boolean banned) {
+        for (LocalDate date = LocalDate.parse(from);
+             !date.isAfter(LocalDate.parse(to));
+             date = date.plusDays(1)) {
+            Ban ban = banIndex.find(guestId, date);
+            assertThat(guestId + " on " + date, ban != null, is(banned));
+            if (banned) {
+                checkCovers(ban, guestId, date);
+            }
+        }
+    }
+
+    private Ban newBan(Long id, Long guestId, String from, String to) {
+        Ban ban = new Ban(true, LocalDate.parse(from), LocalDate.parse(to),
+                null, guestId, null);
+        ban.setId(id);
+        return ban;
+    }
+
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.action.ImportRequest;
+import org.cityteam.guests.action.ImportResults;
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Registration;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.craigmcc.library.shared.exception.NotUnique;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Opt-in <code>FacilityClient</code> for high volume imports.  Each
+ * date is imported with a single call, as the server imports it
+ * all-or-nothing, and up to <code>depth</code> dates are sent at once.
+ * When splitting is enabled (the <code>split</code> constructor argument,
+ * or <code>guests.client.importSplit</code>), the import requests for a
+ * date are instead split into batches of at most <code>batchSize</code>
+ * entries, and the resulting registrations are merged back in mat number
+ * order.  A date split into batches is no longer imported
+ * all-or-nothing.</p>
+ *
+ * <p>Each import creates any new guests it names, so a new guest named in
+ * more than one batch (say, on several nights of a back-fill) is created
+ * once, before any batch is sent, rather than by batches racing to insert
+ * the same guest.</p>
+ */
+public class BulkImportClient extends FacilityClient {
+
+    // Static Variables ------------------------------------------------------
+
+    public static final int DEFAULT_BATCH_SIZE =
+            Integer.getInteger("guests.client.importBatchSize", 100);
+    public static final int DEFAULT_DEPTH =
+            Integer.getInteger("guests.client.importDepth",
+                    SharedClientBuilder.MAX_PER_ROUTE);
+    public static final boolean DEFAULT_SPLIT = Boolean.parseBoolean
+            (System.getProperty("guests.client.importSplit", "false"));
+
+    private static final Comparator<Registration> MAT_ORDER =
+            Comparator.comparing(Registration::getMatNumber);
+
+    // Instance Variables ----------------------------------------------------
+
+    private final int batchSize;
+    private final int depth;
+    private final GuestClient guestClient = new GuestClient();
+    private final boolean split;
+
+    // Constructors ----------------------------------------------------------
+
+    public BulkImportClient() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_DEPTH, DEFAULT_SPLIT);
+    }
+
+    public BulkImportClient(int batchSize, int depth, boolean split) {
+        if ((batchSize < 1) || (depth < 1)) {
+            throw new IllegalArgumentException
+                    ("batchSize and depth must be positive");
+        }
+        this.batchSize = batchSize;
+        this.depth = depth;
+        this.split = split;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Import the nightly sheets for any number of dates at once.</p>
+     *
+     * <p>This is not atomic.  Each date (or, when splitting, each batch of
+     * a date) is imported, or rejected, on its own.  After the first
+     * failure no further imports are started, and the failure is thrown
+     * once the imports already in flight have finished.  Its message names
+     * every date and range of requests (counting from 1, in the order
+     * given) that was imported before the failure.  Those stay imported,
+     * as do any guests created up front, and nothing else was.</p>
+     *
+     * @param facilityId Facility to import registrations for
+     * @param importRequests Import requests for each registration date
+     *
+     * @return Import results for each registration date
+     */
+    public SortedMap<LocalDate, ImportResults> importRegistrationsByFacility
+            (Long facilityId,
+             Map<LocalDate, List<ImportRequest>> importRequests)
+            throws BadRequest, InternalServerError, NotFound, NotUnique {
+
+        List<Batch> batches = new ArrayList<>();
+        for (Map.Entry<LocalDate, List<ImportRequest>> entry :
+                new TreeMap<>(importRequests).entrySet()) {
+            List<ImportRequest> requests = entry.getValue();
+            int size = split ? batchSize : Math.max(requests.size(), 1);
+            for (int i = 0; i < requests.size(); i += size) {
+                batches.add(new Batch(entry.getKey(), i, requests.subList
+                        (i, Math.min(i + size, requests.size()))));
+            }
+        }
+        insertSharedGuests(facilityId, batches);
+        send(facilityId, batches);
+
+        SortedMap<LocalDate, List<Registration>> merged = new TreeMap<>();
+        for (LocalDate registrationDate : importRequests.keySet()) {
+            merged.put(registrationDate, new ArrayList<>());
+        }
+        for (Batch batch : batches) {
+            merged.get(batch.registrationDate)
+                    .addAll(batch.results.getRegistrations());
+        }
+        SortedMap<LocalDate, ImportResults> results = new TreeMap<>();
+        for (Map.Entry<LocalDate, List<Registration>> entry : merged.entrySet()) {
+            entry.getValue().sort(MAT_ORDER);
+            ImportResults importResults = new ImportResults();
+            importResults.setRegistrations(entry.getValue());
+            results.put(entry.getKey(), importResults);
+        }
+        return results;
+
+    }
+
+    @Override
+    public ImportResults importRegistrationsByFacilityAndDate
+            (Long facilityId,
+             LocalDate registrationDate,
+             List<ImportRequest> importRequests)
+            throws BadRequest, InternalServerError, NotFound, NotUnique {
+        if (!split || (importRequests.size() <= batchSize)) {
+            return super.importRegistrationsByFacilityAndDate
+                    (facilityId, registrationDate, importRequests);
+        }
+        return importRegistrationsByFacility(facilityId,
+                Collections.singletonMap(registrationDate, importRequests))
+                .get(registrationDate);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    // Describe the batches imported before a failure
+    private static String imported(List<Batch> batches) {
+        List<String> imported = new ArrayList<>();
+        for (Batch batch : batches) {
+            if (batch.results != null) {
+                imported.add(batch.toString());
+            }
+        }
+        return imported.isEmpty() ? "nothing was imported"
+                : "imported before the failure: " + String.join(", ", imported);
+    }
+
+    // Create, one at a time, each new guest named in more than one batch
+    private void insertSharedGuests(Long facilityId, List<Batch> batches)
+            throws BadRequest, InternalServerError {
+        Map<List<String>, Integer> counts = new LinkedHashMap<>();
+        for (Batch batch : batches) {
+            Set<List<String>> names = new HashSet<>();
+            for (ImportRequest request : batch.requests) {
+                if ((request.getFirstName() != null) &&
+                        (request.getLastName() != null)) {
+                    names.add(List.of(request.getFirstName(),
+                            request.getLastName()));
+                }
+            }
+            names.forEach(name -> counts.merge(name, 1, Integer::sum));
+        }
+        for (Map.Entry<List<String>, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > 1) {
+                insertGuest(facilityId,
+                        entry.getKey().get(0), entry.getKey().get(1));
+            }
+        }
+    }
+
+    // Create the guest unless it already exists
+    private void insertGuest(Long facilityId, String firstName,
+                             String lastName)
+            throws BadRequest, InternalServerError {
+        try {
+            findGuestsByNameExact(facilityId, firstName, lastName);
+        } catch (NotFound e) {
+            try {
+                guestClient.insert
+                        (new Guest(null, facilityId, firstName, lastName));
+            } catch (NotUnique n) {
+                // Created by someone else in the meantime
+            }
+        }
+    }
+
+    // One lane of the pipeline: claim the next batch, import it, repeat
+    private void lane(Long facilityId,
+                      List<Batch> batches,
+                      AtomicInteger next,
+                      AtomicReference<Exception> failure) throws Exception {
+        int index;
+        while ((failure.get() == null) &&
+                ((index = next.getAndIncrement()) < batches.size())) {
+            Batch batch = batches.get(index);
+            try {
+                batch.results = super.importRegistrationsByFacilityAndDate
+                        (facilityId, batch.registrationDate, batch.requests);
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private void send(Long facilityId, List<Batch> batches)
+            throws BadRequest, InternalServerError, NotFound, NotUnique {
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        AtomicInteger next = new AtomicInteger();
+        CompletableFuture<?>[] lanes =
+                new CompletableFuture<?>[Math.min(depth, batches.size())];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = ClientExecutor.supply(() -> {
+                lane(facilityId, batches, next, failure);
+                return null;
+            });
+        }
+        try {
+            CompletableFuture.allOf(lanes).join();
+        } catch (CompletionException e) {
+            failure.compareAndSet(null, new InternalServerError
+                    (String.valueOf(e.getCause())));
+        }
+        Exception e = failure.get();
+        if (e == null) {
+            return;
+        }
+        String message = e.getMessage() + " (" + imported(batches) + ")";
+        if (e instanceof BadRequest) {
+            throw new BadRequest(message);
+        } else if (e instanceof NotFound) {
+            throw new NotFound(message);
+        } else if (e instanceof NotUnique) {
+            throw new NotUnique(message);
+        } else {
+            throw new InternalServerError(message);
+        }
+    }
+
+    // Private Classes -------------------------------------------------------
+
+    private static class Batch {
+
+        final int from;
+        final LocalDate registrationDate;
+        final List<ImportRequest> requests;
+        volatile ImportResults results;
+
+        Batch(LocalDate registrationDate, int from,
+              List<ImportRequest> requests) {
+            this.from = from;
+            this.registrationDate = registrationDate;
+            this.requests = requests;
+        }
+
+        @Override
+        public String toString() {
+            return registrationDate + " requests " + (from + 1) + "-" +
+                    (from + requests.size());
+        }
+
+    }
+
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.action.ImportRequest;
+import org.cityteam.guests.action.ImportResults;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Registration;
+import org.cityteam.guests.model.types.FeatureType;
+import org.craigmcc.library.shared.exception.NotUnique;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static org.cityteam.guests.model.types.PaymentType.CT;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+public class BulkImportClientTest extends AbstractClientTest {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final BulkImportClient bulkImportClient =
+            new BulkImportClient(25, 4, true);
+    private final FacilityClient facilityClient = new FacilityClient();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        reseed();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // importRegistrationsByFacility() tests
+
+    @Isolated
+    @Test
+    public void importByFacilityHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility = facilityClient.findByNameExact(facilityName("San Jose"));
+        LocalDate firstDate = LocalDate.parse("2021-01-01");
+        int dates = 50;
+        int mats = 60;
+        Map<LocalDate, List<ImportRequest>> sheets = new LinkedHashMap<>();
+        for (int i = 0; i < dates; i++) {
+            LocalDate registrationDate = firstDate.plusDays(i);
+            sheets.put(registrationDate,
+                    newImports(mats, "Guest " + registrationDate));
+        }
+
+        SortedMap<LocalDate, ImportResults> results =
+                bulkImportClient.importRegistrationsByFacility
+                        (facility.getId(), sheets);
+
+        assertThat(results.size(), is(equalTo(dates)));
+        for (LocalDate registrationDate : sheets.keySet()) {
+            checkResults(facility, registrationDate,
+                    results.get(registrationDate), mats);
+        }
+
+    }
+
+    // Batches that fail stop the import, but earlier batches stay imported
+
+    @Isolated
+    @Test
+    public void importByFacilityPartialFailure() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility = facilityClient.findByNameExact(facilityName("San Jose"));
+        BulkImportClient sequentialClient = new BulkImportClient(25, 1, true);
+        LocalDate firstDate = LocalDate.parse("2021-03-01");
+        int mats = 60;
+        Map<LocalDate, List<ImportRequest>> sheets = new LinkedHashMap<>();
+        for (int i = 0; i < 4; i++) {
+            LocalDate registrationDate = firstDate.plusDays(i);
+            sheets.put(registrationDate,
+                    newImports(mats, "Guest " + registrationDate));
+        }
+        // Mat 1 twice, in the first batch of the third date
+        sheets.get(firstDate.plusDays(2))
+                .add(0, new ImportRequest(List.of(FeatureType.H), 1));
+
+        NotUnique exception = assertThrows(NotUnique.class, () ->
+                sequentialClient.importRegistrationsByFacility
+                        (facility.getId(), sheets));
+        // Every batch imported before the failure is named
+        assertThat(exception.getMessage(), containsString
+                ("imported before the failure: " +
+                        firstDate + " requests 1-25, " +
+                        firstDate + " requests 26-50, " +
+                        firstDate + " requests 51-60, " +
+                        firstDate.plusDays(1) + " requests 1-25, " +
+                        firstDate.plusDays(1) + " requests 26-50, " +
+                        firstDate.plusDays(1) + " requests 51-60)"));
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(facilityClient.findRegistrationsByFacilityAndDate
+                            (facility.getId(), firstDate.plusDays(i)).size(),
+                    is(equalTo((i < 2) ? mats : 0)));
+        }
+
+    }
+
+    // New guests named on many dates are created once, not once per batch
+
+    @Isolated
+    @Test
+    public void importByFacilityRepeatedGuests() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility = facilityClient.findByNameExact(facilityName("San Jose"));
+        int guestsBefore =
+                facilityClient.findGuestsByFacilityId(facility.getId()).size();
+        LocalDate firstDate = LocalDate.parse("2021-04-01");
+        int dates = 10;
+        int mats = 60;
+        Map<LocalDate, List<ImportRequest>> sheets = new LinkedHashMap<>();
+        for (int i = 0; i < dates; i++) {
+            LocalDate registrationDate = firstDate.plusDays(i);
+            sheets.put(registrationDate,
+                    newImports(mats, "Repeated"));
+        }
+
+        SortedMap<LocalDate, ImportResults> results =
+                bulkImportClient.importRegistrationsByFacility
+                        (facility.getId(), sheets);
+
+        // One guest per tenth mat, the same one on every date
+        assertThat(facilityClient.findGuestsByFacilityId(facility.getId())
+                .size(), is(equalTo(guestsBefore + (mats / 10))));
+        for (LocalDate registrationDate : sheets.keySet()) {
+            checkResults(facility, registrationDate,
+                    results.get(registrationDate), mats);
+            for (Registration registration :
+                    results.get(registrationDate).getRegistrations()) {
+                if (registration.getMatNumber() % 10 == 0) {
+                    Guest guest = facilityClient.findGuestsByNameExact
+                            (facility.getId(),
+                                    "Imported " + registration.getMatNumber(),
+                                    "Repeated");
+                    assertThat(registration.getGuestId(),
+                            is(equalTo(guest.getId())));
+                }
+            }
+        }
+
+    }
+
+    // Without splitting, each date is imported all-or-nothing in one call
+
+    @Isolated
+    @Test
+    public void importByFacilityUnsplit() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility = facilityClient.findByNameExact(facilityName("San Jose"));
+        BulkImportClient unsplitClient = new BulkImportClient(25, 1, false);
+        LocalDate firstDate = LocalDate.parse("2021-05-01");
+        int dates = 3;
+        int mats = 60;
+        Map<LocalDate, List<ImportRequest>> sheets = new LinkedHashMap<>();
+        for (int i = 0; i < dates; i++) {
+            LocalDate registrationDate = firstDate.plusDays(i);
+            sheets.put(registrationDate,
+                    newImports(mats, "Guest " + registrationDate));
+        }
+        ClientMetrics.Endpoint endpoint = ClientMetrics.global().endpoint
+                (ClientMetrics.endpoint("POST", facilityClient.getBaseTarget()
+                        .path("/facilities")
+                        .path(facility.getId().toString())
+                        .path("/registrations")
+                        .path(firstDate.toString())
+                        .getUri()));
+        long before = endpoint.getCount();
+
+        SortedMap<LocalDate, ImportResults> results =
+                unsplitClient.importRegistrationsByFacility
+                        (facility.getId(), sheets);
+
+        for (LocalDate registrationDate : sheets.keySet()) {
+            checkResults(facility, registrationDate,
+                    results.get(registrationDate), mats);
+        }
+        // Other tests may import at the same time in parallel mode
+        if (ClientMetrics.ENABLED && SharedClientBuilder.SHARED &&
+                !PARALLEL) {
+            assertThat(endpoint.getCount() - before, is((long) dates));
+        }
+
+        // A failed date is not imported at all, and stops the rest
+        LocalDate failedDate = firstDate.plusDays(dates + 1);
+        sheets.clear();
+        sheets.put(firstDate.plusDays(dates), newImports(mats, "Before"));
+        sheets.put(failedDate, newImports(mats, "Failed"));
+        sheets.get(failedDate)
+                .add(new ImportRequest(List.of(FeatureType.H), mats));
+        sheets.put(firstDate.plusDays(dates + 2), newImports(mats, "After"));
+        NotUnique exception = assertThrows(NotUnique.class, () ->
+                unsplitClient.importRegistrationsByFacility
+                        (facility.getId(), sheets));
+        assertThat(exception.getMessage(), containsString
+                ("imported before the failure: " + firstDate.plusDays(dates) +
+                        " requests 1-" + mats + ")"));
+        for (int i = dates; i < dates + 3; i++) {
+            assertThat(facilityClient.findRegistrationsByFacilityAndDate
+                            (facility.getId(), firstDate.plusDays(i)).size(),
+                    is(equalTo((i == dates) ? mats : 0)));
+        }
+
+    }
+
+    // importRegistrationsByFacilityAndDate() tests
+
+    @Isolated
+    @Test
+    public void importByFacilityAndDateHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility = facilityClient.findByNameExact(facilityName("San Jose"));
+        LocalDate registrationDate = LocalDate.parse("2021-06-01");
+        int mats = 2000;
+
+        ImportResults results =
+                bulkImportClient.importRegistrationsByFacilityAndDate
+                        (facility.getId(), registrationDate,
+                                newImports(mats, "Guest " + registrationDate));
+
+        checkResults(facility, registrationDate, results, mats);
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    // Results must be in mat number order and match what the server has
+    private void checkResults(Facility facility,
+                              LocalDate registrationDate,
+                              ImportResults results,
+                              int mats) throws Exception {
+        List<Registration> registrations = results.getRegistrations();
+        assertThat(registrations.size(), is(equalTo(mats)));
+        for (int i = 0; i < mats; i++) {
+            assertThat(registrations.get(i).getMatNumber(), is(equalTo(i + 1)));
+            assertThat(registrations.get(i).getRegistrationDate(),
+                    is(equalTo(registrationDate)));
+        }
+        assertThat(facilityClient.findRegistrationsByFacilityAndDate
+                        (facility.getId(), registrationDate),
+                is(equalTo(registrations)));
+    }
+
+    // Shuffled mat numbers, with every tenth mat assigned to a new guest
+    // named "Imported {matNumber} {lastName}"
+    private List<ImportRequest> newImports(int mats, String lastName) {
+        List<FeatureType> features = List.of(FeatureType.H);
+        List<ImportRequest> imports = new ArrayList<>();
+        for (int i = 0; i < mats; i++) {
+            int matNumber = ((i * 7) % mats) + 1; // mats is not a multiple of 7
+            if (matNumber % 10 == 0) {
+                imports.add(new ImportRequest(
+                        "Imported on Mat " + matNumber,
+                        null,
+                        "Imported " + matNumber,
+                        lastName,
+                        matNumber,
+                        null,
+                        CT,
+                        null,
+                        null
+                ));
+            } else {
+                imports.add(new ImportRequest(features, matNumber));
+            }
+        }
+        return imports;
+    }
+
+}
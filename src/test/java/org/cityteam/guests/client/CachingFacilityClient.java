@@ -0,0 +1,223 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.cityteam.guests.model.Facility;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.craigmcc.library.shared.exception.NotUnique;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Opt-in <code>FacilityClient</code> that caches the results of
+ * <code>find()</code>, <code>findAll()</code>, and
+ * <code>findByNameExact()</code> for a limited time, evicting the least
+ * recently used entries beyond a maximum count.  Its own
+ * <code>insert()</code>, <code>update()</code>, and <code>delete()</code>
+ * calls clear the cache; changes made through other clients become
+ * visible once cached entries expire.</p>
+ *
+ * <p>Callers receive copies of cached facilities, so modifying a result
+ * never changes what later callers see.</p>
+ */
+public class CachingFacilityClient extends FacilityClient {
+
+    // Static Variables ------------------------------------------------------
+
+    public static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofMinutes(1);
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private static final ObjectMapper mapper = ClientMappers.json();
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Map<String, Entry> entries;
+    private long generation = 0; // Bumped by invalidate()
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final long timeToLive;
+
+    // Constructors ----------------------------------------------------------
+
+    public CachingFacilityClient() {
+        this(DEFAULT_TIME_TO_LIVE, DEFAULT_MAX_ENTRIES);
+    }
+
+    public CachingFacilityClient(Duration timeToLive, int maxEntries) {
+        this.timeToLive = timeToLive.toNanos();
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public Facility delete(Long facilityId)
+            throws InternalServerError, NotFound {
+        try {
+            return super.delete(facilityId);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public Facility find(Long facilityId)
+            throws InternalServerError, NotFound {
+        String key = "id:" + facilityId;
+        Facility facility = (Facility) lookup(key);
+        if (facility == null) {
+            long observed = generation();
+            facility = super.find(facilityId);
+            store(key, facility, observed);
+        }
+        return copy(facility);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Facility> findAll() throws InternalServerError {
+        String key = "all";
+        List<Facility> facilities = (List<Facility>) lookup(key);
+        if (facilities == null) {
+            long observed = generation();
+            facilities = super.findAll();
+            store(key, facilities, observed);
+        }
+        return mapper.convertValue(facilities,
+                new TypeReference<List<Facility>>() {});
+    }
+
+    @Override
+    public Facility findByNameExact(String name)
+            throws InternalServerError, NotFound {
+        String key = "name:" + name;
+        Facility facility = (Facility) lookup(key);
+        if (facility == null) {
+            long observed = generation();
+            facility = super.findByNameExact(name);
+            store(key, facility, observed);
+        }
+        return copy(facility);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public Facility insert(Facility facility)
+            throws BadRequest, InternalServerError, NotUnique {
+        try {
+            return super.insert(facility);
+        } finally {
+            invalidate();
+        }
+    }
+
+    public void invalidate() {
+        synchronized (entries) {
+            entries.clear();
+            generation++;
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public Facility update(Long facilityId, Facility facility)
+            throws BadRequest, InternalServerError, NotFound, NotUnique {
+        try {
+            return super.update(facilityId, facility);
+        } finally {
+            invalidate();
+        }
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private Facility copy(Facility facility) {
+        return mapper.convertValue(facility, Facility.class);
+    }
+
+    // Return the cached value, or null (counting a miss) if absent or expired
+    private Object lookup(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if ((entry != null) && (entry.expires - System.nanoTime() > 0)) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private long generation() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    // Cache a value fetched from the server, unless the cache has been
+    // invalidated since the fetch started (the value may be stale)
+    private void store(String key, Object value, long observed) {
+        synchronized (entries) {
+            if (generation == observed) {
+                entries.put(key,
+                        new Entry(value, System.nanoTime() + timeToLive));
+            }
+        }
+    }
+
+    // Private Classes -------------------------------------------------------
+
+    private static class Entry {
+
+        private final long expires;
+        private final Object value;
+
+        private Entry(Object value, long expires) {
+            this.expires = expires;
+            this.value = value;
+        }
+
+    }
+
+}
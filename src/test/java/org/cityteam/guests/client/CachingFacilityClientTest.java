@@ -0,0 +1,282 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Facility;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThrows;
+
+public class CachingFacilityClientTest extends AbstractClientTest {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final CachingFacilityClient cachingClient =
+            new CachingFacilityClient();
+
+    private final FacilityClient facilityClient = new FacilityClient();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        reseed();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // Cache hit tests
+
+    @ReadOnly
+    @Test
+    public void findHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        List<Facility> facilities = facilityClient.findAll();
+        assertThat(facilities.size(), is(greaterThan(0)));
+
+        for (Facility facility : facilities) {
+            assertThat(cachingClient.find(facility.getId()),
+                    is(equalTo(facility)));
+            assertThat(cachingClient.find(facility.getId()),
+                    is(equalTo(facility)));
+        }
+        assertThat(cachingClient.getMisses(), is((long) facilities.size()));
+        assertThat(cachingClient.getHits(), is((long) facilities.size()));
+
+    }
+
+    @ReadOnly
+    @Test
+    public void findAllHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        List<Facility> facilities = facilityClient.findAll();
+        assertThat(cachingClient.findAll(), is(equalTo(facilities)));
+        assertThat(cachingClient.findAll(), is(equalTo(facilities)));
+        assertThat(cachingClient.getMisses(), is(1L));
+        assertThat(cachingClient.getHits(), is(1L));
+
+    }
+
+    @ReadOnly
+    @Isolated
+    @Test
+    public void findByNameExactHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        String name = facilityName("Oakland");
+        Facility facility = facilityClient.findByNameExact(name);
+        for (int i = 0; i < 10; i++) {
+            Facility found = cachingClient.findByNameExact(name);
+            assertThat(found.getId(), is(facility.getId()));
+            assertThat(found.getName(), is(name));
+        }
+        assertThat(cachingClient.getMisses(), is(1L));
+        assertThat(cachingClient.getHits(), is(9L));
+
+    }
+
+    @ReadOnly
+    @Isolated
+    @Test
+    public void findByNameExactNotFound() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        assertThrows(NotFound.class,
+                () -> cachingClient.findByNameExact("unmatched"));
+        assertThrows(NotFound.class,
+                () -> cachingClient.findByNameExact("unmatched"));
+        assertThat(cachingClient.getHits(), is(0L));
+
+    }
+
+    // Callers cannot change cached data through returned objects
+
+    @ReadOnly
+    @Isolated
+    @Test
+    public void resultsAreCopies() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        String name = facilityName("Chester");
+        Facility facility1 = cachingClient.findByNameExact(name);
+        String city = facility1.getCity();
+        facility1.setCity(city + " Changed");
+
+        Facility facility2 = cachingClient.findByNameExact(name);
+        assertThat(facility2.getCity(), is(city));
+        assertThat(cachingClient.getHits(), is(1L));
+
+    }
+
+    // Eviction tests
+
+    @ReadOnly
+    @Test
+    public void sizeBounded() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        CachingFacilityClient smallClient =
+                new CachingFacilityClient(Duration.ofMinutes(1), 2);
+        List<Facility> facilities = facilityClient.findAll();
+        assertThat(facilities.size(), is(greaterThan(2)));
+
+        for (Facility facility : facilities) {
+            smallClient.find(facility.getId());
+            assertThat(smallClient.size(), is(lessThanOrEqualTo(2)));
+        }
+
+        // Most recent entry survives, the first one was evicted
+        smallClient.find(facilities.get(facilities.size() - 1).getId());
+        assertThat(smallClient.getHits(), is(1L));
+        smallClient.find(facilities.get(0).getId());
+        assertThat(smallClient.getHits(), is(1L));
+
+    }
+
+    @ReadOnly
+    @Isolated
+    @Test
+    public void timeToLiveExpires() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        CachingFacilityClient shortClient =
+                new CachingFacilityClient(Duration.ofMillis(50), 100);
+        String name = facilityName("San Jose");
+        shortClient.findByNameExact(name);
+        shortClient.findByNameExact(name);
+        assertThat(shortClient.getHits(), is(1L));
+
+        Thread.sleep(100);
+        shortClient.findByNameExact(name);
+        assertThat(shortClient.getMisses(), is(2L));
+
+    }
+
+    // Invalidation tests
+
+    @Isolated
+    @Test
+    public void deleteInvalidates() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility = facilityClient.findByNameExact
+                (facilityName("San Francisco"));
+        cachingClient.find(facility.getId());
+        cachingClient.findByNameExact(facility.getName());
+
+        cachingClient.delete(facility.getId());
+        assertThat(cachingClient.size(), is(0));
+        assertThrows(NotFound.class,
+                () -> cachingClient.find(facility.getId()));
+        assertThrows(NotFound.class,
+                () -> cachingClient.findByNameExact(facility.getName()));
+
+    }
+
+    @Test
+    public void insertInvalidates() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        int count = cachingClient.findAll().size();
+        Facility inserted = cachingClient.insert(new Facility(
+                "123 Cached Street",
+                null,
+                "Cached City",
+                "cached@cityteam.org",
+                "Cached City",
+                "999-555-1212",
+                "US",
+                "99999"
+        ));
+
+        List<Facility> facilities = cachingClient.findAll();
+        assertThat(facilities.size(), is(count + 1));
+        assertThat(facilities.contains(inserted), is(true));
+        assertThat(cachingClient.findByNameExact("Cached City").getId(),
+                is(inserted.getId()));
+
+    }
+
+    @Isolated
+    @Test
+    public void updateInvalidates() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        // Changed field is visible through id and name lookups
+        Facility facility = cachingClient.findByNameExact
+                (facilityName("Oakland"));
+        cachingClient.find(facility.getId());
+        facility.setCity(facility.getCity() + " Updated");
+        cachingClient.update(facility.getId(), facility);
+        assertThat(cachingClient.find(facility.getId()).getCity(),
+                is(facility.getCity()));
+        assertThat(cachingClient.findByNameExact(facility.getName()).getCity(),
+                is(facility.getCity()));
+
+        // Old name no longer resolves after a rename
+        String oldName = facility.getName();
+        facility.setName(facilityName("Renamed"));
+        cachingClient.update(facility.getId(), facility);
+        assertThrows(NotFound.class,
+                () -> cachingClient.findByNameExact(oldName));
+        assertThat(cachingClient.findByNameExact(facility.getName()).getId(),
+                is(facility.getId()));
+
+    }
+
+}
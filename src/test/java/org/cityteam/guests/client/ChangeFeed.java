@@ -0,0 +1,298 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Ban;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Registration;
+import org.cityteam.guests.model.Template;
+import org.craigmcc.library.shared.exception.InternalServerError;
+
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * <p>Polls the list endpoints for Facility, Guest, Registration, Template,
+ * and Ban, and sends what changed since the previous poll to registered
+ * listeners, so local caches and indexes stay fresh without each one
+ * re-reading whole tables.  Only types with listeners are polled.  The
+ * first poll of a type reports everything as inserted.</p>
+ *
+ * <p>Polls pass the highest <code>updated</code> timestamp seen so far as
+ * an <code>updatedSince</code> query parameter.  If the server honors it,
+ * only changed rows come back, and deletions are picked up by a full poll
+ * every <code>fullEvery</code> polls.  If the server ignores it, every
+ * poll is full, and changes are found by comparing ids and versions with
+ * the previous result.  Until a poll shows which it is, an empty result
+ * (which might be an emptied table) is checked with a full poll.</p>
+ */
+public class ChangeFeed extends AbstractClient implements Closeable {
+
+    // Static Variables ------------------------------------------------------
+
+    public static final int DEFAULT_FULL_EVERY = 10;
+
+    // Instance Variables ----------------------------------------------------
+
+    private volatile Exception failure = null;
+    private final int fullEvery;
+    private ScheduledExecutorService scheduler = null;
+    private final Map<Class<?>, Tracker<?>> trackers = new LinkedHashMap<>();
+
+    // Constructors ----------------------------------------------------------
+
+    public ChangeFeed() {
+        this(DEFAULT_FULL_EVERY);
+    }
+
+    public ChangeFeed(int fullEvery) {
+        if (fullEvery < 1) {
+            throw new IllegalArgumentException("fullEvery must be positive");
+        }
+        this.fullEvery = fullEvery;
+        track(Facility.class, "/facilities",
+                new GenericType<List<Facility>>() {},
+                Facility::getId, Facility::getVersion, Facility::getUpdated);
+        track(Guest.class, "/guests",
+                new GenericType<List<Guest>>() {},
+                Guest::getId, Guest::getVersion, Guest::getUpdated);
+        track(Registration.class, "/registrations",
+                new GenericType<List<Registration>>() {},
+                Registration::getId, Registration::getVersion,
+                Registration::getUpdated);
+        track(Template.class, "/templates",
+                new GenericType<List<Template>>() {},
+                Template::getId, Template::getVersion, Template::getUpdated);
+        track(Ban.class, "/bans",
+                new GenericType<List<Ban>>() {},
+                Ban::getId, Ban::getVersion, Ban::getUpdated);
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public <M> void addListener(Class<M> type, ChangeListener<M> listener) {
+        tracker(type).listeners.add(listener);
+    }
+
+    // Stop background polling, if started
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    // Return the exception from the latest failed background poll, if any
+    public Exception getFailure() {
+        return failure;
+    }
+
+    // Poll every type with listeners, returning the number of changes sent
+    public synchronized int poll() throws InternalServerError {
+        int count = 0;
+        for (Tracker<?> tracker : trackers.values()) {
+            if (!tracker.listeners.isEmpty()) {
+                count += tracker.poll();
+            }
+        }
+        return count;
+    }
+
+    // Poll just this type, returning the number of changes sent
+    public synchronized <M> int poll(Class<M> type)
+            throws InternalServerError {
+        return tracker(type).poll();
+    }
+
+    public <M> void removeListener(Class<M> type, ChangeListener<M> listener) {
+        tracker(type).listeners.remove(listener);
+    }
+
+    // Poll in the background at the specified interval until closed
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "guests-change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+                failure = null;
+            } catch (Exception e) {
+                failure = e;
+            }
+        }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private <M> void track(Class<M> type,
+                           String path,
+                           GenericType<List<M>> listType,
+                           Function<M, Long> id,
+                           Function<M, Integer> version,
+                           Function<M, LocalDateTime> updated) {
+        trackers.put(type, new Tracker<>(type, getBaseTarget().path(path),
+                listType, id, version, updated));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <M> Tracker<M> tracker(Class<M> type) {
+        Tracker<M> tracker = (Tracker<M>) trackers.get(type);
+        if (tracker == null) {
+            throw new IllegalArgumentException("No change tracking for " +
+                    type.getSimpleName());
+        }
+        return tracker;
+    }
+
+    // Private Classes -------------------------------------------------------
+
+    private class Tracker<M> {
+
+        private final Function<M, Long> id;
+        private final Map<Long, M> known = new HashMap<>();
+        private final List<ChangeListener<M>> listeners =
+                new CopyOnWriteArrayList<>();
+        private Boolean honored = null; // Server filters by updatedSince?
+        private final GenericType<List<M>> listType;
+        private LocalDateTime marker = null;
+        private int polls = 0;
+        private final WebTarget target;
+        private final Class<M> type;
+        private final Function<M, LocalDateTime> updated;
+        private final Function<M, Integer> version;
+
+        Tracker(Class<M> type,
+                WebTarget target,
+                GenericType<List<M>> listType,
+                Function<M, Long> id,
+                Function<M, Integer> version,
+                Function<M, LocalDateTime> updated) {
+            this.id = id;
+            this.listType = listType;
+            this.target = target;
+            this.type = type;
+            this.updated = updated;
+            this.version = version;
+        }
+
+        int poll() throws InternalServerError {
+            polls++;
+            boolean full = (marker == null) || (polls % fullEvery == 0) ||
+                    Boolean.FALSE.equals(honored);
+            List<M> results = get(full ? target :
+                    target.queryParam("updatedSince", marker));
+            if (!full && !results.isEmpty()) {
+                // A server that ignores updatedSince has returned everything
+                for (M result : results) {
+                    LocalDateTime when = updated.apply(result);
+                    if ((when == null) || !when.isAfter(marker)) {
+                        full = true;
+                        break;
+                    }
+                }
+                honored = !full;
+            } else if (!full && (honored == null) && !known.isEmpty()) {
+                // Nothing changed, or everything was deleted from a table
+                // on a server that ignores updatedSince
+                results = get(target);
+                full = true;
+                if (!results.isEmpty()) {
+                    honored = true;
+                }
+            }
+
+            List<M> inserted = new ArrayList<>();
+            List<M> changed = new ArrayList<>();
+            List<M> deleted = new ArrayList<>();
+            Map<Long, M> seen = new HashMap<>();
+            for (M result : results) {
+                Long key = id.apply(result);
+                seen.put(key, result);
+                M previous = known.put(key, result);
+                if (previous == null) {
+                    inserted.add(result);
+                } else if (!Objects.equals(version.apply(previous),
+                        version.apply(result))) {
+                    changed.add(result);
+                }
+                LocalDateTime when = updated.apply(result);
+                if ((when != null) &&
+                        ((marker == null) || when.isAfter(marker))) {
+                    marker = when;
+                }
+            }
+            if (full) {
+                known.entrySet().removeIf(entry -> {
+                    if (seen.containsKey(entry.getKey())) {
+                        return false;
+                    }
+                    deleted.add(entry.getValue());
+                    return true;
+                });
+            }
+
+            ChangeSet<M> changes =
+                    new ChangeSet<>(type, inserted, changed, deleted);
+            if (!changes.isEmpty()) {
+                for (ChangeListener<M> listener : listeners) {
+                    listener.onChanges(changes);
+                }
+            }
+            return changes.size();
+        }
+
+        private List<M> get(WebTarget polled) throws InternalServerError {
+            Response response = polled
+                    .request(MediaType.APPLICATION_JSON)
+                    .get();
+            try {
+                if (response.getStatus() != RESPONSE_OK) {
+                    throw new InternalServerError
+                            (response.readEntity(String.class));
+                }
+                return response.readEntity(listType);
+            } finally {
+                response.close();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Ban;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThrows;
+
+public class ChangeFeedTest extends AbstractClientTest {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final BanClient banClient = new BanClient();
+    private final FacilityClient facilityClient = new FacilityClient();
+    private final GuestClient guestClient = new GuestClient();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        reseed();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // addListener() tests
+
+    @ReadOnly
+    @Test
+    public void addListenerUnknownType() {
+
+        try (ChangeFeed changeFeed = new ChangeFeed()) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> changeFeed.addListener(String.class, changes -> {}));
+        }
+
+    }
+
+    // poll() tests, not @Isolated since concurrent tests would add changes
+
+    @ReadOnly
+    @Test
+    public void pollInitial() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        try (ChangeFeed changeFeed = new ChangeFeed()) {
+            List<ChangeSet<Facility>> facilityChanges = new ArrayList<>();
+            List<ChangeSet<Guest>> guestChanges = new ArrayList<>();
+            changeFeed.addListener(Facility.class, facilityChanges::add);
+            changeFeed.addListener(Guest.class, guestChanges::add);
+
+            // The first poll reports everything as inserted
+            int facilities = facilityClient.findAll().size();
+            int guests = guestClient.findAll().size();
+            assertThat(changeFeed.poll(), is(equalTo(facilities + guests)));
+            assertThat(facilityChanges.size(), is(equalTo(1)));
+            assertThat(facilityChanges.get(0).getInserted().size(),
+                    is(equalTo(facilities)));
+            assertThat(guestChanges.size(), is(equalTo(1)));
+            assertThat(guestChanges.get(0).getInserted().size(),
+                    is(equalTo(guests)));
+
+            // Nothing changed, so nothing is sent
+            assertThat(changeFeed.poll(), is(equalTo(0)));
+            assertThat(facilityChanges.size(), is(equalTo(1)));
+            assertThat(guestChanges.size(), is(equalTo(1)));
+        }
+
+    }
+
+    @Test
+    public void pollChanges() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        // Before the first poll, which must not see a facility clone
+        Facility facility = facilityClient.findByNameExact(facilityName("Chester"));
+        try (ChangeFeed changeFeed = new ChangeFeed(1)) {
+            List<ChangeSet<Ban>> banChanges = new ArrayList<>();
+            List<ChangeSet<Guest>> guestChanges = new ArrayList<>();
+            changeFeed.addListener(Ban.class, banChanges::add);
+            changeFeed.addListener(Guest.class, guestChanges::add);
+            changeFeed.poll();
+            banChanges.clear();
+            guestChanges.clear();
+
+            Guest inserted = guestClient.insert(new Guest("Feed Comments",
+                    facility.getId(), "Feed", "Guest"));
+            Guest updated = facilityClient.findGuestsByNameExact
+                    (facility.getId(), "Fred", "Flintstone");
+            updated.setComments("Updated Feed Comments");
+            guestClient.update(updated.getId(), updated);
+            Ban deleted = banClient.findAll().get(0);
+            banClient.delete(deleted.getId());
+
+            assertThat(changeFeed.poll(), is(equalTo(3)));
+            assertThat(guestChanges.size(), is(equalTo(1)));
+            ChangeSet<Guest> guests = guestChanges.get(0);
+            assertThat(guests.getInserted().size(), is(equalTo(1)));
+            assertThat(guests.getInserted().get(0).getId(),
+                    is(equalTo(inserted.getId())));
+            assertThat(guests.getUpdated().size(), is(equalTo(1)));
+            assertThat(guests.getUpdated().get(0).getComments(),
+                    is(equalTo("Updated Feed Comments")));
+            assertThat(guests.getDeleted().size(), is(equalTo(0)));
+            assertThat(banChanges.size(), is(equalTo(1)));
+            ChangeSet<Ban> bans = banChanges.get(0);
+            assertThat(bans.getDeleted().size(), is(equalTo(1)));
+            assertThat(bans.getDeleted().get(0).getId(),
+                    is(equalTo(deleted.getId())));
+            assertThat(bans.getInserted().size() + bans.getUpdated().size(),
+                    is(equalTo(0)));
+        }
+
+    }
+
+    @Test
+    public void pollEmptied() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        try (ChangeFeed changeFeed = new ChangeFeed(100)) {
+            List<ChangeSet<Ban>> banChanges = new ArrayList<>();
+            changeFeed.addListener(Ban.class, banChanges::add);
+            changeFeed.poll();
+            banChanges.clear();
+
+            // An empty incremental result must not hide these deletions
+            List<Ban> deleted = banClient.findAll();
+            assertThat(deleted.size(), is(greaterThan(0)));
+            for (Ban ban : deleted) {
+                banClient.delete(ban.getId());
+            }
+
+            assertThat(changeFeed.poll(), is(equalTo(deleted.size())));
+            assertThat(banChanges.size(), is(equalTo(1)));
+            assertThat(banChanges.get(0).getDeleted().size(),
+                    is(equalTo(deleted.size())));
+        }
+
+    }
+
+    @Test
+    public void pollIncremental() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        // Before the first poll, which must not see a facility clone
+        Facility facility = facilityClient.findByNameExact(facilityName("Chester"));
+        try (ChangeFeed changeFeed = new ChangeFeed(4)) {
+            List<ChangeSet<Ban>> banChanges = new ArrayList<>();
+            List<ChangeSet<Guest>> guestChanges = new ArrayList<>();
+            changeFeed.addListener(Ban.class, banChanges::add);
+            changeFeed.addListener(Guest.class, guestChanges::add);
+            changeFeed.poll();
+            banChanges.clear();
+            guestChanges.clear();
+
+            // Second poll, only the changed rows if updatedSince is honored
+            Guest updated = facilityClient.findGuestsByNameExact
+                    (facility.getId(), "Fred", "Flintstone");
+            updated.setComments("Incremental Feed Comments");
+            guestClient.update(updated.getId(), updated);
+            Ban inserted = banClient.insert(new Ban(true,
+                    LocalDate.parse("2021-11-01"),
+                    LocalDate.parse("2021-11-30"), "Feed Comments",
+                    updated.getId(), "Feed Staff"));
+            assertThat(changeFeed.poll(), is(equalTo(2)));
+            assertThat(guestChanges.size(), is(equalTo(1)));
+            assertThat(guestChanges.get(0).getUpdated().get(0).getComments(),
+                    is(equalTo("Incremental Feed Comments")));
+            assertThat(banChanges.size(), is(equalTo(1)));
+            assertThat(banChanges.get(0).getInserted().get(0).getId(),
+                    is(equalTo(inserted.getId())));
+
+            // Third poll may miss a deletion, the fourth (full) one may not
+            Ban deleted = banClient.findAll().get(0);
+            banClient.delete(deleted.getId());
+            banChanges.clear();
+            int third = changeFeed.poll();
+            if (EmbeddedServer.ENABLED) {
+                assertThat(third, is(equalTo(0)));
+            }
+            changeFeed.poll();
+            assertThat(banChanges.size(), is(equalTo(1)));
+            assertThat(banChanges.get(0).getDeleted().size(), is(equalTo(1)));
+            assertThat(banChanges.get(0).getDeleted().get(0).getId(),
+                    is(equalTo(deleted.getId())));
+        }
+
+    }
+
+    // start() tests
+
+    @Test
+    public void startKeepsIndexFresh() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        try (ChangeFeed changeFeed = new ChangeFeed(1)) {
+            BanIndex banIndex = new BanIndex(changeFeed);
+            changeFeed.poll();
+            assertThat(banIndex.size(), is(greaterThan(0)));
+
+            Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
+            Guest guest = facilityClient.findGuestsByNameExact
+                    (facility.getId(), "Barney", "Rubble");
+            LocalDate date = LocalDate.parse("2021-10-15");
+            assertThat(banIndex.isBanned(guest.getId(), date), is(false));
+
+            changeFeed.start(Duration.ofMillis(100));
+            banClient.insert(new Ban(true, LocalDate.parse("2021-10-04"),
+                    LocalDate.parse("2021-10-31"), "Feed Comments",
+                    guest.getId(), "Feed Staff"));
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!banIndex.isBanned(guest.getId(), date) &&
+                    (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(50);
+            }
+            assertThat(banIndex.isBanned(guest.getId(), date), is(true));
+            assertThat(changeFeed.getFailure(), is(nullValue()));
+        }
+
+    }
+
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+/**
+ * <p>Receives the changes {@link ChangeFeed} has seen for one entity type
+ * since its previous poll.  Called on the polling thread.</p>
+ *
+ * @param <M> Model class whose changes are reported
+ */
+@FunctionalInterface
+public interface ChangeListener<M> {
+
+    public void onChanges(ChangeSet<M> changes);
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>Models of one type that were inserted, updated, or deleted between
+ * two polls of a {@link ChangeFeed}.  Deleted models are reported as they
+ * were last seen.</p>
+ *
+ * @param <M> Model class whose changes are reported
+ */
+public class ChangeSet<M> {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final List<M> deleted;
+    private final List<M> inserted;
+    private final Class<M> type;
+    private final List<M> updated;
+
+    // Constructors ----------------------------------------------------------
+
+    public ChangeSet(Class<M> type,
+                     List<M> inserted,
+                     List<M> updated,
+                     List<M> deleted) {
+        this.deleted = Collections.unmodifiableList(deleted);
+        this.inserted = Collections.unmodifiableList(inserted);
+        this.type = type;
+        this.updated = Collections.unmodifiableList(updated);
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    public List<M> getDeleted() {
+        return deleted;
+    }
+
+    public List<M> getInserted() {
+        return inserted;
+    }
+
+    public Class<M> getType() {
+        return type;
+    }
+
+    public List<M> getUpdated() {
+        return updated;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int size() {
+        return inserted.size() + updated.size() + deleted.size();
+    }
+
+    @Override
+    public String toString() {
+        return type.getSimpleName() + " inserted=" + inserted.size() +
+                " updated=" + updated.size() + " deleted=" + deleted.size();
+    }
+
+}
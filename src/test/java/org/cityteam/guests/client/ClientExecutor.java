@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Executor shared by the Jersey client for asynchronous requests, and
+ * available for fanning out blocking client calls.  These system
+ * properties select its mode:</p>
+ * <ul>
+ *     <li><code>guests.client.virtualThreads</code> - Run calls on virtual
+ *         threads (default false)</li>
+ *     <li><code>guests.client.maxConcurrency</code> - Maximum calls
+ *         running at once (default 256)</li>
+ * </ul>
+ *
+ * <p>Only asynchronous requests on the shared client, and calls passed to
+ * {@link #supply(Callable)}, run here.  Blocking client calls, such as
+ * <code>FacilityClient.findAll()</code>, still run on the caller's own
+ * thread, virtual or not.</p>
+ */
+public final class ClientExecutor {
+
+    // Static Variables ------------------------------------------------------
+
+    public static final int MAX_CONCURRENCY =
+            Integer.getInteger("guests.client.maxConcurrency", 256);
+    public static final boolean VIRTUAL_THREADS =
+            Boolean.getBoolean("guests.client.virtualThreads");
+
+    private static ExecutorService executor = null;
+
+    // Constructors ----------------------------------------------------------
+
+    private ClientExecutor() {
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public static synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = newExecutor(VIRTUAL_THREADS, MAX_CONCURRENCY);
+        }
+        return executor;
+    }
+
+    // Return a new executor in the specified mode, as executor() does
+    // for the mode configured by system properties
+    public static ExecutorService newExecutor(boolean virtualThreads,
+                                              int maxConcurrency) {
+        if (virtualThreads) {
+            return new VirtualThreadExecutor(maxConcurrency);
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(maxConcurrency, runnable -> {
+            Thread thread = new Thread(runnable,
+                    "guests-client-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Run a blocking client call, completing with its result or with the
+    // exception (NotFound and friends) that it threw
+    public static <T> CompletableFuture<T> supply(Callable<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executor().execute(() -> {
+            try {
+                result.complete(call.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+}
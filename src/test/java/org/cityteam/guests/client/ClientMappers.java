@@ -0,0 +1,376 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalTimeSerializer;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * <p>The Jackson mappers shared by every client (through the
+ * {@link JsonProvider} and {@link Resolver} that
+ * {@link SharedClientBuilder} registers), by the
+ * helpers that parse or copy models themselves, and by the
+ * {@link EmbeddedServer}, so that they all read and write models the same
+ * way:</p>
+ * <ul>
+ *     <li>Dates and times are written in fixed ISO formats,
+ *         <code>2020-07-04</code>, <code>06:30:00</code>, and
+ *         <code>2020-07-04T06:30:00</code>, followed by any fraction of a
+ *         second (<code>06:30:00.25</code>).  Values without a fraction
+ *         (with or without seconds) are read directly, which is many times
+ *         faster than parsing with a <code>DateTimeFormatter</code>, and
+ *         anything else is parsed as ISO as usual.</li>
+ *     <li>Unknown properties are ignored.</li>
+ *     <li>Model properties are read and written by bytecode that
+ *         Afterburner generates for each model class, instead of by
+ *         reflection.</li>
+ * </ul>
+ *
+ * <p>Readers and writers are cached per type, because building one looks
+ * up its (de)serializers again every time.  Request and response bodies
+ * go through them too, by way of the {@link JsonProvider}.</p>
+ */
+public final class ClientMappers {
+
+    // Static Variables ------------------------------------------------------
+
+    public static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ISO_LOCAL_DATE;
+    public static final DateTimeFormatter DATE_TIME_FORMAT =
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    public static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ISO_LOCAL_TIME;
+
+    private static final ObjectMapper json = configure(new ObjectMapper());
+    private static final ObjectMapper smile =
+            configure(new ObjectMapper(new SmileFactory()));
+
+    private static final ConcurrentMap<Type, ObjectReader> readers =
+            new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Type, ObjectWriter> writers =
+            new ConcurrentHashMap<>();
+
+    // Constructors ----------------------------------------------------------
+
+    private ClientMappers() {
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    // Return the shared mapper for JSON
+    public static ObjectMapper json() {
+        return json;
+    }
+
+    // Return the cached JSON reader for the specified type, such as
+    // Registration.class or new GenericType<List<Registration>>() {}.getType()
+    public static ObjectReader reader(Type type) {
+        return readers.computeIfAbsent(type,
+                k -> json.readerFor(json.constructType(k)));
+    }
+
+    // Return the shared mapper for Smile
+    public static ObjectMapper smile() {
+        return smile;
+    }
+
+    // Return the cached JSON writer for the specified type
+    public static ObjectWriter writer(Type type) {
+        return writers.computeIfAbsent(type,
+                k -> json.writerFor(json.constructType(k)));
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static ObjectMapper configure(ObjectMapper mapper) {
+        JavaTimeModule times = new JavaTimeModule();
+        times.addSerializer(LocalDate.class,
+                new LocalDateSerializer(DATE_FORMAT));
+        times.addDeserializer(LocalDate.class, new FixedDeserializer<>
+                (LocalDate.class, ClientMappers::parseDate,
+                        new LocalDateDeserializer(DATE_FORMAT)));
+        times.addSerializer(LocalDateTime.class,
+                new LocalDateTimeSerializer(DATE_TIME_FORMAT));
+        times.addDeserializer(LocalDateTime.class, new FixedDeserializer<>
+                (LocalDateTime.class, ClientMappers::parseDateTime,
+                        new LocalDateTimeDeserializer(DATE_TIME_FORMAT)));
+        times.addSerializer(LocalTime.class,
+                new LocalTimeSerializer(TIME_FORMAT));
+        times.addDeserializer(LocalTime.class, new FixedDeserializer<>
+                (LocalTime.class, ClientMappers::parseTime,
+                        new LocalTimeDeserializer(TIME_FORMAT)));
+        return mapper
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .registerModule(times)
+                .registerModule(new AfterburnerModule());
+    }
+
+    // Return the value of the digits from start to end, or -1 if any
+    // character is not a digit
+    private static int digits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if ((c < '0') || (c > '9')) {
+                return -1;
+            }
+            value = (value * 10) + (c - '0');
+        }
+        return value;
+    }
+
+    // Parse yyyy-MM-dd, or return null for anything else
+    private static LocalDate parseDate(String text) {
+        if ((text.length() != 10) ||
+                (text.charAt(4) != '-') || (text.charAt(7) != '-')) {
+            return null;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        if ((year < 0) || (month < 0) || (day < 0)) {
+            return null;
+        }
+        try {
+            return LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    // Parse yyyy-MM-ddTHH:mm[:ss], or return null for anything else
+    private static LocalDateTime parseDateTime(String text) {
+        if (((text.length() != 16) && (text.length() != 19)) ||
+                (text.charAt(10) != 'T')) {
+            return null;
+        }
+        LocalDate date = parseDate(text.substring(0, 10));
+        LocalTime time = parseTime(text.substring(11));
+        return ((date == null) || (time == null)) ?
+                null : LocalDateTime.of(date, time);
+    }
+
+    // Parse HH:mm[:ss], or return null for anything else
+    private static LocalTime parseTime(String text) {
+        if (((text.length() != 5) && (text.length() != 8)) ||
+                (text.charAt(2) != ':') ||
+                ((text.length() == 8) && (text.charAt(5) != ':'))) {
+            return null;
+        }
+        int hour = digits(text, 0, 2);
+        int minute = digits(text, 3, 5);
+        int second = (text.length() == 8) ? digits(text, 6, 8) : 0;
+        if ((hour < 0) || (minute < 0) || (second < 0)) {
+            return null;
+        }
+        try {
+            return LocalTime.of(hour, minute, second);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    // Private Classes -------------------------------------------------------
+
+    // Reads strings in a fixed format directly, and hands everything else
+    // (other formats, timestamps, properties with their own @JsonFormat)
+    // to the usual deserializer
+    private static class FixedDeserializer<T> extends StdScalarDeserializer<T>
+            implements ContextualDeserializer {
+
+        private static final long serialVersionUID = 1L;
+
+        private final JsonDeserializer<T> fallback;
+        private final Function<String, T> parser;
+
+        private FixedDeserializer(Class<T> type, Function<String, T> parser,
+                                  JsonDeserializer<T> fallback) {
+            super(type);
+            this.fallback = fallback;
+            this.parser = parser;
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual
+                (DeserializationContext context, BeanProperty property)
+                throws JsonMappingException {
+            JsonDeserializer<?> contextual =
+                    ((ContextualDeserializer) fallback)
+                            .createContextual(context, property);
+            return (contextual == fallback) ? this : contextual;
+        }
+
+        @Override
+        public T deserialize(JsonParser parser, DeserializationContext context)
+                throws IOException {
+            if (parser.hasToken(JsonToken.VALUE_STRING)) {
+                T value = this.parser.apply(parser.getText());
+                if (value != null) {
+                    return value;
+                }
+            }
+            return fallback.deserialize(parser, context);
+        }
+
+    }
+
+    // Public Classes --------------------------------------------------------
+
+    /**
+     * <p>Reads and writes JSON request and response bodies with the cached
+     * readers and writers, in place of Jersey's Jackson provider, so that
+     * every request made through {@link SharedClientBuilder} reuses them.
+     * Types that JAX-RS handles itself, such as <code>String</code> and
+     * <code>InputStream</code>, are left to JAX-RS.</p>
+     */
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Priority(Priorities.USER - 100)
+    public static class JsonProvider
+            implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+        private static final Set<Class<?>> UNTOUCHABLE = Set.of(
+                byte[].class, char[].class, File.class, InputStream.class,
+                OutputStream.class, Reader.class, Response.class,
+                StreamingOutput.class, String.class, Writer.class);
+
+        @Override
+        public boolean isReadable(Class<?> type, Type genericType,
+                                  Annotation[] annotations,
+                                  MediaType mediaType) {
+            return isJson(mediaType) && !isUntouchable(type);
+        }
+
+        @Override
+        public boolean isWriteable(Class<?> type, Type genericType,
+                                   Annotation[] annotations,
+                                   MediaType mediaType) {
+            return isJson(mediaType) && !isUntouchable(type);
+        }
+
+        // An empty body reads as null, as with Jersey's provider
+        @Override
+        public Object readFrom(Class<Object> type, Type genericType,
+                               Annotation[] annotations, MediaType mediaType,
+                               MultivaluedMap<String, String> headers,
+                               InputStream stream) throws IOException {
+            try (JsonParser parser = json.getFactory().createParser(stream)
+                    .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE)) {
+                if (parser.nextToken() == null) {
+                    return null;
+                }
+                return reader(genericType).readValue(parser);
+            }
+        }
+
+        @Override
+        public void writeTo(Object value, Class<?> type, Type genericType,
+                            Annotation[] annotations, MediaType mediaType,
+                            MultivaluedMap<String, Object> headers,
+                            OutputStream stream) throws IOException {
+            try (JsonGenerator generator = json.getFactory()
+                    .createGenerator(stream)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                writer(genericType).writeValue(generator, value);
+            }
+        }
+
+        private static boolean isJson(MediaType mediaType) {
+            return (mediaType == null) ||
+                    (MediaType.APPLICATION_JSON_TYPE.getType()
+                            .equals(mediaType.getType()) &&
+                            (MediaType.APPLICATION_JSON_TYPE.getSubtype()
+                                    .equals(mediaType.getSubtype()) ||
+                                    mediaType.getSubtype().endsWith("+json")));
+        }
+
+        private static boolean isUntouchable(Class<?> type) {
+            for (Class<?> untouchable : UNTOUCHABLE) {
+                if (untouchable.isAssignableFrom(type)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * <p>Hands the shared JSON mapper to Jersey's Jackson provider, ahead
+     * of any resolver the first caller registered itself.</p>
+     */
+    @Priority(Priorities.USER - 100)
+    public static class Resolver implements ContextResolver<ObjectMapper> {
+
+        @Override
+        public ObjectMapper getContext(Class<?> type) {
+            return json;
+        }
+
+    }
+
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.cityteam.guests.model.Registration;
+import org.cityteam.guests.model.types.FeatureType;
+import org.junit.Test;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+
+public class ClientMappersTest {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Type REGISTRATIONS =
+            new GenericType<List<Registration>>() {}.getType();
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void cachedReadersAndWriters() {
+
+        assertThat(ClientMappers.reader(REGISTRATIONS),
+                is(sameInstance(ClientMappers.reader(REGISTRATIONS))));
+        assertThat(ClientMappers.writer(REGISTRATIONS),
+                is(sameInstance(ClientMappers.writer(REGISTRATIONS))));
+        assertThat(ClientMappers.reader(Registration.class),
+                is(sameInstance(ClientMappers.reader(Registration.class))));
+
+    }
+
+    @Test
+    public void fixedDateFormats() throws Exception {
+
+        JsonNode json = ClientMappers.json().readTree
+                (ClientMappers.writer(Registration.class)
+                        .writeValueAsBytes(registration(7)));
+        assertThat(json.get("registrationDate").asText(),
+                is(equalTo("2020-07-04")));
+        assertThat(json.get("showerTime").asText(), is(equalTo("04:30:00")));
+        assertThat(json.get("wakeupTime").asText(), is(equalTo("05:15:00")));
+        assertThat(json.get("published").asText(),
+                is(equalTo("2020-07-04T06:00:00")));
+
+        Registration registration = registration(7);
+        registration.setShowerTime(LocalTime.of(4, 30, 0, 500_000_000));
+        registration.setUpdated
+                (LocalDateTime.of(2020, 7, 4, 6, 0, 1, 250_000_000));
+        json = ClientMappers.json().valueToTree(registration);
+        assertThat(json.get("showerTime").asText(), is(equalTo("04:30:00.5")));
+        assertThat(json.get("updated").asText(),
+                is(equalTo("2020-07-04T06:00:01.25")));
+
+    }
+
+    // Requests and responses go through the cached readers and writers
+    @Test
+    public void jsonProviderRoundTrip() throws Exception {
+
+        List<Registration> registrations = new ArrayList<>();
+        registrations.add(registration(1));
+        registrations.add(registration(2));
+        byte[] body = ClientMappers.writer(REGISTRATIONS)
+                .writeValueAsBytes(registrations);
+        StandInConnector connector = new StandInConnector(request ->
+                StandInConnector.ok(request, MediaType.APPLICATION_JSON, body));
+        Client client = connector.client(new ClientMappers.JsonProvider());
+        try {
+            List<Registration> read = client.target("http://localhost/")
+                    .request(MediaType.APPLICATION_JSON)
+                    .post(Entity.json(registrations),
+                            new GenericType<List<Registration>>() {});
+            assertThat(connector.getEntity(), is(equalTo(body)));
+            assertThat(read.size(), is(2));
+            assertThat(read.get(1).getMatNumber(), is(2));
+            assertThat(read.get(1).getShowerTime(),
+                    is(equalTo(LocalTime.of(4, 30))));
+        } finally {
+            client.close();
+        }
+
+    }
+
+    @Test
+    public void readFixedAndOtherFormats() throws Exception {
+
+        Registration registration = ClientMappers.reader(Registration.class)
+                .readValue("{\"registrationDate\":\"2020-07-04\"," +
+                        "\"showerTime\":\"04:30\"," +
+                        "\"wakeupTime\":\"05:15:30.5\"," +
+                        "\"published\":\"2020-07-04T06:00\"," +
+                        "\"updated\":\"2020-07-04T06:00:01.250\"," +
+                        "\"unknown\":true}");
+        assertThat(registration.getRegistrationDate(),
+                is(equalTo(LocalDate.of(2020, 7, 4))));
+        assertThat(registration.getShowerTime(),
+                is(equalTo(LocalTime.of(4, 30))));
+        assertThat(registration.getWakeupTime(),
+                is(equalTo(LocalTime.of(5, 15, 30, 500_000_000))));
+        assertThat(registration.getPublished(),
+                is(equalTo(LocalDateTime.of(2020, 7, 4, 6, 0))));
+        assertThat(registration.getUpdated(),
+                is(equalTo(LocalDateTime.of(2020, 7, 4, 6, 0, 1, 250_000_000))));
+
+        assertThrows(JsonMappingException.class, () ->
+                ClientMappers.reader(Registration.class)
+                        .readValue("{\"registrationDate\":\"2020-13-04\"}"));
+
+    }
+
+    @Test
+    public void roundTripJsonAndSmile() throws Exception {
+
+        // Every other registration with fractions of a second
+        List<Registration> registrations = new ArrayList<>();
+        for (int matNumber = 1; matNumber <= 10; matNumber++) {
+            Registration registration = registration(matNumber);
+            if ((matNumber % 2) == 0) {
+                registration.setShowerTime(LocalTime.of(4, 30, 0, 500_000_000));
+                registration.setWakeupTime(LocalTime.of(5, 15, 30, 123_456_789));
+                registration.setUpdated
+                        (LocalDateTime.of(2020, 7, 4, 6, 0, 1, 250_000_000));
+            }
+            registrations.add(registration);
+        }
+
+        List<Registration> json = ClientMappers.reader(REGISTRATIONS)
+                .readValue(ClientMappers.writer(REGISTRATIONS)
+                        .writeValueAsBytes(registrations));
+        ObjectMapper smile = ClientMappers.smile();
+        List<Registration> binary = smile.readValue
+                (smile.writeValueAsBytes(registrations),
+                        smile.constructType(REGISTRATIONS));
+        // As CachingFacilityClient and ConditionalFilter copy results
+        ObjectMapper mapper = ClientMappers.json();
+        List<Registration> copies = mapper.convertValue
+                (registrations, mapper.constructType(REGISTRATIONS));
+
+        for (List<Registration> results : List.of(json, binary, copies)) {
+            assertThat(results.size(), is(equalTo(registrations.size())));
+            for (int i = 0; i < registrations.size(); i++) {
+                Registration expected = registrations.get(i);
+                Registration actual = results.get(i);
+                assertThat(actual.getFacilityId(),
+                        is(equalTo(expected.getFacilityId())));
+                assertThat(actual.getFeatures(),
+                        is(equalTo(expected.getFeatures())));
+                assertThat(actual.getMatNumber(),
+                        is(equalTo(expected.getMatNumber())));
+                assertThat(actual.getRegistrationDate(),
+                        is(equalTo(expected.getRegistrationDate())));
+                assertThat(actual.getShowerTime(),
+                        is(equalTo(expected.getShowerTime())));
+                assertThat(actual.getWakeupTime(),
+                        is(equalTo(expected.getWakeupTime())));
+                assertThat(actual.getPublished(),
+                        is(equalTo(expected.getPublished())));
+                assertThat(actual.getUpdated(),
+                        is(equalTo(expected.getUpdated())));
+            }
+        }
+
+    }
+
+    @Test
+    public void sharedClientResolvesSharedMapper() {
+
+        Client client = ClientBuilder.newClient();
+        Response response = client.target("http://localhost/")
+                .register(ResolvingFilter.class)
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+        assertThat(response.getStatus(), is(equalTo(200)));
+        assertThat(ResolvingFilter.mapper,
+                is(sameInstance(ClientMappers.json())));
+        assertThat(ResolvingFilter.mapper.getRegisteredModuleIds(),
+                hasItem("com.fasterxml.jackson.module.afterburner.AfterburnerModule"));
+
+    }
+
+    @Test
+    public void sharedClientUsesJsonProvider() {
+
+        Client client = ClientBuilder.newClient();
+        Response response = client.target("http://localhost/")
+                .register(ResolvingFilter.class)
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+        assertThat(response.getStatus(), is(equalTo(200)));
+        assertThat(ResolvingFilter.reader,
+                is(instanceOf(ClientMappers.JsonProvider.class)));
+        assertThat(ResolvingFilter.writer,
+                is(instanceOf(ClientMappers.JsonProvider.class)));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private Registration registration(int matNumber) {
+        Registration registration = new Registration(1L,
+                Collections.singletonList(FeatureType.H), matNumber,
+                LocalDate.parse("2020-07-04"));
+        registration.setShowerTime(LocalTime.of(4, 30));
+        registration.setWakeupTime(LocalTime.of(5, 15));
+        registration.setPublished(LocalDateTime.of(2020, 7, 4, 6, 0));
+        return registration;
+    }
+
+    // Public Classes --------------------------------------------------------
+
+    // Records the JSON mapper, reader, and writer the client would use,
+    // without sending anything
+    public static class ResolvingFilter implements ClientRequestFilter {
+
+        private static volatile ObjectMapper mapper = null;
+        private static volatile MessageBodyReader<?> reader = null;
+        private static volatile MessageBodyWriter<?> writer = null;
+
+        @Context
+        private Providers providers;
+
+        @Override
+        public void filter(ClientRequestContext request) {
+            mapper = providers.getContextResolver(ObjectMapper.class,
+                    MediaType.APPLICATION_JSON_TYPE).getContext(Object.class);
+            reader = providers.getMessageBodyReader(List.class, REGISTRATIONS,
+                    new Annotation[0], MediaType.APPLICATION_JSON_TYPE);
+            writer = providers.getMessageBodyWriter(ArrayList.class,
+                    ArrayList.class, new Annotation[0],
+                    MediaType.APPLICATION_JSON_TYPE);
+            request.abortWith(Response.ok().build());
+        }
+
+    }
+
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Per-endpoint client metrics, collected by {@link MetricsFilter}: an
+ * HDR latency histogram, counts by response status, request and response
+ * payload bytes, and requests merged by {@link SingleFlightConnector}.
+ * Endpoints are identified by HTTP method and path, with ids, dates, and
+ * names replaced by placeholders, such as
+ * <code>GET /guests/api/facilities/{id}/registrations/{date}</code>.
+ * These system properties control collection:</p>
+ * <ul>
+ *     <li><code>guests.metrics</code> - Set to <code>false</code> to
+ *         disable collection (default true)</li>
+ *     <li><code>guests.metrics.report</code> - Base path of the text
+ *         (<code>.txt</code>) and JSON (<code>.json</code>) reports written
+ *         when the JVM exits, or empty for none
+ *         (default <code>target/client-metrics</code>)</li>
+ * </ul>
+ */
+public final class ClientMetrics {
+
+    // Static Variables ------------------------------------------------------
+
+    public static final boolean ENABLED = Boolean.parseBoolean
+            (System.getProperty("guests.metrics", "true"));
+    public static final String REPORT =
+            System.getProperty("guests.metrics.report", "target/client-metrics");
+
+    private static final Pattern DATE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+    private static final Pattern ID = Pattern.compile("\\d+");
+
+    private static final Map<Integer, String> EXCEPTIONS = Map.of(
+            AbstractClient.RESPONSE_BAD_REQUEST, "BadRequest",
+            AbstractClient.RESPONSE_FORBIDDEN, "Forbidden",
+            AbstractClient.RESPONSE_NOT_FOUND, "NotFound",
+            AbstractClient.RESPONSE_CONFLICT, "NotUnique",
+            AbstractClient.RESPONSE_INTERNAL_SERVER_ERROR, "InternalServerError"
+    );
+
+    private static final ClientMetrics global = new ClientMetrics();
+
+    static {
+        if (ENABLED && !REPORT.isEmpty()) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (!global.endpoints.isEmpty()) {
+                    global.report(Paths.get(REPORT));
+                }
+            }, "guests-metrics-report"));
+        }
+    }
+
+    // Instance Variables ----------------------------------------------------
+
+    private final ConcurrentMap<String, Endpoint> endpoints =
+            new ConcurrentSkipListMap<>();
+
+    // Public Methods --------------------------------------------------------
+
+    // Return the metrics shared by all clients
+    public static ClientMetrics global() {
+        return global;
+    }
+
+    // Return the metrics for the specified endpoint, creating them if needed
+    public Endpoint endpoint(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, k -> new Endpoint());
+    }
+
+    // Return the endpoint name for a request method and URI
+    public static String endpoint(String method, URI uri) {
+        StringBuilder sb = new StringBuilder(method).append(' ');
+        boolean names = false;
+        for (String segment : uri.getPath().split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            sb.append('/');
+            if (names) {
+                sb.append("{name}");
+            } else if (ID.matcher(segment).matches()) {
+                sb.append("{id}");
+            } else if (DATE.matcher(segment).matches()) {
+                sb.append("{date}");
+            } else {
+                sb.append(segment);
+                names = "name".equals(segment) || "nameExact".equals(segment);
+            }
+        }
+        return sb.toString();
+    }
+
+    // Return a snapshot of the metrics collected so far, by endpoint
+    public SortedMap<String, Endpoint> getEndpoints() {
+        return new TreeMap<>(endpoints);
+    }
+
+    // Write text and JSON reports to the base path plus .txt and .json
+    public void report(Path base) {
+        try {
+            if (base.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(base.toAbsolutePath().getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(
+                    Paths.get(base + ".txt"), StandardCharsets.UTF_8)) {
+                writeText(writer);
+            }
+            new ObjectMapper()
+                    .enable(SerializationFeature.INDENT_OUTPUT)
+                    .writeValue(Paths.get(base + ".json").toFile(), toMap());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void reset() {
+        endpoints.clear();
+    }
+
+    // Return the metrics as nested maps, suitable for writing as JSON
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            map.put(entry.getKey(), entry.getValue().toMap());
+        }
+        return map;
+    }
+
+    // Write a table of endpoints, slowest (by p99) first
+    public void writeText(Writer writer) {
+        PrintWriter out = new PrintWriter(writer);
+        out.printf("%-64s %8s %8s %10s %10s %10s %10s %12s %12s  %s%n",
+                "Endpoint", "Count", "Merged", "p50 ms", "p99 ms", "p999 ms",
+                "max ms", "Sent", "Received", "Statuses");
+        endpoints.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().percentile(99.0),
+                        a.getValue().percentile(99.0)))
+                .forEach(entry -> {
+                    Endpoint endpoint = entry.getValue();
+                    Histogram latencies = endpoint.getLatencies();
+                    StringBuilder statuses = new StringBuilder();
+                    endpoint.getStatuses().forEach((status, count) -> {
+                        statuses.append(statuses.length() > 0 ? " " : "")
+                                .append(status).append('=').append(count);
+                        if (EXCEPTIONS.containsKey(status)) {
+                            statuses.append('(')
+                                    .append(EXCEPTIONS.get(status)).append(')');
+                        }
+                    });
+                    out.printf("%-64s %8d %8d %10.3f %10.3f %10.3f %10.3f %12d %12d  %s%n",
+                            entry.getKey(),
+                            latencies.getTotalCount(),
+                            endpoint.getMerged(),
+                            millis(latencies.getValueAtPercentile(50.0)),
+                            millis(latencies.getValueAtPercentile(99.0)),
+                            millis(latencies.getValueAtPercentile(99.9)),
+                            millis(latencies.getMaxValue()),
+                            endpoint.getRequestBytes(),
+                            endpoint.getResponseBytes(),
+                            statuses);
+                });
+        out.flush();
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    // Public Classes --------------------------------------------------------
+
+    /**
+     * <p>Metrics for one endpoint.  Latencies are recorded in microseconds,
+     * from sending the request to receiving the response headers.</p>
+     */
+    public static final class Endpoint {
+
+        private final Histogram latencies = new ConcurrentHistogram(3);
+        private final LongAdder merged = new LongAdder();
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        private final ConcurrentMap<Integer, LongAdder> statuses =
+                new ConcurrentSkipListMap<>();
+
+        // Count a request that shared another's response instead of
+        // being sent (it is still timed and counted as a request)
+        public void addMerged() {
+            merged.increment();
+        }
+
+        public void addRequestBytes(long bytes) {
+            requestBytes.add(bytes);
+        }
+
+        public void addResponseBytes(long bytes) {
+            responseBytes.add(bytes);
+        }
+
+        public long getCount() {
+            return latencies.getTotalCount();
+        }
+
+        // Return a copy of the latency histogram (microseconds)
+        public Histogram getLatencies() {
+            return latencies.copy();
+        }
+
+        public long getMerged() {
+            return merged.sum();
+        }
+
+        public long getRequestBytes() {
+            return requestBytes.sum();
+        }
+
+        public long getResponseBytes() {
+            return responseBytes.sum();
+        }
+
+        // Return counts by response status, in status order
+        public SortedMap<Integer, Long> getStatuses() {
+            SortedMap<Integer, Long> results = new TreeMap<>();
+            statuses.forEach((status, count) -> results.put(status, count.sum()));
+            return results;
+        }
+
+        // Return the latency (microseconds) at the specified percentile
+        public long percentile(double percentile) {
+            return latencies.getValueAtPercentile(percentile);
+        }
+
+        public void record(int status, long nanos) {
+            latencies.recordValue(Math.max(0, nanos / 1000));
+            statuses.computeIfAbsent(status, k -> new LongAdder()).increment();
+        }
+
+        private Map<String, Object> toMap() {
+            Histogram snapshot = getLatencies();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", snapshot.getTotalCount());
+            map.put("merged", getMerged());
+            map.put("p50Micros", snapshot.getValueAtPercentile(50.0));
+            map.put("p90Micros", snapshot.getValueAtPercentile(90.0));
+            map.put("p99Micros", snapshot.getValueAtPercentile(99.0));
+            map.put("p999Micros", snapshot.getValueAtPercentile(99.9));
+            map.put("maxMicros", snapshot.getMaxValue());
+            map.put("meanMicros", snapshot.getMean());
+            map.put("requestBytes", getRequestBytes());
+            map.put("responseBytes", getResponseBytes());
+            Map<String, Long> byStatus = new LinkedHashMap<>();
+            getStatuses().forEach((status, count) ->
+                    byStatus.put(String.valueOf(status), count));
+            map.put("statuses", byStatus);
+            return map;
+        }
+
+    }
+
+}
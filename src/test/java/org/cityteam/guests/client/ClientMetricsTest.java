@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.cityteam.guests.model.Facility;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThrows;
+
+public class ClientMetricsTest extends AbstractClientTest {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final FacilityClient facilityClient = new FacilityClient();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        reseed();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // endpoint() tests
+
+    @ReadOnly
+    @Test
+    public void endpointNames() {
+
+        assertThat(ClientMetrics.endpoint("GET",
+                URI.create("http://localhost:8080/guests/api/facilities/12/registrations/2020-07-04")),
+                is(equalTo("GET /guests/api/facilities/{id}/registrations/{date}")));
+        assertThat(ClientMetrics.endpoint("GET",
+                URI.create("http://localhost:8080/guests/api/facilities/3/guests/nameExact/Bam%20Bam/Rubble")),
+                is(equalTo("GET /guests/api/facilities/{id}/guests/nameExact/{name}/{name}")));
+        assertThat(ClientMetrics.endpoint("POST",
+                URI.create("http://localhost:8080/guests/api/devmode/populate")),
+                is(equalTo("POST /guests/api/devmode/populate")));
+
+    }
+
+    // Collection and reporting tests, not @Isolated so that no other test
+    // is recording at the same time
+
+    @ReadOnly
+    @Test
+    public void recordHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        ClientMetrics metrics = ClientMetrics.global();
+        String findAll = findAllEndpoint();
+        long before = count(metrics, findAll);
+        for (int i = 0; i < 5; i++) {
+            facilityClient.findAll();
+        }
+        assertThrows(NotFound.class, () -> facilityClient.find(Long.MAX_VALUE));
+
+        ClientMetrics.Endpoint endpoint = metrics.getEndpoints().get(findAll);
+        assertThat(endpoint.getCount(), is(equalTo(before + 5)));
+        assertThat(endpoint.getResponseBytes(), is(greaterThan(0L)));
+        assertThat(endpoint.percentile(50.0), is(greaterThan(0L)));
+
+        String find = findAll + "/{id}";
+        assertThat(metrics.getEndpoints().get(find).getStatuses()
+                .get(AbstractClient.RESPONSE_NOT_FOUND), is(greaterThan(0L)));
+
+    }
+
+    @ReadOnly
+    @Test
+    public void reportHappy() throws Exception {
+
+        ClientMetrics metrics = new ClientMetrics();
+        ClientMetrics.Endpoint endpoint = metrics.endpoint("GET /facilities");
+        endpoint.record(200, 2_000_000);
+        endpoint.record(404, 4_000_000);
+        endpoint.addResponseBytes(123);
+        metrics.endpoint("POST /facilities").record(409, 1_000_000);
+
+        StringWriter text = new StringWriter();
+        metrics.writeText(text);
+        assertThat(text.toString(), containsString("GET /facilities"));
+        assertThat(text.toString(), containsString("404=1(NotFound)"));
+        assertThat(text.toString(), containsString("409=1(NotUnique)"));
+
+        Path base = Files.createTempDirectory("metrics").resolve("report");
+        metrics.report(base);
+        JsonNode json = new ObjectMapper().readTree
+                (Files.readAllBytes(Path.of(base + ".json")));
+        JsonNode get = json.get("GET /facilities");
+        assertThat(get, is(notNullValue()));
+        assertThat(get.get("count").asLong(), is(equalTo(2L)));
+        assertThat(get.get("responseBytes").asLong(), is(equalTo(123L)));
+        assertThat(get.get("statuses").get("404").asLong(), is(equalTo(1L)));
+        assertThat(Files.readString(Path.of(base + ".txt")),
+                is(equalTo(text.toString())));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private long count(ClientMetrics metrics, String endpoint) {
+        ClientMetrics.Endpoint counts = metrics.getEndpoints().get(endpoint);
+        return (counts != null) ? counts.getCount() : 0;
+    }
+
+    // Record one call to find out what the findAll() endpoint is called
+    private String findAllEndpoint() throws Exception {
+        ClientMetrics metrics = ClientMetrics.global();
+        facilityClient.findAll();
+        for (String endpoint : metrics.getEndpoints().keySet()) {
+            if (endpoint.startsWith("GET ") && endpoint.endsWith("/facilities")) {
+                return endpoint;
+            }
+        }
+        throw new AssertionError("No findAll() endpoint in " +
+                metrics.getEndpoints().keySet());
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * <p>Jersey client interceptor that compresses request bodies of at least
+ * a minimum size, such as large lists of <code>ImportRequest</code>s, with
+ * <code>gzip</code> or <code>deflate</code> encoding.  Smaller bodies are
+ * sent as they are, since compressing them costs more time than it saves
+ * on the wire.  Requests that already specify a
+ * <code>Content-Encoding</code> are left alone.</p>
+ *
+ * <p>Not every server accepts compressed request bodies, so
+ * {@link SharedClientBuilder} only registers this when
+ * <code>guests.client.compressionMinSize</code> is set.</p>
+ *
+ * <p>This runs inside {@link MetricsFilter}, so request bytes in
+ * {@link ClientMetrics} are the compressed bytes actually sent.</p>
+ */
+@Priority(Priorities.USER + 100)
+public class CompressionInterceptor implements WriterInterceptor {
+
+    // Static Variables ------------------------------------------------------
+
+    public static final String DEFLATE = "deflate";
+    public static final String GZIP = "gzip";
+
+    // Instance Variables ----------------------------------------------------
+
+    private final String encoding;
+    private final int minSize;
+
+    // Constructors ----------------------------------------------------------
+
+    public CompressionInterceptor(String encoding, int minSize) {
+        if (!GZIP.equals(encoding) && !DEFLATE.equals(encoding)) {
+            throw new IllegalArgumentException("encoding: Must be '" + GZIP +
+                    "' or '" + DEFLATE + "', not '" + encoding + "'");
+        }
+        this.encoding = encoding;
+        this.minSize = minSize;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context)
+            throws IOException {
+        if (context.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            context.proceed();
+            return;
+        }
+
+        // The size is only known once the whole body has been written
+        OutputStream original = context.getOutputStream();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        context.setOutputStream(buffer);
+        context.proceed();
+        context.setOutputStream(original);
+        if (buffer.size() < minSize) {
+            buffer.writeTo(original);
+            return;
+        }
+
+        // Jersey closes the original stream itself, once it is done
+        context.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+        OutputStream unclosed = new FilterOutputStream(original) {
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        try (OutputStream compressed = GZIP.equals(encoding)
+                ? new GZIPOutputStream(unclosed)
+                : new DeflaterOutputStream(unclosed)) {
+            buffer.writeTo(compressed);
+        }
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.cityteam.guests.action.ImportRequest;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.types.FeatureType;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Variant;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThrows;
+
+public class CompressionInterceptorTest extends AbstractClientTest {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final String URI =
+            "http://localhost:8080/guests/api/facilities";
+
+    // Instance Variables ----------------------------------------------------
+
+    private final FacilityClient facilityClient = new FacilityClient();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        reseed();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // Stand-in connector tests (no server needed)
+
+    @ReadOnly
+    @Test
+    public void compressDeflate() throws Exception {
+
+        StandInConnector connector = capturing();
+        String body = body(1000);
+        send(connector, new CompressionInterceptor
+                (CompressionInterceptor.DEFLATE, 100), body);
+        assertThat(connector.getHeader(HttpHeaders.CONTENT_ENCODING), is("deflate"));
+        assertThat(connector.getEntity().length, is(lessThan(body.length())));
+        assertThat(text(new InflaterInputStream
+                (new ByteArrayInputStream(connector.getEntity()))), is(body));
+
+    }
+
+    @ReadOnly
+    @Test
+    public void compressGzip() throws Exception {
+
+        StandInConnector connector = capturing();
+        String body = body(1000);
+        send(connector, new CompressionInterceptor
+                (CompressionInterceptor.GZIP, 100), body);
+        assertThat(connector.getHeader(HttpHeaders.CONTENT_ENCODING), is("gzip"));
+        assertThat(connector.getEntity().length, is(lessThan(body.length())));
+        assertThat(text(new GZIPInputStream
+                (new ByteArrayInputStream(connector.getEntity()))), is(body));
+
+    }
+
+    @ReadOnly
+    @Test
+    public void compressInvalid() {
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new CompressionInterceptor("br", 100));
+
+    }
+
+    @ReadOnly
+    @Test
+    public void compressSkipped() throws Exception {
+
+        // Bodies below the minimum size
+        StandInConnector connector = capturing();
+        CompressionInterceptor interceptor =
+                new CompressionInterceptor(CompressionInterceptor.GZIP, 100);
+        send(connector, interceptor, body(99));
+        assertThat(connector.getHeader(HttpHeaders.CONTENT_ENCODING), is(nullValue()));
+        assertThat(text(new ByteArrayInputStream(connector.getEntity())),
+                is(body(99)));
+
+        // Bodies that already have an encoding
+        Client client = connector.client(interceptor);
+        try {
+            client.target(URI)
+                    .request()
+                    .post(Entity.entity(body(1000), new Variant
+                            (MediaType.TEXT_PLAIN_TYPE, (Locale) null, "identity")))
+                    .close();
+            assertThat(connector.getHeader(HttpHeaders.CONTENT_ENCODING), is("identity"));
+            assertThat(text(new ByteArrayInputStream(connector.getEntity())),
+                    is(body(1000)));
+        } finally {
+            client.close();
+        }
+
+    }
+
+    // Shared client tests
+
+    @Test
+    public void sharedClientImport() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility =
+                facilityClient.findByNameExact(facilityName("Oakland"));
+        LocalDate registrationDate = LocalDate.parse("2020-12-25");
+        List<ImportRequest> imports = new ArrayList<>();
+        for (int matNumber = 1; matNumber <= 200; matNumber++) {
+            imports.add(new ImportRequest
+                    (List.of(FeatureType.H), matNumber));
+        }
+        int size = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .writeValueAsBytes(imports).length;
+        ClientMetrics.Endpoint endpoint = ClientMetrics.global().endpoint
+                (ClientMetrics.endpoint("POST", java.net.URI.create(URI + "/" +
+                        facility.getId() + "/import/" + registrationDate)));
+        long before = endpoint.getRequestBytes();
+
+        facilityClient
+                .importRegistrationsByFacilityAndDate
+                        (facility.getId(), registrationDate, imports);
+        assertThat(facilityClient.findRegistrationsByFacilityAndDate
+                        (facility.getId(), registrationDate).size(),
+                is(equalTo(imports.size())));
+
+        // Request bodies are only compressed when asked for
+        if (SharedClientBuilder.COMPRESSION && SharedClientBuilder.SHARED &&
+                ClientMetrics.ENABLED &&
+                (SharedClientBuilder.COMPRESSION_MIN_SIZE >= 0) &&
+                (size >= SharedClientBuilder.COMPRESSION_MIN_SIZE)) {
+            assertThat(endpoint.getRequestBytes() - before,
+                    is(lessThan((long) size)));
+        }
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    // Return a body of the specified length that compresses well
+    private static String body(int length) {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < length) {
+            sb.append("Mat ").append(sb.length() % 24).append(". ");
+        }
+        return sb.substring(0, length);
+    }
+
+    // Keep the encoding and the bytes of each request body sent
+    private static StandInConnector capturing() {
+        return new StandInConnector(request ->
+                StandInConnector.empty(request, Response.Status.NO_CONTENT));
+    }
+
+    private static void send(StandInConnector connector,
+                             CompressionInterceptor interceptor,
+                             String body) {
+        Client client = connector.client(interceptor);
+        try {
+            client.target(URI)
+                    .request()
+                    .post(Entity.text(body))
+                    .close();
+        } finally {
+            client.close();
+        }
+    }
+
+    private static String text(InputStream stream) throws IOException {
+        try (InputStream in = stream) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
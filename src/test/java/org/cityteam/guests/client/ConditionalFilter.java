@@ -0,0 +1,257 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.annotation.Priority;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Jersey client filter (registered by {@link SharedClientBuilder}) that
+ * makes GET requests conditional.  Responses carrying an
+ * <code>ETag</code> or <code>Last-Modified</code> header are stored by
+ * URI (and <code>Accept</code> header), later GETs of the same URI send
+ * <code>If-None-Match</code> or <code>If-Modified-Since</code>, and a 304
+ * (Not Modified) response is turned back into the stored 200 response.
+ * Stored responses are kept as received (still compressed, if they were).
+ * A 200 is parsed once, for its caller only.  The first 304 served from a
+ * stored response parses it once more, and keeps a copy of the object, so
+ * later 304 responses are not parsed again.  As with
+ * {@link CachingFacilityClient}, callers of those receive copies of the
+ * kept object, so modifying a result never changes what later callers
+ * see.</p>
+ *
+ * <p>Stored responses are always revalidated with the server, so callers
+ * never see stale data.  Responses are buffered in memory to be stored, so
+ * callers that stream large responses set the {@link #BYPASS} request
+ * property to <code>true</code>.  A 304 is still recorded as such in
+ * {@link ClientMetrics}, which sees responses before this filter does.</p>
+ */
+@Priority(Priorities.USER - 100)
+public class ConditionalFilter
+        implements ClientRequestFilter, ClientResponseFilter, ReaderInterceptor {
+
+    // Static Variables ------------------------------------------------------
+
+    public static final String BYPASS =
+            ConditionalFilter.class.getName() + ".bypass";
+
+    private static final String KEY =
+            ConditionalFilter.class.getName() + ".key";
+    private static final String READ =
+            ConditionalFilter.class.getName() + ".read";
+    private static final String STORED =
+            ConditionalFilter.class.getName() + ".stored";
+
+    private static final int RESPONSE_NOT_MODIFIED = 304;
+
+    private static final ObjectMapper mapper = ClientMappers.json();
+
+    // Instance Variables ----------------------------------------------------
+
+    private final LongAdder copies = new LongAdder();
+    private final Map<String, Entry> entries;
+    private final LongAdder revalidated = new LongAdder();
+
+    // Constructors ----------------------------------------------------------
+
+    public ConditionalFilter(int maxEntries) {
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    // Serve a copy of the object kept for a 304 response, if it is of the
+    // type being read, and otherwise keep a copy of what is read for next
+    // time.  Reads of a 200 are left alone, as most are never revalidated
+    @Override
+    public Object aroundReadFrom(ReaderInterceptorContext context)
+            throws IOException {
+        Entry read = (Entry) context.getProperty(READ);
+        if (read == null) {
+            return context.proceed();
+        }
+        Object value = read.value(context.getGenericType());
+        if (value != null) {
+            return copy(value, context.getGenericType());
+        }
+        value = context.proceed();
+        if ((value != null) && !(value instanceof InputStream)) {
+            read.remember(context.getGenericType(),
+                    copy(value, context.getGenericType()));
+        }
+        return value;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public void filter(ClientRequestContext request) {
+        if (!HttpMethod.GET.equals(request.getMethod()) ||
+                request.hasEntity() ||
+                Boolean.TRUE.equals(request.getProperty(BYPASS))) {
+            return;
+        }
+        String key = request.getUri() + " " +
+                request.getHeaderString(HttpHeaders.ACCEPT);
+        request.setProperty(KEY, key);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            return;
+        }
+        request.setProperty(STORED, entry);
+        if (entry.etag != null) {
+            request.getHeaders().putSingle(HttpHeaders.IF_NONE_MATCH,
+                    entry.etag);
+        } else {
+            request.getHeaders().putSingle(HttpHeaders.IF_MODIFIED_SINCE,
+                    entry.lastModified);
+        }
+    }
+
+    @Override
+    public void filter(ClientRequestContext request,
+                       ClientResponseContext response) throws IOException {
+        String key = (String) request.getProperty(KEY);
+        if (key == null) {
+            return;
+        }
+        Entry stored = (Entry) request.getProperty(STORED);
+        if ((response.getStatus() == RESPONSE_NOT_MODIFIED) &&
+                (stored != null)) {
+            revalidated.increment();
+            response.setStatus(AbstractClient.RESPONSE_OK);
+            response.getHeaders().putSingle(HttpHeaders.CONTENT_TYPE,
+                    stored.contentType);
+            if (stored.contentEncoding != null) {
+                response.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING,
+                        stored.contentEncoding);
+            }
+            response.setEntityStream(new ByteArrayInputStream(stored.entity));
+            request.setProperty(READ, stored);
+            return;
+        }
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        String lastModified =
+                response.getHeaderString(HttpHeaders.LAST_MODIFIED);
+        if ((response.getStatus() != AbstractClient.RESPONSE_OK) ||
+                ((etag == null) && (lastModified == null)) ||
+                !response.hasEntity()) {
+            synchronized (entries) {
+                entries.remove(key);
+            }
+            return;
+        }
+        byte[] entity;
+        try (InputStream stream = response.getEntityStream()) {
+            entity = stream.readAllBytes();
+        }
+        response.setEntityStream(new ByteArrayInputStream(entity));
+        Entry entry = new Entry(etag, lastModified,
+                response.getHeaderString(HttpHeaders.CONTENT_TYPE),
+                response.getHeaderString(HttpHeaders.CONTENT_ENCODING),
+                entity);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    // Return the number of objects copied, to keep or to serve
+    public long getCopies() {
+        return copies.sum();
+    }
+
+    // Return the number of 304 responses served from stored responses
+    public long getRevalidated() {
+        return revalidated.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private Object copy(Object value, Type type) {
+        copies.increment();
+        return mapper.convertValue(value, mapper.constructType(type));
+    }
+
+    // Private Classes -------------------------------------------------------
+
+    // A stored response, plus a copy of the object last read from it for
+    // a 304 response
+    private static class Entry {
+
+        private final String contentEncoding;
+        private final String contentType;
+        private final byte[] entity;
+        private final String etag;
+        private final String lastModified;
+        private Type type = null;
+        private Object value = null;
+
+        private Entry(String etag, String lastModified, String contentType,
+                      String contentEncoding, byte[] entity) {
+            this.contentEncoding = contentEncoding;
+            this.contentType = contentType;
+            this.entity = entity;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        private synchronized void remember(Type type, Object value) {
+            this.value = value;
+            this.type = type;
+        }
+
+        private synchronized Object value(Type type) {
+            return type.equals(this.type) ? value : null;
+        }
+
+    }
+
+}
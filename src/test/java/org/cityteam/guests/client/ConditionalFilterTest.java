@@ -0,0 +1,305 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Facility;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ConditionalFilterTest extends AbstractClientTest {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final GenericType<List<Facility>> FACILITIES =
+            new GenericType<List<Facility>>() {};
+
+    private static final String URI =
+            "http://localhost:8080/guests/api/facilities";
+
+    // Instance Variables ----------------------------------------------------
+
+    private final FacilityClient facilityClient = new FacilityClient();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        reseed();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // Stand-in connector tests (no server needed)
+
+    // Each 200 is parsed once, for its caller, and never copied
+    @ReadOnly
+    @Test
+    public void freshNotCopied() {
+
+        Versioned versioned = new Versioned();
+        StandInConnector connector = new StandInConnector(versioned);
+        ConditionalFilter filter = new ConditionalFilter(10);
+        Parses parses = new Parses();
+        Client client = connector.client(filter, parses);
+        try {
+            for (int i = 2; i <= 5; i++) {
+                assertThat(get(client).get(0).getName(), is("Chester"));
+                versioned.change("\"" + i + "\"", Versioned.BODY);
+            }
+            assertThat(versioned.notModified.get(), is(0));
+            assertThat(filter.size(), is(1));
+            assertThat(parses.count.get(), is(4));
+            assertThat(filter.getCopies(), is(0L));
+        } finally {
+            client.close();
+        }
+
+    }
+
+    @ReadOnly
+    @Test
+    public void modifiedReplacesStored() {
+
+        Versioned versioned = new Versioned();
+        StandInConnector connector = new StandInConnector(versioned);
+        ConditionalFilter filter = new ConditionalFilter(10);
+        Client client = connector.client(filter);
+        try {
+            assertThat(get(client).get(0).getName(), is("Chester"));
+            versioned.change("\"2\"", "[{\"id\":1,\"name\":\"Oakland\"}]");
+            assertThat(get(client).get(0).getName(), is("Oakland"));
+            assertThat(get(client).get(0).getName(), is("Oakland"));
+            assertThat(versioned.notModified.get(), is(1));
+            assertThat(filter.getRevalidated(), is(1L));
+        } finally {
+            client.close();
+        }
+
+    }
+
+    @ReadOnly
+    @Test
+    public void notModifiedNotParsed() {
+
+        Versioned versioned = new Versioned();
+        StandInConnector connector = new StandInConnector(versioned);
+        ConditionalFilter filter = new ConditionalFilter(10);
+        Parses parses = new Parses();
+        Client client = connector.client(filter, parses);
+        try {
+            // The object read for the first 304 serves every later one
+            List<Facility> first = get(client);
+            assertThat(parses.count.get(), is(1));
+            assertThat(get(client), is(equalTo(first)));
+            assertThat(parses.count.get(), is(2));
+            assertThat(filter.getCopies(), is(1L));
+            assertThat(get(client), is(equalTo(first)));
+            assertThat(get(client), is(equalTo(first)));
+            assertThat(versioned.notModified.get(), is(3));
+            assertThat(parses.count.get(), is(2));
+            assertThat(filter.getCopies(), is(3L));
+        } finally {
+            client.close();
+        }
+
+    }
+
+    @ReadOnly
+    @Test
+    public void notModifiedServesStored() {
+
+        Versioned versioned = new Versioned();
+        StandInConnector connector = new StandInConnector(versioned);
+        ConditionalFilter filter = new ConditionalFilter(10);
+        Client client = connector.client(filter);
+        try {
+            List<Facility> first = get(client);
+            assertThat(connector.getHeader(HttpHeaders.IF_NONE_MATCH), is(nullValue()));
+            assertThat(filter.size(), is(1));
+
+            List<Facility> second = get(client);
+            assertThat(connector.getHeader(HttpHeaders.IF_NONE_MATCH), is("\"1\""));
+            assertThat(versioned.notModified.get(), is(1));
+            assertThat(second, is(equalTo(first)));
+
+            // Stored objects are handed out as copies
+            second.get(0).setName("Changed");
+            List<Facility> third = get(client);
+            assertThat(third, is(not(sameInstance(second))));
+            assertThat(third.get(0).getName(), is("Chester"));
+
+            // The same response read as another type is parsed again
+            String text = client.target(URI)
+                    .request(MediaType.APPLICATION_JSON)
+                    .get(String.class);
+            assertThat(text, is(equalTo(Versioned.BODY)));
+            assertThat(versioned.notModified.get(), is(3));
+            assertThat(filter.getRevalidated(), is(3L));
+        } finally {
+            client.close();
+        }
+
+    }
+
+    @ReadOnly
+    @Test
+    public void notStored() {
+
+        Versioned versioned = new Versioned();
+        StandInConnector connector = new StandInConnector(versioned);
+        ConditionalFilter filter = new ConditionalFilter(10);
+        Client client = connector.client(filter);
+        try {
+            // Bypassed requests
+            client.target(URI)
+                    .request(MediaType.APPLICATION_JSON)
+                    .property(ConditionalFilter.BYPASS, true)
+                    .get(FACILITIES);
+            assertThat(filter.size(), is(0));
+
+            // Responses without an ETag or Last-Modified header
+            versioned.change(null, Versioned.BODY);
+            get(client);
+            get(client);
+            assertThat(connector.getHeader(HttpHeaders.IF_NONE_MATCH), is(nullValue()));
+            assertThat(filter.size(), is(0));
+            assertThat(filter.getRevalidated(), is(0L));
+        } finally {
+            client.close();
+        }
+
+    }
+
+    // Shared client tests
+
+    @ReadOnly
+    @Test
+    public void sharedClientRevalidates() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        String tag = facilityClient.getBaseTarget()
+                .path("/facilities")
+                .request(MediaType.APPLICATION_JSON)
+                .get()
+                .getHeaderString(HttpHeaders.ETAG);
+        ClientMetrics.Endpoint endpoint = ClientMetrics.global().endpoint
+                (ClientMetrics.endpoint("GET", java.net.URI.create(URI)));
+        long before = endpoint.getStatuses().getOrDefault(304, 0L);
+
+        List<Facility> first = facilityClient.findAll();
+        assertThat(first.size(), is(greaterThan(0)));
+        first.get(0).setName("Changed");
+        List<Facility> second = facilityClient.findAll();
+        assertThat(second.get(0).getName(), is(not("Changed")));
+        assertThat(facilityClient.findAll(), is(equalTo(second)));
+
+        // Only servers that send validators can answer with a 304
+        if ((tag != null) && SharedClientBuilder.CONDITIONAL &&
+                SharedClientBuilder.SHARED && ClientMetrics.ENABLED) {
+            assertThat(endpoint.getStatuses().getOrDefault(304, 0L),
+                    is(greaterThan(before)));
+        }
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static List<Facility> get(Client client) {
+        return client.target(URI)
+                .request(MediaType.APPLICATION_JSON)
+                .get(FACILITIES);
+    }
+
+    // Private Classes -------------------------------------------------------
+
+    // Counts response bodies actually parsed, behind ConditionalFilter
+    @Priority(Priorities.USER)
+    private static class Parses implements ReaderInterceptor {
+
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Object aroundReadFrom(ReaderInterceptorContext context)
+                throws IOException {
+            count.incrementAndGet();
+            return context.proceed();
+        }
+
+    }
+
+    // Answers GETs with the current body and ETag, or with a 304 when the
+    // request's If-None-Match header matches that ETag
+    private static class Versioned
+            implements Function<ClientRequest, ClientResponse> {
+
+        static final String BODY = "[{\"id\":1,\"name\":\"Chester\"}]";
+
+        volatile String body = BODY;
+        volatile String etag = "\"1\"";
+        final AtomicInteger notModified = new AtomicInteger();
+
+        void change(String etag, String body) {
+            this.body = body;
+            this.etag = etag;
+        }
+
+        @Override
+        public ClientResponse apply(ClientRequest request) {
+            String match = request.getHeaderString(HttpHeaders.IF_NONE_MATCH);
+            if ((match != null) && match.equals(etag)) {
+                notModified.incrementAndGet();
+                ClientResponse response = StandInConnector.empty
+                        (request, Response.Status.NOT_MODIFIED);
+                response.getHeaders().putSingle(HttpHeaders.ETAG, etag);
+                return response;
+            }
+            ClientResponse response = StandInConnector.ok(request, body);
+            if (etag != null) {
+                response.getHeaders().putSingle(HttpHeaders.ETAG, etag);
+            }
+            return response;
+        }
+
+    }
+
+}
@@ -0,0 +1,576 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.action.Assign;
+import org.cityteam.guests.action.ImportRequest;
+import org.cityteam.guests.action.ImportResults;
+import org.cityteam.guests.model.Ban;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Model;
+import org.cityteam.guests.model.Registration;
+import org.cityteam.guests.model.Template;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.craigmcc.library.shared.exception.NotUnique;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * <p>JAX-RS resources of {@link EmbeddedServer}, one per endpoint group of
+ * the real guests service, each delegating to an {@link EmbeddedStore}.
+ * Exceptions thrown here are mapped to the same response statuses that
+ * the clients translate back into them.</p>
+ */
+public final class EmbeddedResources {
+
+    // Constructors ----------------------------------------------------------
+
+    private EmbeddedResources() {
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static Response created(Object entity) {
+        return Response.status(Response.Status.CREATED).entity(entity).build();
+    }
+
+    private static LocalDate date(String registrationDate) throws BadRequest {
+        try {
+            return LocalDate.parse(registrationDate);
+        } catch (DateTimeParseException e) {
+            throw new BadRequest("registrationDate: Invalid date '" +
+                    registrationDate + "'");
+        }
+    }
+
+    // Cursor order, comparing each "|" separated part as a number when
+    // both are numbers, and otherwise as a string (as dates sort)
+    private static int compareCursors(String left, String right) {
+        String[] lefts = left.split("\\|", -1);
+        String[] rights = right.split("\\|", -1);
+        for (int i = 0; (i < lefts.length) && (i < rights.length); i++) {
+            int result;
+            try {
+                result = Long.compare(Long.parseLong(lefts[i]),
+                        Long.parseLong(rights[i]));
+            } catch (NumberFormatException e) {
+                result = lefts[i].compareTo(rights[i]);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(lefts.length, rights.length);
+    }
+
+    // One page of rows (already in cursor order), those after the cursor
+    // and then skipping offset of them, or all of them if not paged
+    private static <M> List<M> page(List<M> rows,
+                                    Integer limit,
+                                    Integer offset,
+                                    String after,
+                                    Function<M, String> key)
+            throws BadRequest {
+        if (((limit != null) && (limit < 0)) ||
+                ((offset != null) && (offset < 0))) {
+            throw new BadRequest("limit: Invalid limit " + limit +
+                    " or offset " + offset);
+        }
+        int from = 0;
+        if (after != null) {
+            while ((from < rows.size()) &&
+                    (compareCursors(key.apply(rows.get(from)), after) <= 0)) {
+                from++;
+            }
+        }
+        from = Math.min(rows.size(), from + ((offset != null) ? offset : 0));
+        int to = (limit != null) ?
+                Math.min(rows.size(), from + limit) : rows.size();
+        return ((from == 0) && (to == rows.size())) ?
+                rows : new ArrayList<>(rows.subList(from, to));
+    }
+
+    // Only the rows updated after the specified time, if any
+    private static <M extends Model<M>> List<M> updatedSince
+            (List<M> rows, String updatedSince) throws BadRequest {
+        if (updatedSince == null) {
+            return rows;
+        }
+        LocalDateTime since;
+        try {
+            since = LocalDateTime.parse(updatedSince);
+        } catch (DateTimeParseException e) {
+            throw new BadRequest("updatedSince: Invalid timestamp '" +
+                    updatedSince + "'");
+        }
+        return rows.stream()
+                .filter(row -> (row.getUpdated() != null) &&
+                        row.getUpdated().isAfter(since))
+                .collect(Collectors.toList());
+    }
+
+    // Public Classes --------------------------------------------------------
+
+    @Path("/bans")
+    @Consumes({MediaType.APPLICATION_JSON, SmileFilter.APPLICATION_SMILE})
+    @Produces({MediaType.APPLICATION_JSON, SmileFilter.APPLICATION_SMILE})
+    public static class BanResource {
+
+        private final EmbeddedStore store;
+
+        public BanResource(EmbeddedStore store) {
+            this.store = store;
+        }
+
+        @DELETE
+        @Path("/{banId : \\d+}")
+        public Ban delete(@PathParam("banId") Long banId) throws NotFound {
+            return store.deleteBan(banId);
+        }
+
+        @GET
+        @Path("/{banId : \\d+}")
+        public Ban find(@PathParam("banId") Long banId) throws NotFound {
+            return store.findBan(banId);
+        }
+
+        @GET
+        public List<Ban> findAll
+                (@QueryParam("updatedSince") String updatedSince,
+                 @QueryParam("limit") Integer limit,
+                 @QueryParam("offset") Integer offset,
+                 @QueryParam("after") String after)
+                throws BadRequest {
+            return page(updatedSince(store.findAllBans(), updatedSince),
+                    limit, offset, after,
+                    ban -> ban.getGuestId() + "|" + ban.getBanFrom());
+        }
+
+        @POST
+        public Response insert(Ban ban) throws BadRequest {
+            return created(store.insertBan(ban));
+        }
+
+        @PUT
+        @Path("/{banId : \\d+}")
+        public Ban update(@PathParam("banId") Long banId, Ban ban)
+                throws BadRequest, NotFound {
+            return store.updateBan(banId, ban);
+        }
+
+    }
+
+    @Path("/devmode")
+    public static class DevModeResource {
+
+        private final EmbeddedStore store;
+
+        public DevModeResource(EmbeddedStore store) {
+            this.store = store;
+        }
+
+        @POST
+        @Path("/depopulate")
+        public void depopulate() {
+            store.depopulate();
+        }
+
+        @POST
+        @Path("/populate")
+        public void populate() {
+            store.populate();
+        }
+
+    }
+
+    @Path("/facilities")
+    @Consumes({MediaType.APPLICATION_JSON, SmileFilter.APPLICATION_SMILE})
+    @Produces({MediaType.APPLICATION_JSON, SmileFilter.APPLICATION_SMILE})
+    public static class FacilityResource {
+
+        private final EmbeddedStore store;
+
+        public FacilityResource(EmbeddedStore store) {
+            this.store = store;
+        }
+
+        @DELETE
+        @Path("/{facilityId : \\d+}")
+        public Facility delete(@PathParam("facilityId") Long facilityId)
+                throws NotFound {
+            return store.deleteFacility(facilityId);
+        }
+
+        @DELETE
+        @Path("/{facilityId : \\d+}/registrations/{registrationDate}")
+        public List<Registration> deleteRegistrationsByFacilityAndDate
+                (@PathParam("facilityId") Long facilityId,
+                 @PathParam("registrationDate") String registrationDate)
+                throws BadRequest {
+            return store.deleteRegistrationsByFacilityAndDate
+                    (facilityId, date(registrationDate));
+        }
+
+        @GET
+        @Path("/{facilityId : \\d+}")
+        public Facility find(@PathParam("facilityId") Long facilityId)
+                throws NotFound {
+            return store.findFacility(facilityId);
+        }
+
+        @GET
+        public List<Facility> findAll
+                (@QueryParam("updatedSince") String updatedSince)
+                throws BadRequest {
+            return updatedSince(store.findAllFacilities(), updatedSince);
+        }
+
+        @GET
+        @Path("/name/{name}")
+        public List<Facility> findByName(@PathParam("name") String name) {
+            return store.findFacilitiesByName(name);
+        }
+
+        @GET
+        @Path("/nameExact/{name}")
+        public Facility findByNameExact(@PathParam("name") String name)
+                throws NotFound {
+            return store.findFacilitiesByNameExact(name);
+        }
+
+        @GET
+        @Path("/{facilityId : \\d+}/guests")
+        public List<Guest> findGuestsByFacilityId
+                (@PathParam("facilityId") Long facilityId) {
+            return store.findGuestsByFacilityId(facilityId);
+        }
+
+        @GET
+        @Path("/{facilityId : \\d+}/guests/name/{name}")
+        public List<Guest> findGuestsByName
+                (@PathParam("facilityId") Long facilityId,
+                 @PathParam("name") String name,
+                 @QueryParam("limit") Integer limit,
+                 @QueryParam("offset") Integer offset,
+                 @QueryParam("after") String after) throws BadRequest {
+            return page(store.findGuestsByName(facilityId, name),
+                    limit, offset, after,
+                    guest -> guest.getLastName() + "|" + guest.getFirstName());
+        }
+
+        @GET
+        @Path("/{facilityId : \\d+}/guests/nameExact/{firstName}/{lastName}")
+        public Guest findGuestsByNameExact
+                (@PathParam("facilityId") Long facilityId,
+                 @PathParam("firstName") String firstName,
+                 @PathParam("lastName") String lastName) throws NotFound {
+            return store.findGuestsByNameExact(facilityId, firstName, lastName);
+        }
+
+        @POST
+        @Path("/{facilityId : \\d+}/guests/namesExact")
+        public List<Guest> findGuestsByNamesExact
+                (@PathParam("facilityId") Long facilityId,
+                 List<GuestName> names) throws NotFound {
+            return store.findGuestsByNamesExact(facilityId, names);
+        }
+
+        @GET
+        @Path("/{facilityId : \\d+}/registrations/{registrationDate}")
+        public List<Registration> findRegistrationsByFacilityAndDate
+                (@PathParam("facilityId") Long facilityId,
+                 @PathParam("registrationDate") String registrationDate)
+                throws BadRequest {
+            return store.findRegistrationsByFacilityAndDate
+                    (facilityId, date(registrationDate));
+        }
+
+        @GET
+        @Path("/{facilityId : \\d+}/templates")
+        public List<Template> findTemplatesByFacilityId
+                (@PathParam("facilityId") Long facilityId) {
+            return store.findTemplatesByFacilityId(facilityId);
+        }
+
+        @GET
+        @Path("/{facilityId : \\d+}/templates/name/{name}")
+        public List<Template> findTemplatesByName
+                (@PathParam("facilityId") Long facilityId,
+                 @PathParam("name") String name) {
+            return store.findTemplatesByName(facilityId, name);
+        }
+
+        @GET
+        @Path("/{facilityId : \\d+}/templates/nameExact/{name}")
+        public Template findTemplatesByNameExact
+                (@PathParam("facilityId") Long facilityId,
+                 @PathParam("name") String name) throws NotFound {
+            return store.findTemplatesByNameExact(facilityId, name);
+        }
+
+        @POST
+        @Path("/{facilityId : \\d+}/registrations/{registrationDate}")
+        public ImportResults importRegistrationsByFacilityAndDate
+                (@PathParam("facilityId") Long facilityId,
+                 @PathParam("registrationDate") String registrationDate,
+                 List<ImportRequest> importRequests)
+                throws BadRequest, NotFound, NotUnique {
+            return store.importRegistrationsByFacilityAndDate
+                    (facilityId, date(registrationDate), importRequests);
+        }
+
+        @POST
+        public Response insert(Facility facility)
+                throws BadRequest, NotUnique {
+            return created(store.insertFacility(facility));
+        }
+
+        @PUT
+        @Path("/{facilityId : \\d+}")
+        public Facility update(@PathParam("facilityId") Long facilityId,
+                               Facility facility)
+                throws BadRequest, NotFound, NotUnique {
+            return store.updateFacility(facilityId, facility);
+        }
+
+    }
+
+    @Path("/guests")
+    @Consumes({MediaType.APPLICATION_JSON, SmileFilter.APPLICATION_SMILE})
+    @Produces({MediaType.APPLICATION_JSON, SmileFilter.APPLICATION_SMILE})
+    public static class GuestResource {
+
+        private final EmbeddedStore store;
+
+        public GuestResource(EmbeddedStore store) {
+            this.store = store;
+        }
+
+        @DELETE
+        @Path("/{guestId : \\d+}")
+        public Guest delete(@PathParam("guestId") Long guestId)
+                throws NotFound {
+            return store.deleteGuest(guestId);
+        }
+
+        @GET
+        @Path("/{guestId : \\d+}")
+        public Guest find(@PathParam("guestId") Long guestId)
+                throws NotFound {
+            return store.findGuest(guestId);
+        }
+
+        @GET
+        public List<Guest> findAll
+                (@QueryParam("updatedSince") String updatedSince,
+                 @QueryParam("limit") Integer limit,
+                 @QueryParam("offset") Integer offset,
+                 @QueryParam("after") String after)
+                throws BadRequest {
+            return page(updatedSince(store.findAllGuests(), updatedSince),
+                    limit, offset, after,
+                    guest -> guest.getFacilityId() + "|" +
+                            guest.getLastName() + "|" + guest.getFirstName());
+        }
+
+        @GET
+        @Path("/{guestId : \\d+}/bans")
+        public List<Ban> findBansByGuestId(@PathParam("guestId") Long guestId) {
+            return store.findBansByGuestId(guestId);
+        }
+
+        @GET
+        @Path("/{guestId : \\d+}/bans/{registrationDate}")
+        public Ban findBansByGuestIdAndRegistrationDate
+                (@PathParam("guestId") Long guestId,
+                 @PathParam("registrationDate") String registrationDate)
+                throws BadRequest, NotFound {
+            return store.findBansByGuestIdAndRegistrationDate
+                    (guestId, date(registrationDate));
+        }
+
+        @POST
+        public Response insert(Guest guest) throws BadRequest, NotUnique {
+            return created(store.insertGuest(guest));
+        }
+
+        @PUT
+        @Path("/{guestId : \\d+}")
+        public Guest update(@PathParam("guestId") Long guestId, Guest guest)
+                throws BadRequest, NotFound, NotUnique {
+            return store.updateGuest(guestId, guest);
+        }
+
+    }
+
+    @Path("/registrations")
+    @Consumes({MediaType.APPLICATION_JSON, SmileFilter.APPLICATION_SMILE})
+    @Produces({MediaType.APPLICATION_JSON, SmileFilter.APPLICATION_SMILE})
+    public static class RegistrationResource {
+
+        private final EmbeddedStore store;
+
+        public RegistrationResource(EmbeddedStore store) {
+            this.store = store;
+        }
+
+        @POST
+        @Path("/{registrationId : \\d+}/assign")
+        public Registration assign
+                (@PathParam("registrationId") Long registrationId,
+                 Assign assign) throws BadRequest, NotFound, NotUnique {
+            return store.assign(registrationId, assign);
+        }
+
+        @POST
+        @Consumes(MediaType.WILDCARD)
+        @Path("/{registrationId : \\d+}/deassign")
+        public Registration deassign
+                (@PathParam("registrationId") Long registrationId)
+                throws NotFound {
+            return store.deassign(registrationId);
+        }
+
+        @DELETE
+        @Path("/{registrationId : \\d+}")
+        public Registration delete
+                (@PathParam("registrationId") Long registrationId)
+                throws NotFound {
+            return store.deleteRegistration(registrationId);
+        }
+
+        @GET
+        @Path("/{registrationId : \\d+}")
+        public Registration find
+                (@PathParam("registrationId") Long registrationId)
+                throws NotFound {
+            return store.findRegistration(registrationId);
+        }
+
+        @GET
+        public List<Registration> findAll
+                (@QueryParam("updatedSince") String updatedSince,
+                 @QueryParam("limit") Integer limit,
+                 @QueryParam("offset") Integer offset,
+                 @QueryParam("after") String after)
+                throws BadRequest {
+            return page(updatedSince(store.findAllRegistrations(), updatedSince),
+                    limit, offset, after,
+                    registration -> registration.getFacilityId() + "|" +
+                            registration.getRegistrationDate() + "|" +
+                            registration.getMatNumber());
+        }
+
+        @POST
+        public Response insert(Registration registration)
+                throws BadRequest, NotUnique {
+            return created(store.insertRegistration(registration));
+        }
+
+        @PUT
+        @Path("/{registrationId : \\d+}")
+        public Registration update
+                (@PathParam("registrationId") Long registrationId,
+                 Registration registration) throws InternalServerError {
+            return store.updateRegistration(registrationId, registration);
+        }
+
+    }
+
+    @Path("/templates")
+    @Consumes({MediaType.APPLICATION_JSON, SmileFilter.APPLICATION_SMILE})
+    @Produces({MediaType.APPLICATION_JSON, SmileFilter.APPLICATION_SMILE})
+    public static class TemplateResource {
+
+        private final EmbeddedStore store;
+
+        public TemplateResource(EmbeddedStore store) {
+            this.store = store;
+        }
+
+        @DELETE
+        @Path("/{templateId : \\d+}")
+        public Template delete(@PathParam("templateId") Long templateId)
+                throws NotFound {
+            return store.deleteTemplate(templateId);
+        }
+
+        @GET
+        @Path("/{templateId : \\d+}")
+        public Template find(@PathParam("templateId") Long templateId)
+                throws NotFound {
+            return store.findTemplate(templateId);
+        }
+
+        @GET
+        public List<Template> findAll
+                (@QueryParam("updatedSince") String updatedSince,
+                 @QueryParam("limit") Integer limit,
+                 @QueryParam("offset") Integer offset,
+                 @QueryParam("after") String after)
+                throws BadRequest {
+            return page(updatedSince(store.findAllTemplates(), updatedSince),
+                    limit, offset, after,
+                    Template::getName);
+        }
+
+        @POST
+        @Consumes(MediaType.WILDCARD)
+        @Path("/{templateId : \\d+}/generate/{registrationDate}")
+        public List<Registration> generate
+                (@PathParam("templateId") Long templateId,
+                 @PathParam("registrationDate") String registrationDate)
+                throws BadRequest, NotFound, NotUnique {
+            return store.generate(templateId, date(registrationDate));
+        }
+
+        @POST
+        public Response insert(Template template)
+                throws BadRequest, NotUnique {
+            return created(store.insertTemplate(template));
+        }
+
+        @PUT
+        @Path("/{templateId : \\d+}")
+        public Template update(@PathParam("templateId") Long templateId,
+                               Template template)
+                throws BadRequest, NotFound, NotUnique {
+            return store.updateTemplate(templateId, template);
+        }
+
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.craigmcc.library.shared.exception.Forbidden;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.craigmcc.library.shared.exception.NotUnique;
+import org.glassfish.jersey.jackson.JacksonFeature;
+import org.glassfish.jersey.jdkhttp.JdkHttpHandlerContainer;
+import org.glassfish.jersey.message.DeflateEncoder;
+import org.glassfish.jersey.message.GZipEncoder;
+import org.glassfish.jersey.server.ContainerFactory;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.ServerProperties;
+import org.glassfish.jersey.server.filter.EncodingFilter;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>In-process stand-in for the guests service, so that the tests can run
+ * without a server or a database.  It serves the <code>/devmode</code>,
+ * facilities, guests, registrations, templates, and bans endpoints (see
+ * {@link EmbeddedResources}) from an {@link EmbeddedStore} holding the
+ * same seed data as the real service.  Successful GET responses carry
+ * an ETag that changes whenever any data changes, and GETs whose
+ * <code>If-None-Match</code> still matches it get a 304 (Not Modified)
+ * response.  Like a real deployment behind a compressing proxy, it
+ * accepts <code>gzip</code> and <code>deflate</code> request bodies and
+ * compresses responses for clients that accept them, and it reads and
+ * writes Smile as well as JSON.  These system properties control it:</p>
+ * <ul>
+ *     <li><code>guests.embedded</code> - Set to <code>true</code> to start
+ *         the stand-in before the first test (default false)</li>
+ *     <li><code>guests.embedded.uri</code> - Base URI to listen on, which
+ *         must match the base URI the clients are configured for
+ *         (default <code>http://localhost:8080/guests/api/</code>)</li>
+ * </ul>
+ */
+public class EmbeddedServer implements AutoCloseable {
+
+    // Static Variables ------------------------------------------------------
+
+    public static final boolean ENABLED = Boolean.getBoolean("guests.embedded");
+    public static final URI BASE_URI = URI.create(System.getProperty
+            ("guests.embedded.uri", "http://localhost:8080/guests/api/"));
+
+    private static final Map<Class<?>, Integer> STATUSES = Map.of(
+            BadRequest.class, AbstractClient.RESPONSE_BAD_REQUEST,
+            Forbidden.class, AbstractClient.RESPONSE_FORBIDDEN,
+            NotFound.class, AbstractClient.RESPONSE_NOT_FOUND,
+            NotUnique.class, AbstractClient.RESPONSE_CONFLICT,
+            InternalServerError.class, AbstractClient.RESPONSE_INTERNAL_SERVER_ERROR
+    );
+
+    private static EmbeddedServer global = null;
+
+    static {
+        // Without TCP_NODELAY, every response waits out a delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    // Instance Variables ----------------------------------------------------
+
+    private final ExecutorService executor;
+    private final HttpServer server;
+    private final EmbeddedStore store = new EmbeddedStore();
+
+    // Constructors ----------------------------------------------------------
+
+    // Start listening on the specified base URI, with no data until
+    // the first /devmode/populate request
+    public EmbeddedServer(URI uri) {
+        ResourceConfig config = new ResourceConfig()
+                .property(ServerProperties.WADL_FEATURE_DISABLE, true)
+                .register(JacksonFeature.class)
+                .register(new ETagFilter(store))
+                .register(new ClientMappers.Resolver())
+                .register(SmileFilter.provider())
+                .register(new StatusMapper())
+                .register(new EmbeddedResources.BanResource(store))
+                .register(new EmbeddedResources.DevModeResource(store))
+                .register(new EmbeddedResources.FacilityResource(store))
+                .register(new EmbeddedResources.GuestResource(store))
+                .register(new EmbeddedResources.RegistrationResource(store))
+                .register(new EmbeddedResources.TemplateResource(store));
+        EncodingFilter.enableFor(config,
+                GZipEncoder.class, DeflateEncoder.class);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "guests-embedded");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            server = HttpServer.create(
+                    new InetSocketAddress(uri.getHost(), uri.getPort()), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot listen on " + uri, e);
+        }
+        server.createContext(uri.getPath(), ContainerFactory.createContainer
+                (JdkHttpHandlerContainer.class, config))
+                .getFilters().add(new KeepAliveFilter());
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    // Return the stand-in shared by all tests, starting it if necessary
+    public static synchronized EmbeddedServer global() {
+        if (global == null) {
+            global = new EmbeddedServer(BASE_URI);
+            Runtime.getRuntime().addShutdownHook(
+                    new Thread(global::close, "guests-embedded-stop"));
+        }
+        return global;
+    }
+
+    public EmbeddedStore getStore() {
+        return store;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // Private Classes -------------------------------------------------------
+
+    // Tag GET responses with the store version read before handling them,
+    // so data changed meanwhile only makes the tag stale, never too new
+    private static class ETagFilter
+            implements ContainerRequestFilter, ContainerResponseFilter {
+
+        private static final String TAG = ETagFilter.class.getName();
+
+        private final EmbeddedStore store;
+
+        private ETagFilter(EmbeddedStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public void filter(ContainerRequestContext request) {
+            if (!HttpMethod.GET.equals(request.getMethod())) {
+                return;
+            }
+            EntityTag tag = new EntityTag(Long.toString(store.getVersion()));
+            request.setProperty(TAG, tag);
+            Response.ResponseBuilder notModified =
+                    request.getRequest().evaluatePreconditions(tag);
+            if (notModified != null) {
+                request.abortWith(notModified.tag(tag).build());
+            }
+        }
+
+        @Override
+        public void filter(ContainerRequestContext request,
+                           ContainerResponseContext response) {
+            Object tag = request.getProperty(TAG);
+            if ((tag != null) &&
+                    (response.getStatus() == AbstractClient.RESPONSE_OK)) {
+                response.getHeaders().putSingle(HttpHeaders.ETAG, tag);
+            }
+        }
+
+    }
+
+    // The JDK server may reset the connection after a response with no
+    // body (such as 204 from /devmode, or 304) when the request body, even
+    // an empty one, is still open, breaking the clients' pooled keep-alive
+    // connections
+    private static class KeepAliveFilter extends Filter {
+
+        @Override
+        public String description() {
+            return "Close empty request bodies before handling";
+        }
+
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain)
+                throws IOException {
+            String length =
+                    exchange.getRequestHeaders().getFirst("Content-Length");
+            if ("0".equals(length) || ((length == null) &&
+                    !exchange.getRequestHeaders()
+                            .containsKey("Transfer-Encoding"))) {
+                exchange.getRequestBody().close();
+            }
+            chain.doFilter(exchange);
+        }
+
+    }
+
+    // Exceptions to the statuses that the clients map back to them
+    private static class StatusMapper implements ExceptionMapper<Exception> {
+
+        @Override
+        public Response toResponse(Exception exception) {
+            if (exception instanceof WebApplicationException) {
+                return ((WebApplicationException) exception).getResponse();
+            }
+            return Response
+                    .status(STATUSES.getOrDefault(exception.getClass(),
+                            AbstractClient.RESPONSE_INTERNAL_SERVER_ERROR))
+                    .type(MediaType.TEXT_PLAIN)
+                    .entity(String.valueOf(exception.getMessage()))
+                    .build();
+        }
+
+    }
+
+}
@@ -0,0 +1,864 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.cityteam.guests.action.Assign;
+import org.cityteam.guests.action.ImportRequest;
+import org.cityteam.guests.action.ImportResults;
+import org.cityteam.guests.model.Ban;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Model;
+import org.cityteam.guests.model.Registration;
+import org.cityteam.guests.model.Template;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.craigmcc.library.shared.exception.NotUnique;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.cityteam.guests.model.types.FeatureType.H;
+import static org.cityteam.guests.model.types.FeatureType.S;
+import static org.cityteam.guests.model.types.PaymentType.$$;
+import static org.cityteam.guests.model.types.PaymentType.AG;
+
+/**
+ * <p>In-memory data and business rules behind {@link EmbeddedServer},
+ * standing in for the guests service and its database.  Lookups, sort
+ * orders, validation, and cascading deletes follow the real service
+ * closely enough for the client tests, and {@link #populate()} loads the
+ * same seed data as its <code>/devmode/populate</code> endpoint.</p>
+ *
+ * <p>Stored models are never modified once stored.  Every change stores a
+ * new copy, so models returned from here can be serialized safely while
+ * other requests are changing the data.</p>
+ */
+public class EmbeddedStore {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final ObjectMapper mapper = ClientMappers.json();
+
+    private static final LocalDate SEED_DATE = LocalDate.parse("2020-07-04");
+
+    private static final String[] SEED_FACILITIES = {
+            "Chester", "Oakland", "San Francisco", "San Jose"
+    };
+
+    private static final String[][] SEED_GUESTS = {
+            { "Fred", "Flintstone" },
+            { "Barney", "Rubble" },
+            { "Bam Bam", "Rubble" }
+    };
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Table<Ban> bans = new Table<>(Ban.class);
+    private final Table<Facility> facilities = new Table<>(Facility.class);
+    private final Table<Guest> guests = new Table<>(Guest.class);
+    private final Table<Registration> registrations =
+            new Table<>(Registration.class);
+    private final Table<Template> templates = new Table<>(Template.class);
+
+    // DevMode Methods -------------------------------------------------------
+
+    public synchronized void depopulate() {
+        bans.clear();
+        facilities.clear();
+        guests.clear();
+        registrations.clear();
+        templates.clear();
+    }
+
+    // Return a number that changes whenever any stored data changes
+    public synchronized long getVersion() {
+        return bans.changes + facilities.changes + guests.changes +
+                registrations.changes + templates.changes;
+    }
+
+    public synchronized void populate() {
+        depopulate();
+        try {
+            for (String name : SEED_FACILITIES) {
+                populate(name);
+            }
+        } catch (BadRequest | NotFound | NotUnique e) {
+            throw new IllegalStateException("Invalid seed data", e);
+        }
+    }
+
+    // Ban Methods -----------------------------------------------------------
+
+    public synchronized Ban deleteBan(Long banId) throws NotFound {
+        return bans.delete(banId);
+    }
+
+    public synchronized List<Ban> findAllBans() {
+        return bans.select(ban -> true, banOrder());
+    }
+
+    public synchronized Ban findBan(Long banId) throws NotFound {
+        return bans.find(banId);
+    }
+
+    public synchronized Ban insertBan(Ban ban) throws BadRequest {
+        validateBan(ban);
+        return bans.insert(ban);
+    }
+
+    public synchronized Ban updateBan(Long banId, Ban ban)
+            throws BadRequest, NotFound {
+        bans.find(banId);
+        validateBan(ban);
+        return bans.update(banId, ban);
+    }
+
+    // Facility Methods ------------------------------------------------------
+
+    public synchronized Facility deleteFacility(Long facilityId)
+            throws NotFound {
+        Facility facility = facilities.delete(facilityId);
+        for (Guest guest : guests.select(
+                g -> facilityId.equals(g.getFacilityId()), null)) {
+            removeGuest(guest.getId());
+        }
+        registrations.remove(r -> facilityId.equals(r.getFacilityId()));
+        templates.remove(t -> facilityId.equals(t.getFacilityId()));
+        return facility;
+    }
+
+    public synchronized List<Registration> deleteRegistrationsByFacilityAndDate
+            (Long facilityId, LocalDate registrationDate) throws BadRequest {
+        List<Registration> results =
+                findRegistrationsByFacilityAndDate(facilityId, registrationDate);
+        for (Registration registration : results) {
+            if (registration.getGuestId() != null) {
+                throw new BadRequest("registrationId: " +
+                        registration.getId() + " is currently assigned");
+            }
+        }
+        Set<Long> ids = results.stream()
+                .map(Registration::getId)
+                .collect(Collectors.toSet());
+        registrations.remove(registration -> ids.contains(registration.getId()));
+        return results;
+    }
+
+    public synchronized List<Facility> findAllFacilities() {
+        return facilities.select(facility -> true, facilityOrder());
+    }
+
+    public synchronized Facility findFacility(Long facilityId)
+            throws NotFound {
+        return facilities.find(facilityId);
+    }
+
+    public synchronized List<Facility> findFacilitiesByName(String name) {
+        return facilities.select(
+                facility -> matches(facility.getName(), name),
+                facilityOrder());
+    }
+
+    public synchronized Facility findFacilitiesByNameExact(String name)
+            throws NotFound {
+        return facilities.select(
+                facility -> facility.getName().equals(name), null)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFound("name: '" + name + "'"));
+    }
+
+    public synchronized List<Guest> findGuestsByFacilityId(Long facilityId) {
+        return guests.select(
+                guest -> facilityId.equals(guest.getFacilityId()),
+                guestNameOrder());
+    }
+
+    public synchronized List<Guest> findGuestsByName
+            (Long facilityId, String name) {
+        return guests.select(
+                guest -> facilityId.equals(guest.getFacilityId()) &&
+                        (matches(guest.getFirstName(), name) ||
+                         matches(guest.getLastName(), name)),
+                guestNameOrder());
+    }
+
+    public synchronized Guest findGuestsByNameExact
+            (Long facilityId, String firstName, String lastName)
+            throws NotFound {
+        Guest guest = findGuest(facilityId, firstName, lastName);
+        if (guest == null) {
+            throw new NotFound("name: '" + firstName + " " + lastName + "'");
+        }
+        return guest;
+    }
+
+    // Matching guests only, in no particular order (the caller aligns them)
+    public synchronized List<Guest> findGuestsByNamesExact
+            (Long facilityId, List<GuestName> names) throws NotFound {
+        facilities.find(facilityId);
+        List<Guest> results = new ArrayList<>();
+        for (GuestName name : names) {
+            Guest guest = findGuest
+                    (facilityId, name.getFirstName(), name.getLastName());
+            if (guest != null) {
+                results.add(guest);
+            }
+        }
+        return results;
+    }
+
+    public synchronized List<Registration> findRegistrationsByFacilityAndDate
+            (Long facilityId, LocalDate registrationDate) {
+        return registrations.select(
+                registration ->
+                        facilityId.equals(registration.getFacilityId()) &&
+                        registrationDate.equals(registration.getRegistrationDate()),
+                registrationOrder());
+    }
+
+    public synchronized List<Template> findTemplatesByFacilityId
+            (Long facilityId) {
+        return templates.select(
+                template -> facilityId.equals(template.getFacilityId()),
+                templateOrder());
+    }
+
+    public synchronized List<Template> findTemplatesByName
+            (Long facilityId, String name) {
+        return templates.select(
+                template -> facilityId.equals(template.getFacilityId()) &&
+                        matches(template.getName(), name),
+                templateOrder());
+    }
+
+    public synchronized Template findTemplatesByNameExact
+            (Long facilityId, String name) throws NotFound {
+        return templates.select(
+                template -> facilityId.equals(template.getFacilityId()) &&
+                        template.getName().equals(name), null)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFound("name: '" + name + "'"));
+    }
+
+    // Create any missing guests by name, then all of the registrations,
+    // or nothing at all if any of them are invalid
+    public synchronized ImportResults importRegistrationsByFacilityAndDate
+            (Long facilityId,
+             LocalDate registrationDate,
+             List<ImportRequest> importRequests)
+            throws BadRequest, NotFound, NotUnique {
+        facilities.find(facilityId);
+        List<Registration> inserts = new ArrayList<>();
+        for (ImportRequest importRequest : importRequests) {
+            Registration registration = new Registration(
+                    facilityId,
+                    importRequest.getFeatures(),
+                    importRequest.getMatNumber(),
+                    registrationDate
+            );
+            if ((importRequest.getFirstName() != null) ||
+                    (importRequest.getLastName() != null)) {
+                registration.setComments(importRequest.getComments());
+                registration.setPaymentAmount(importRequest.getPaymentAmount());
+                registration.setPaymentType(importRequest.getPaymentType());
+                registration.setShowerTime(importRequest.getShowerTime());
+                registration.setWakeupTime(importRequest.getWakeupTime());
+            }
+            inserts.add(registration);
+        }
+        validateRegistrations(inserts);
+        for (int i = 0; i < inserts.size(); i++) {
+            ImportRequest importRequest = importRequests.get(i);
+            if ((importRequest.getFirstName() == null) &&
+                    (importRequest.getLastName() == null)) {
+                continue;
+            }
+            Guest guest = findGuest(facilityId,
+                    importRequest.getFirstName(), importRequest.getLastName());
+            if (guest == null) {
+                Guest insert = new Guest(null, facilityId,
+                        importRequest.getFirstName(), importRequest.getLastName());
+                validateGuest(insert);
+                guest = guests.insert(insert);
+            }
+            inserts.get(i).setGuestId(guest.getId());
+        }
+        List<Registration> results = new ArrayList<>();
+        for (Registration registration : inserts) {
+            results.add(registrations.insert(registration));
+        }
+        results.sort(registrationOrder());
+        ImportResults importResults = new ImportResults();
+        importResults.setRegistrations(results);
+        return importResults;
+    }
+
+    public synchronized Facility insertFacility(Facility facility)
+            throws BadRequest, NotUnique {
+        validateFacility(null, facility);
+        return facilities.insert(facility);
+    }
+
+    public synchronized Facility updateFacility
+            (Long facilityId, Facility facility)
+            throws BadRequest, NotFound, NotUnique {
+        facilities.find(facilityId);
+        validateFacility(facilityId, facility);
+        return facilities.update(facilityId, facility);
+    }
+
+    // Guest Methods ---------------------------------------------------------
+
+    public synchronized Guest deleteGuest(Long guestId) throws NotFound {
+        Guest guest = guests.find(guestId);
+        removeGuest(guestId);
+        return guest;
+    }
+
+    public synchronized List<Guest> findAllGuests() {
+        return guests.select(guest -> true, guestOrder());
+    }
+
+    public synchronized List<Ban> findBansByGuestId(Long guestId) {
+        return bans.select(
+                ban -> guestId.equals(ban.getGuestId()),
+                banOrder());
+    }
+
+    public synchronized Ban findBansByGuestIdAndRegistrationDate
+            (Long guestId, LocalDate registrationDate) throws NotFound {
+        Ban ban = findBan(guestId, registrationDate);
+        if (ban == null) {
+            throw new NotFound("guestId: " + guestId +
+                    " is not banned on " + registrationDate);
+        }
+        return ban;
+    }
+
+    public synchronized Guest findGuest(Long guestId) throws NotFound {
+        return guests.find(guestId);
+    }
+
+    public synchronized Guest insertGuest(Guest guest)
+            throws BadRequest, NotUnique {
+        validateGuest(guest);
+        validateGuestName(null, guest);
+        return guests.insert(guest);
+    }
+
+    public synchronized Guest updateGuest(Long guestId, Guest guest)
+            throws BadRequest, NotFound, NotUnique {
+        guests.find(guestId);
+        validateGuest(guest);
+        validateGuestName(guestId, guest);
+        return guests.update(guestId, guest);
+    }
+
+    // Registration Methods --------------------------------------------------
+
+    public synchronized Registration assign
+            (Long registrationId, Assign assign)
+            throws BadRequest, NotFound, NotUnique {
+        Registration registration = registrations.find(registrationId);
+        if (assign.getGuestId() == null) {
+            throw new BadRequest("guestId: Is required");
+        }
+        Guest guest = guests.rows.get(assign.getGuestId());
+        if ((guest == null) ||
+                !guest.getFacilityId().equals(registration.getFacilityId())) {
+            throw new BadRequest("guestId: " + assign.getGuestId() +
+                    " is not a guest of facilityId " +
+                    registration.getFacilityId());
+        }
+        if (registration.getGuestId() != null) {
+            throw new BadRequest("registrationId: " + registrationId +
+                    " is already assigned");
+        }
+        if (findBan(guest.getId(), registration.getRegistrationDate()) != null) {
+            throw new BadRequest("guestId: " + guest.getId() +
+                    " is banned on " + registration.getRegistrationDate());
+        }
+        for (Registration other : findRegistrationsByFacilityAndDate
+                (registration.getFacilityId(),
+                 registration.getRegistrationDate())) {
+            if (guest.getId().equals(other.getGuestId())) {
+                throw new NotUnique("guestId: " + guest.getId() +
+                        " is already assigned to mat " + other.getMatNumber());
+            }
+        }
+        Registration updated = Table.copy(registration, Registration.class);
+        updated.setComments(assign.getComments());
+        updated.setGuestId(assign.getGuestId());
+        updated.setPaymentAmount(assign.getPaymentAmount());
+        updated.setPaymentType(assign.getPaymentType());
+        updated.setShowerTime(assign.getShowerTime());
+        updated.setWakeupTime(assign.getWakeupTime());
+        return registrations.update(registrationId, updated);
+    }
+
+    public synchronized Registration deassign(Long registrationId)
+            throws NotFound {
+        return registrations.update(registrationId,
+                deassigned(registrations.find(registrationId)));
+    }
+
+    public synchronized Registration deleteRegistration(Long registrationId)
+            throws NotFound {
+        return registrations.delete(registrationId);
+    }
+
+    public synchronized List<Registration> findAllRegistrations() {
+        return registrations.select(registration -> true, registrationOrder());
+    }
+
+    public synchronized Registration findRegistration(Long registrationId)
+            throws NotFound {
+        return registrations.find(registrationId);
+    }
+
+    public synchronized Registration insertRegistration
+            (Registration registration) throws BadRequest, NotUnique {
+        validateRegistrations(List.of(registration));
+        return registrations.insert(registration);
+    }
+
+    // Like the real service, registrations change only by assign/deassign
+    public Registration updateRegistration
+            (Long registrationId, Registration registration)
+            throws InternalServerError {
+        throw new InternalServerError("Registration updates are not " +
+                "supported, use assign or deassign instead");
+    }
+
+    // Template Methods ------------------------------------------------------
+
+    public synchronized Template deleteTemplate(Long templateId)
+            throws NotFound {
+        return templates.delete(templateId);
+    }
+
+    public synchronized List<Template> findAllTemplates() {
+        return templates.select(template -> true, templateOrder());
+    }
+
+    public synchronized Template findTemplate(Long templateId)
+            throws NotFound {
+        return templates.find(templateId);
+    }
+
+    // Generate unassigned registrations for every mat, or nothing at all
+    // if any of those mats are already registered on this date
+    public synchronized List<Registration> generate
+            (Long templateId, LocalDate registrationDate)
+            throws BadRequest, NotFound, NotUnique {
+        Template template = templates.find(templateId);
+        List<Registration> inserts =
+                TemplatePreview.generate(template, registrationDate);
+        validateRegistrations(inserts);
+        List<Registration> results = new ArrayList<>();
+        for (Registration registration : inserts) {
+            results.add(registrations.insert(registration));
+        }
+        return results;
+    }
+
+    public synchronized Template insertTemplate(Template template)
+            throws BadRequest, NotUnique {
+        validateTemplate(null, template);
+        return templates.insert(template);
+    }
+
+    public synchronized Template updateTemplate
+            (Long templateId, Template template)
+            throws BadRequest, NotFound, NotUnique {
+        templates.find(templateId);
+        validateTemplate(templateId, template);
+        return templates.update(templateId, template);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static Comparator<Ban> banOrder() {
+        return Comparator.comparing(Ban::getGuestId)
+                .thenComparing(Ban::getBanFrom);
+    }
+
+    private static Registration deassigned(Registration registration) {
+        Registration updated = Table.copy(registration, Registration.class);
+        updated.setComments(null);
+        updated.setGuestId(null);
+        updated.setPaymentAmount(null);
+        updated.setPaymentType(null);
+        updated.setShowerTime(null);
+        updated.setWakeupTime(null);
+        return updated;
+    }
+
+    private static Comparator<Facility> facilityOrder() {
+        return Comparator.comparing(Facility::getName);
+    }
+
+    // Return an active ban covering this guest on this date, or null
+    private Ban findBan(Long guestId, LocalDate registrationDate) {
+        for (Ban ban : findBansByGuestId(guestId)) {
+            if (Boolean.TRUE.equals(ban.getActive()) &&
+                    !registrationDate.isBefore(ban.getBanFrom()) &&
+                    !registrationDate.isAfter(ban.getBanTo())) {
+                return ban;
+            }
+        }
+        return null;
+    }
+
+    private Guest findGuest(Long facilityId, String firstName, String lastName) {
+        for (Guest guest : guests.rows.values()) {
+            if (facilityId.equals(guest.getFacilityId()) &&
+                    Objects.equals(firstName, guest.getFirstName()) &&
+                    Objects.equals(lastName, guest.getLastName())) {
+                return guest;
+            }
+        }
+        return null;
+    }
+
+    private static Comparator<Guest> guestNameOrder() {
+        return Comparator.comparing(Guest::getLastName)
+                .thenComparing(Guest::getFirstName);
+    }
+
+    private static Comparator<Guest> guestOrder() {
+        return Comparator.comparing(Guest::getFacilityId)
+                .thenComparing(guestNameOrder());
+    }
+
+    private static boolean matches(String value, String name) {
+        return (value != null) &&
+                value.toLowerCase().contains(name.toLowerCase());
+    }
+
+    private void populate(String name) throws BadRequest, NotFound, NotUnique {
+
+        Facility facility = insertFacility(new Facility(
+                "123 " + name + " Street",
+                null,
+                name,
+                name.toLowerCase().replace(' ', '.') + "@cityteam.org",
+                name,
+                "999-555-1212",
+                name.equals("Chester") ? "PA" : "CA",
+                name.equals("Chester") ? "19013" : "94000"
+        ));
+
+        Map<String, Guest> seeded = new HashMap<>();
+        for (String[] guestName : SEED_GUESTS) {
+            Guest guest = insertGuest(new Guest(
+                    guestName[0] + " in " + name,
+                    facility.getId(),
+                    guestName[0],
+                    guestName[1]
+            ));
+            seeded.put(guestName[0], guest);
+        }
+
+        insertTemplate(new Template("1-12", name + " COVID mats",
+                facility.getId(), "1,3", name + " COVID", "3,5"));
+        insertTemplate(new Template("1-24", name + " standard mats",
+                facility.getId(), "1-4", name + " Standard", "4,8,12-15"));
+
+        if (name.equals("San Francisco")) {
+            Long fredId = seeded.get("Fred").getId();
+            insertBan(new Ban(true, LocalDate.parse("2020-08-01"),
+                    LocalDate.parse("2020-08-31"),
+                    name + " August ban", fredId, "Manager"));
+            insertBan(new Ban(true, LocalDate.parse("2020-10-01"),
+                    LocalDate.parse("2020-10-31"),
+                    name + " October ban", fredId, "Manager"));
+            insertBan(new Ban(false, LocalDate.parse("2020-09-01"),
+                    LocalDate.parse("2020-09-30"),
+                    name + " September ban (lifted)",
+                    seeded.get("Barney").getId(), "Manager"));
+        }
+
+        if (name.equals("Chester") || name.equals("Oakland")) {
+            for (Registration registration : TemplatePreview.generate
+                    (new Template("1-6", null, facility.getId(), "1,3",
+                            null, "3,5"), SEED_DATE)) {
+                insertRegistration(registration);
+            }
+            List<Registration> registered = findRegistrationsByFacilityAndDate
+                    (facility.getId(), SEED_DATE);
+            assign(registered.get(0).getId(), new Assign(
+                    "Fred paid cash", seeded.get("Fred").getId(),
+                    new BigDecimal("5.00"), $$,
+                    LocalTime.parse("04:00"), LocalTime.parse("05:30")));
+            assign(registered.get(1).getId(), new Assign(
+                    null, seeded.get("Barney").getId(),
+                    null, AG, null, LocalTime.parse("06:00")));
+        }
+
+    }
+
+    private static Comparator<Registration> registrationOrder() {
+        return Comparator.comparing(Registration::getFacilityId)
+                .thenComparing(Registration::getRegistrationDate)
+                .thenComparing(Registration::getMatNumber);
+    }
+
+    // Delete a guest and their bans, leaving their registrations unassigned
+    private void removeGuest(Long guestId) {
+        guests.remove(guest -> guestId.equals(guest.getId()));
+        bans.remove(ban -> guestId.equals(ban.getGuestId()));
+        for (Registration registration : registrations.select(
+                r -> guestId.equals(r.getGuestId()), null)) {
+            registrations.put(deassigned(registration));
+        }
+    }
+
+    private static Comparator<Template> templateOrder() {
+        return Comparator.comparing(Template::getName);
+    }
+
+    private void validateBan(Ban ban) throws BadRequest {
+        if (ban.getActive() == null) {
+            throw new BadRequest("active: Is required");
+        }
+        if (ban.getBanFrom() == null) {
+            throw new BadRequest("banFrom: Is required");
+        }
+        if (ban.getBanTo() == null) {
+            throw new BadRequest("banTo: Is required");
+        }
+        if (ban.getBanTo().isBefore(ban.getBanFrom())) {
+            throw new BadRequest("banTo: Cannot be before banFrom");
+        }
+        if ((ban.getGuestId() == null) ||
+                !guests.rows.containsKey(ban.getGuestId())) {
+            throw new BadRequest("guestId: Missing or invalid guestId " +
+                    ban.getGuestId());
+        }
+    }
+
+    private void validateFacility(Long facilityId, Facility facility)
+            throws BadRequest, NotUnique {
+        if (facility.getName() == null) {
+            throw new BadRequest("name: Is required");
+        }
+        for (Facility other : facilities.rows.values()) {
+            if (other.getName().equals(facility.getName()) &&
+                    !other.getId().equals(facilityId)) {
+                throw new NotUnique("name: Name '" + facility.getName() +
+                        "' is already in use");
+            }
+        }
+    }
+
+    private void validateGuest(Guest guest) throws BadRequest {
+        if ((guest.getFacilityId() == null) ||
+                !facilities.rows.containsKey(guest.getFacilityId())) {
+            throw new BadRequest("facilityId: Missing or invalid facilityId " +
+                    guest.getFacilityId());
+        }
+        if (guest.getFirstName() == null) {
+            throw new BadRequest("firstName: Is required");
+        }
+        if (guest.getLastName() == null) {
+            throw new BadRequest("lastName: Is required");
+        }
+    }
+
+    private void validateGuestName(Long guestId, Guest guest)
+            throws NotUnique {
+        Guest other = findGuest(guest.getFacilityId(),
+                guest.getFirstName(), guest.getLastName());
+        if ((other != null) && !other.getId().equals(guestId)) {
+            throw new NotUnique("name: Name '" + guest.getFirstName() + " " +
+                    guest.getLastName() + "' is already in use");
+        }
+    }
+
+    // Check that every registration is valid, and that no two of them
+    // (or any of them and a stored one) share a facility, date, and mat
+    private void validateRegistrations(List<Registration> inserts)
+            throws BadRequest, NotUnique {
+        Map<String, Registration> keys = new HashMap<>();
+        for (Registration registration : registrations.rows.values()) {
+            keys.put(registrationKey(registration), registration);
+        }
+        for (Registration registration : inserts) {
+            if ((registration.getFacilityId() == null) ||
+                    !facilities.rows.containsKey(registration.getFacilityId())) {
+                throw new BadRequest("facilityId: Missing or invalid " +
+                        "facilityId " + registration.getFacilityId());
+            }
+            if (registration.getMatNumber() == null) {
+                throw new BadRequest("matNumber: Is required");
+            }
+            if (registration.getRegistrationDate() == null) {
+                throw new BadRequest("registrationDate: Is required");
+            }
+            if (keys.put(registrationKey(registration), registration) != null) {
+                throw new NotUnique("matNumber: Mat " +
+                        registration.getMatNumber() + " is already " +
+                        "registered on " + registration.getRegistrationDate());
+            }
+        }
+    }
+
+    private static String registrationKey(Registration registration) {
+        return registration.getFacilityId() + "|" +
+                registration.getRegistrationDate() + "|" +
+                registration.getMatNumber();
+    }
+
+    private void validateTemplate(Long templateId, Template template)
+            throws BadRequest, NotUnique {
+        if ((template.getFacilityId() == null) ||
+                !facilities.rows.containsKey(template.getFacilityId())) {
+            throw new BadRequest("facilityId: Missing or invalid facilityId " +
+                    template.getFacilityId());
+        }
+        if (template.getName() == null) {
+            throw new BadRequest("name: Is required");
+        }
+        if (template.getAllMats() == null) {
+            throw new BadRequest("allMats: Is required");
+        }
+        try {
+            MatSet allMats = MatSet.parse(template.getAllMats());
+            if (!allMats.containsAll(MatSet.parse(template.getHandicapMats()))) {
+                throw new BadRequest("handicapMats: Must be a subset of allMats");
+            }
+            if (!allMats.containsAll(MatSet.parse(template.getSocketMats()))) {
+                throw new BadRequest("socketMats: Must be a subset of allMats");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new BadRequest(e.getMessage());
+        }
+        for (Template other : templates.rows.values()) {
+            if (other.getFacilityId().equals(template.getFacilityId()) &&
+                    other.getName().equals(template.getName()) &&
+                    !other.getId().equals(templateId)) {
+                throw new NotUnique("name: Name '" + template.getName() +
+                        "' is already in use");
+            }
+        }
+    }
+
+    // Private Classes -------------------------------------------------------
+
+    // Rows of one model type, by id, stamped like the real service would
+    private static final class Table<M extends Model<M>> {
+
+        private long changes = 0;
+        private final Map<Long, M> rows = new HashMap<>();
+        private final Class<M> type;
+        private long nextId = 0;
+
+        private Table(Class<M> type) {
+            this.type = type;
+        }
+
+        private void clear() {
+            rows.clear();
+            nextId = 0;
+            changes++;
+        }
+
+        private static <M> M copy(M model, Class<M> type) {
+            return mapper.convertValue(model, type);
+        }
+
+        private M delete(Long id) throws NotFound {
+            M row = find(id);
+            rows.remove(id);
+            changes++;
+            return row;
+        }
+
+        private M find(Long id) throws NotFound {
+            M row = rows.get(id);
+            if (row == null) {
+                throw new NotFound(type.getSimpleName().toLowerCase() +
+                        "Id: Missing " + type.getSimpleName() + " " + id);
+            }
+            return row;
+        }
+
+        private M insert(M model) {
+            M row = copy(model, type);
+            LocalDateTime now = LocalDateTime.now();
+            row.setId(++nextId);
+            row.setPublished(now);
+            row.setUpdated(now);
+            row.setVersion(0);
+            rows.put(row.getId(), row);
+            changes++;
+            return row;
+        }
+
+        // Store a row that is already complete, such as a modified copy
+        private void put(M row) {
+            rows.put(row.getId(), row);
+            changes++;
+        }
+
+        private void remove(Predicate<M> filter) {
+            if (rows.values().removeIf(filter)) {
+                changes++;
+            }
+        }
+
+        private List<M> select(Predicate<M> filter, Comparator<M> order) {
+            List<M> results = rows.values().stream()
+                    .filter(filter)
+                    .collect(Collectors.toList());
+            if (order != null) {
+                results.sort(order);
+            }
+            return results;
+        }
+
+        private M update(Long id, M model) throws NotFound {
+            M existing = find(id);
+            M row = copy(model, type);
+            row.setId(id);
+            row.setPublished(existing.getPublished());
+            row.setUpdated(LocalDateTime.now());
+            row.setVersion(existing.getVersion() + 1);
+            rows.put(id, row);
+            changes++;
+            return row;
+        }
+
+    }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.action.ImportRequest;
+import org.cityteam.guests.action.ImportResults;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Registration;
+import org.cityteam.guests.model.Template;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.craigmcc.library.shared.exception.NotUnique;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.cityteam.guests.model.types.PaymentType.AG;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThrows;
+
+public class EmbeddedStoreTest {
+
+    private final EmbeddedStore store = new EmbeddedStore();
+
+    @Before
+    public void before() {
+        store.populate();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // populate() tests
+
+    @Test
+    public void populateHappy() throws Exception {
+
+        List<Facility> facilities = store.findAllFacilities();
+        assertThat(facilities.stream()
+                        .map(Facility::getName)
+                        .collect(Collectors.toList()),
+                is(equalTo(List.of("Chester", "Oakland",
+                        "San Francisco", "San Jose"))));
+        assertThat(store.findAllGuests().size(), is(equalTo(12)));
+        assertThat(store.findAllTemplates().size(), is(equalTo(8)));
+
+        Facility chester = store.findFacilitiesByNameExact("Chester");
+        List<Registration> registrations =
+                store.findRegistrationsByFacilityAndDate
+                        (chester.getId(), LocalDate.parse("2020-07-04"));
+        assertThat(registrations.size(), is(greaterThan(0)));
+        assertThat(registrations.get(0).getGuestId(), is(notNullValue()));
+
+        Facility sanFrancisco = store.findFacilitiesByNameExact("San Francisco");
+        Guest fred = store.findGuestsByNameExact
+                (sanFrancisco.getId(), "Fred", "Flintstone");
+        assertThat(store.findBansByGuestIdAndRegistrationDate
+                (fred.getId(), LocalDate.parse("2020-08-15")), is(notNullValue()));
+        assertThrows(NotFound.class,
+                () -> store.findBansByGuestIdAndRegistrationDate
+                        (fred.getId(), LocalDate.parse("2020-09-15")));
+
+    }
+
+    @Test
+    public void populateRepeatable() throws Exception {
+
+        Guest before = store.findGuestsByNameExact
+                (store.findFacilitiesByNameExact("Oakland").getId(),
+                        "Barney", "Rubble");
+        store.depopulate();
+        assertThat(store.findAllFacilities().size(), is(equalTo(0)));
+        store.populate();
+        Guest after = store.findGuestsByNameExact
+                (store.findFacilitiesByNameExact("Oakland").getId(),
+                        "Barney", "Rubble");
+        assertThat(after.getId(), is(equalTo(before.getId())));
+
+    }
+
+    // deleteFacility() tests
+
+    @Test
+    public void deleteFacilityCascades() throws Exception {
+
+        Facility facility = store.findFacilitiesByNameExact("Oakland");
+        store.deleteFacility(facility.getId());
+
+        assertThat(store.findGuestsByFacilityId(facility.getId()).size(),
+                is(equalTo(0)));
+        assertThat(store.findTemplatesByFacilityId(facility.getId()).size(),
+                is(equalTo(0)));
+        for (Registration registration : store.findAllRegistrations()) {
+            assertThat(registration.getFacilityId().equals(facility.getId()),
+                    is(false));
+        }
+
+    }
+
+    // generate() tests
+
+    @Test
+    public void generateAllOrNothing() throws Exception {
+
+        Facility facility = store.findFacilitiesByNameExact("San Jose");
+        Template template = store.findTemplatesByNameExact
+                (facility.getId(), "San Jose COVID");
+        LocalDate registrationDate = LocalDate.parse("2021-01-15");
+        store.insertRegistration(new Registration
+                (facility.getId(), null, 5, registrationDate));
+
+        assertThrows(NotUnique.class,
+                () -> store.generate(template.getId(), registrationDate));
+        assertThat(store.findRegistrationsByFacilityAndDate
+                (facility.getId(), registrationDate).size(), is(equalTo(1)));
+
+    }
+
+    // importRegistrationsByFacilityAndDate() tests
+
+    @Test
+    public void importCreatesGuests() throws Exception {
+
+        Facility facility = store.findFacilitiesByNameExact("Chester");
+        LocalDate registrationDate = LocalDate.parse("2021-02-01");
+        int guests = store.findGuestsByFacilityId(facility.getId()).size();
+
+        ImportRequest importRequest = new ImportRequest(null, 2);
+        importRequest.setFirstName("George");
+        importRequest.setLastName("Jetson");
+        importRequest.setPaymentType(AG);
+        ImportResults results = store.importRegistrationsByFacilityAndDate
+                (facility.getId(), registrationDate,
+                        List.of(importRequest, new ImportRequest(null, 1)));
+
+        List<Registration> registrations = results.getRegistrations();
+        assertThat(registrations.size(), is(equalTo(2)));
+        assertThat(registrations.get(0).getMatNumber(), is(equalTo(1)));
+        assertThat(registrations.get(0).getGuestId(), is(nullValue()));
+        Guest george = store.findGuestsByNameExact
+                (facility.getId(), "George", "Jetson");
+        assertThat(registrations.get(1).getGuestId(),
+                is(equalTo(george.getId())));
+        assertThat(registrations.get(1).getPaymentType(), is(equalTo(AG)));
+        assertThat(store.findGuestsByFacilityId(facility.getId()).size(),
+                is(equalTo(guests + 1)));
+
+    }
+
+    // updateGuest() tests
+
+    @Test
+    public void updateLeavesOriginal() throws Exception {
+
+        Guest original = store.findGuestsByName
+                (store.findFacilitiesByNameExact("San Jose").getId(), "Fred")
+                .get(0);
+        Guest guest = new Guest("Updated", original.getFacilityId(),
+                original.getFirstName(), original.getLastName());
+
+        Guest updated = store.updateGuest(original.getId(), guest);
+        assertThat(updated.getVersion(), is(equalTo(original.getVersion() + 1)));
+        assertThat(updated.getComments(), is(equalTo("Updated")));
+        assertThat(original.getComments().equals("Updated"), is(false));
+
+        guest.setLastName(null);
+        assertThrows(BadRequest.class,
+                () -> store.updateGuest(original.getId(), guest));
+
+    }
+
+    // getVersion() tests
+
+    @Test
+    public void versionChanges() throws Exception {
+
+        long version = store.getVersion();
+        store.findAllGuests();
+        assertThat(store.getVersion(), is(equalTo(version)));
+
+        Guest guest = store.findAllGuests().get(0);
+        store.deleteGuest(guest.getId());
+        assertThat(store.getVersion(), is(greaterThan(version)));
+
+        version = store.getVersion();
+        assertThrows(NotFound.class, () -> store.deleteGuest(guest.getId()));
+        assertThat(store.getVersion(), is(equalTo(version)));
+
+        store.populate();
+        assertThat(store.getVersion(), is(greaterThan(version)));
+
+    }
+
+}
@@ -33,7 +33,6 @@ import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 
-import static java.lang.Boolean.TRUE;
 import static org.cityteam.guests.model.types.PaymentType.$$;
 import static org.cityteam.guests.model.types.PaymentType.AG;
 import static org.cityteam.guests.model.types.PaymentType.CT;
@@ -58,12 +57,7 @@ public class FacilityClientTest extends AbstractClientTest {
 
     @Before
     public void before() {
-        if ((depopulateEnabled == null) || (TRUE == depopulateEnabled)) {
-            depopulate();
-        }
-        if ((populateEnabled == null) || (TRUE == populateEnabled)) {
-            populate();
-        }
+        reseed();
     }
 
     // Test Methods ----------------------------------------------------------
@@ -92,6 +86,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void deleteNotFound() throws Exception {
 
@@ -106,6 +102,7 @@ public class FacilityClientTest extends AbstractClientTest {
 
     // deleteRegistrationsByFacilityAndDate() tests
 
+    @Isolated
     @Test
     public void deleteRegistrationsByFacilityAndDate() throws Exception {
 
@@ -113,7 +110,7 @@ public class FacilityClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Chester");
+        Facility facility = facilityClient.findByNameExact(facilityName("Chester"));
         LocalDate registrationDate = LocalDate.parse("2020-07-04");
         List<Registration> registrations =
                 facilityClient.findRegistrationsByFacilityAndDate
@@ -135,6 +132,7 @@ public class FacilityClientTest extends AbstractClientTest {
 
     // find() tests
 
+    @ReadOnly
     @Test
     public void findHappy() throws Exception {
 
@@ -152,6 +150,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findNotFound() throws Exception {
 
@@ -166,6 +166,7 @@ public class FacilityClientTest extends AbstractClientTest {
 
     // findAll() tests
 
+    @ReadOnly
     @Test
     public void findAllHappy() throws Exception {
 
@@ -189,6 +190,7 @@ public class FacilityClientTest extends AbstractClientTest {
 
     // findByName() tests
 
+    @ReadOnly
     @Test
     public void findByNameHappy() throws Exception {
 
@@ -210,6 +212,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findByNameNoMatch() throws Exception {
 
@@ -224,6 +228,7 @@ public class FacilityClientTest extends AbstractClientTest {
 
     // findByNameExact() tests
 
+    @ReadOnly
     @Test
     public void findByNameExactHappy() throws Exception {
 
@@ -242,6 +247,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findByNameNotFound() throws Exception {
 
@@ -256,6 +263,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     // findGuestsByFacilityId() tests
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findGuestsByFacilityIdHappy() throws Exception {
 
@@ -263,7 +272,7 @@ public class FacilityClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Oakland");
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
         List<Guest> guests = facilityClient.findGuestsByFacilityId(facility.getId());
         assertThat(guests.size(), is(greaterThan(0)));
 
@@ -278,6 +287,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findGuestsByFacilityIdNoMatch() throws Exception {
 
@@ -292,6 +303,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     // findGuestsByName() tests
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findGuestsByNameHappy() throws Exception {
 
@@ -299,7 +312,7 @@ public class FacilityClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Oakland");
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
         List<Guest> guests = facilityClient.findGuestsByName(facility.getId(), "ubble");
         assertThat(guests.size(), is(greaterThan(0)));
 
@@ -314,6 +327,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findGuestsByNameNoMatch() throws Exception {
 
@@ -328,6 +343,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     // findGuestsByNameExact() tests
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findGuestsByNameExactHappy() throws Exception {
 
@@ -335,12 +352,14 @@ public class FacilityClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Oakland");
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
         Guest guest = facilityClient.findGuestsByNameExact
                 (facility.getId(), "Fred", "Flintstone");
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findGuestsByNameExactNoMatch() throws Exception {
 
@@ -356,6 +375,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     // findRegistrationsByFacilityAndDate() tests
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findRegistrationsByFacilityAndDate() throws Exception {
 
@@ -363,7 +384,7 @@ public class FacilityClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Oakland");
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
         List<Registration> registrations =
                 facilityClient.findRegistrationsByFacilityAndDate
                         (facility.getId(), LocalDate.parse("2020-07-04"));
@@ -373,6 +394,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     // findTemplatesByFacilityId() tests
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findTemplatesByFacilityIdHappy() throws Exception {
 
@@ -380,7 +403,7 @@ public class FacilityClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Oakland");
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
         List<Template> templates =
                 facilityClient.findTemplatesByFacilityId(facility.getId());
         assertThat(templates.size(), is(greaterThan(0)));
@@ -396,6 +419,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findTemplatesByFacilityIdNoMatch() throws Exception {
 
@@ -411,6 +436,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     // findTemplatesByName() tests
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findTemplatesByNameHappy() throws Exception {
 
@@ -418,7 +445,7 @@ public class FacilityClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Oakland");
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
         List<Template> templates =
                 facilityClient.findTemplatesByName(facility.getId(), "land");
         assertThat(templates.size(), is(greaterThan(0)));
@@ -434,6 +461,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findTemplatesByNameNoMatch() throws Exception {
 
@@ -449,6 +478,8 @@ public class FacilityClientTest extends AbstractClientTest {
 
     // findTemplatesByNameExact() tests
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findTemplatesByNameExactHappy() throws Exception {
 
@@ -456,12 +487,14 @@ public class FacilityClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Oakland");
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
         Template template = facilityClient.findTemplatesByNameExact
                 (facility.getId(), "Oakland COVID");
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findTemplatesByNameExactNoMatch() throws Exception {
 
@@ -477,6 +510,7 @@ public class FacilityClientTest extends AbstractClientTest {
 
     // importByFacilityAndDate() tests
 
+    @Isolated
     @Test
     public void importByFacilityAndDate() throws Exception {
 
@@ -487,7 +521,7 @@ public class FacilityClientTest extends AbstractClientTest {
         // Accumulate information we need to perform this test
 
         String facilityName = "San Jose";
-        Facility facility = facilityClient.findByNameExact(facilityName);
+        Facility facility = facilityClient.findByNameExact(facilityName(facilityName));
         LocalDate registrationDate = LocalDate.parse("2020-07-06");
         LocalTime showerTime = LocalTime.parse("04:00");
         LocalTime wakeupTime = LocalTime.parse("03:30");
@@ -598,6 +632,7 @@ public class FacilityClientTest extends AbstractClientTest {
 
     }
 
+    @Isolated
     @Test
     public void insertBadRequest() throws Exception {
 
@@ -618,6 +653,7 @@ public class FacilityClientTest extends AbstractClientTest {
 
     }
 
+    @Isolated
     @Test
     public void insertNotUnique() throws Exception {
 
@@ -625,7 +661,7 @@ public class FacilityClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Oakland");
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
         assertThrows(NotUnique.class,
                 () -> facilityClient.insert(facility));
 
@@ -633,6 +669,7 @@ public class FacilityClientTest extends AbstractClientTest {
 
     // update() tests
 
+    @Isolated
     @Test
     public void updateHappy() throws Exception {
 
@@ -641,17 +678,18 @@ public class FacilityClientTest extends AbstractClientTest {
         }
 
         // Change something but keep the name
-        Facility facility1 = facilityClient.findByNameExact("Oakland");
+        Facility facility1 = facilityClient.findByNameExact(facilityName("Oakland"));
         facility1.setCity(facility1.getCity() + " Updated");
         facilityClient.update(facility1.getId(), facility1);
 
         // Change name to something unique
-        Facility facility2 = facilityClient.findByNameExact("Chester");
-        facility2.setName("Unique Name");
+        Facility facility2 = facilityClient.findByNameExact(facilityName("Chester"));
+        facility2.setName(facilityName("Unique Name"));
         facilityClient.update(facility2.getId(), facility2);
 
     }
 
+    @Isolated
     @Test
     public void updateBadRequest() throws Exception {
 
@@ -660,13 +698,14 @@ public class FacilityClientTest extends AbstractClientTest {
         }
 
         // Required field
-        Facility facility1 = facilityClient.findByNameExact("San Francisco");
+        Facility facility1 = facilityClient.findByNameExact(facilityName("San Francisco"));
         facility1.setName(null);
         assertThrows(BadRequest.class,
                 () -> facilityClient.update(facility1.getId(), facility1));
 
     }
 
+    @Isolated
     @Test
     public void updateNotUnique() throws Exception {
 
@@ -675,8 +714,8 @@ public class FacilityClientTest extends AbstractClientTest {
         }
 
         // Violate name uniqueness
-        Facility facility1 = facilityClient.findByNameExact("Oakland");
-        facility1.setName("San Jose");
+        Facility facility1 = facilityClient.findByNameExact(facilityName("Oakland"));
+        facility1.setName(facilityName("San Jose"));
         assertThrows(NotUnique.class,
                 () -> facilityClient.update(facility1.getId(), facility1));
 
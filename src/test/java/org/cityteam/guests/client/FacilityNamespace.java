@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.action.Assign;
+import org.cityteam.guests.model.Ban;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Registration;
+import org.cityteam.guests.model.Template;
+import org.craigmcc.library.shared.exception.BadRequest;
+import org.craigmcc.library.shared.exception.InternalServerError;
+import org.craigmcc.library.shared.exception.NotFound;
+import org.craigmcc.library.shared.exception.NotUnique;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>One worker's private copies of the seeded facilities, for parallel
+ * mode.  Resolving a seeded facility name clones that facility (with its
+ * guests, bans, templates, and registrations) under a name unique to this
+ * worker, so concurrent tests never see each other's changes.  All
+ * registrations are fetched once per clone pass (until the next
+ * invalidation), rather than once per cloned facility.</p>
+ */
+public class FacilityNamespace {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final AtomicInteger workers = new AtomicInteger();
+
+    // Instance Variables ----------------------------------------------------
+
+    private final BanClient banClient = new BanClient();
+    private final FacilityClient facilityClient = new FacilityClient();
+    private final GuestClient guestClient = new GuestClient();
+    private final RegistrationClient registrationClient =
+            new RegistrationClient();
+    private final TemplateClient templateClient = new TemplateClient();
+
+    private int generation = -1;
+    private final Map<String, String> names = new HashMap<>();
+    // Seeded registrations by facility id, for the current clone pass
+    private Map<Long, List<Registration>> registrations = null;
+    private int sequence = 1;
+    private final int worker = workers.incrementAndGet();
+
+    // Public Methods --------------------------------------------------------
+
+    /**
+     * <p>Forget the current clones, so that the next lookup of each facility
+     * clones it again from the seeded dataset.</p>
+     */
+    public void invalidate() {
+        names.clear();
+        registrations = null;
+        sequence++;
+    }
+
+    /**
+     * <p>Return this worker's name for the specified facility name, cloning
+     * the seeded facility on first use.  Names that do not match a seeded
+     * facility are simply made unique to this worker.</p>
+     *
+     * @param name Facility name as used by the seeded dataset
+     * @param generation Generation of the seeded dataset currently on
+     *                   the server
+     */
+    public String resolve(String name, int generation)
+            throws BadRequest, InternalServerError, NotFound, NotUnique {
+        if (this.generation != generation) {
+            invalidate();
+            this.generation = generation;
+        }
+        String resolved = names.get(name);
+        if (resolved == null) {
+            resolved = name + " #" + worker + "." + sequence;
+            Facility source = null;
+            try {
+                source = facilityClient.findByNameExact(name);
+            } catch (NotFound e) {
+                // Not a seeded facility, so there is nothing to clone
+            }
+            if (source != null) {
+                clone(source, resolved);
+            }
+            names.put(name, resolved);
+        }
+        return resolved;
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private void clone(Facility source, String name)
+            throws BadRequest, InternalServerError, NotFound, NotUnique {
+
+        Long sourceId = source.getId();
+        source.setId(null);
+        source.setName(name);
+        Facility facility = facilityClient.insert(source);
+
+        // Guests (and their bans), remembering new ids for registrations
+        Map<Long, Long> guestIds = new HashMap<>();
+        for (Guest guest : facilityClient.findGuestsByFacilityId(sourceId)) {
+            Long guestId = guest.getId();
+            guest.setId(null);
+            guest.setFacilityId(facility.getId());
+            Guest inserted = guestClient.insert(guest);
+            guestIds.put(guestId, inserted.getId());
+            for (Ban ban : guestClient.findBansByGuestId(guestId)) {
+                ban.setId(null);
+                ban.setGuestId(inserted.getId());
+                banClient.insert(ban);
+            }
+        }
+
+        // Templates
+        for (Template template :
+                facilityClient.findTemplatesByFacilityId(sourceId)) {
+            template.setId(null);
+            template.setFacilityId(facility.getId());
+            templateClient.insert(template);
+        }
+
+        // Registrations, assigned to the cloned guests where necessary
+        for (Registration registration : registrations(sourceId)) {
+            Registration copy = new Registration(
+                    facility.getId(),
+                    registration.getFeatures(),
+                    registration.getMatNumber(),
+                    registration.getRegistrationDate()
+            );
+            copy.setComments(registration.getComments());
+            Registration inserted = registrationClient.insert(copy);
+            if (registration.getGuestId() != null) {
+                registrationClient.assign(inserted.getId(), new Assign(
+                        registration.getComments(),
+                        guestIds.get(registration.getGuestId()),
+                        registration.getPaymentAmount(),
+                        registration.getPaymentType(),
+                        registration.getShowerTime(),
+                        registration.getWakeupTime()
+                ));
+            }
+        }
+
+    }
+
+    // Return the registrations of this seeded facility, fetching all
+    // registrations once for the current clone pass
+    private List<Registration> registrations(Long facilityId)
+            throws InternalServerError {
+        if (registrations == null) {
+            registrations = new HashMap<>();
+            for (Registration registration : registrationClient.findAll()) {
+                registrations.computeIfAbsent(registration.getFacilityId(),
+                        k -> new ArrayList<>()).add(registration);
+            }
+        }
+        return registrations.getOrDefault(facilityId, List.of());
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Registration;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * <p>Outcome of generating registrations from a template for one date of
+ * a range, as reported by {@link RangeTemplateClient}.</p>
+ */
+public class GenerateResult {
+
+    // Public Classes --------------------------------------------------------
+
+    public enum Status {
+        CONFLICT,       // Registrations already existed for this date
+        FAILED,         // Any other error
+        GENERATED,      // Registrations were generated
+        SKIPPED         // Not attempted because an earlier date failed
+    }
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Exception exception;
+    private final LocalDate registrationDate;
+    private final List<Registration> registrations;
+    private final Status status;
+
+    // Constructors ----------------------------------------------------------
+
+    public GenerateResult(LocalDate registrationDate,
+                          Status status,
+                          List<Registration> registrations,
+                          Exception exception) {
+        this.exception = exception;
+        this.registrationDate = registrationDate;
+        this.registrations = registrations;
+        this.status = status;
+    }
+
+    // Property Methods ------------------------------------------------------
+
+    // Exception thrown for a CONFLICT or FAILED date, else null
+    public Exception getException() {
+        return exception;
+    }
+
+    public LocalDate getRegistrationDate() {
+        return registrationDate;
+    }
+
+    // Registrations for a GENERATED date, else null
+    public List<Registration> getRegistrations() {
+        return registrations;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public String toString() {
+        return registrationDate + " " + status +
+                ((registrations != null) ? " (" + registrations.size() + ")" : "") +
+                ((exception != null) ? " " + exception.getMessage() : "");
+    }
+
+}
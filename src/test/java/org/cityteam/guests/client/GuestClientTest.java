@@ -28,7 +28,6 @@ import org.junit.Test;
 import java.time.LocalDate;
 import java.util.List;
 
-import static java.lang.Boolean.TRUE;
 import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
@@ -47,12 +46,7 @@ public class GuestClientTest extends AbstractClientTest {
 
     @Before
     public void before() {
-        if ((depopulateEnabled == null) || (TRUE == depopulateEnabled)) {
-            depopulate();
-        }
-        if ((populateEnabled == null) || (TRUE == populateEnabled)) {
-            populate();
-        }
+        reseed();
     }
 
     // Test Methods ----------------------------------------------------------
@@ -81,6 +75,8 @@ public class GuestClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void deleteNotFound() throws Exception {
 
@@ -95,6 +91,7 @@ public class GuestClientTest extends AbstractClientTest {
 
     // find() tests
 
+    @ReadOnly
     @Test
     public void findHappy() throws Exception {
 
@@ -112,6 +109,8 @@ public class GuestClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findNotFound() throws Exception {
 
@@ -126,6 +125,7 @@ public class GuestClientTest extends AbstractClientTest {
 
     // findAll() tests
 
+    @ReadOnly
     @Test
     public void findAllHappy() throws Exception {
 
@@ -149,6 +149,8 @@ public class GuestClientTest extends AbstractClientTest {
 
     // findBansByGuestIdHappy() tests
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findBansByGuestIdHappy() throws Exception {
 
@@ -157,7 +159,7 @@ public class GuestClientTest extends AbstractClientTest {
         }
 
         String facilityName = "San Francisco";
-        Facility facility = facilityClient.findByNameExact(facilityName);
+        Facility facility = facilityClient.findByNameExact(facilityName(facilityName));
         List<Guest> guests =
                 facilityClient.findGuestsByFacilityId(facility.getId());
 
@@ -178,11 +180,13 @@ public class GuestClientTest extends AbstractClientTest {
 
     // findBansByGuestIdAndRegistrationDate() tests
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findBansByGuestIdAndRegistrationDateHappy() throws Exception {
 
         String facilityName = "San Francisco";
-        Facility facility = facilityClient.findByNameExact(facilityName);
+        Facility facility = facilityClient.findByNameExact(facilityName(facilityName));
         Guest guest = facilityClient.findGuestsByNameExact
                 (facility.getId(), "Fred", "Flintstone");
 
@@ -201,11 +205,13 @@ public class GuestClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findBansByGuestIdAndRegistrationDateNotFound() throws Exception {
 
         String facilityName = "San Francisco";
-        Facility facility = facilityClient.findByNameExact(facilityName);
+        Facility facility = facilityClient.findByNameExact(facilityName(facilityName));
         Guest guest = facilityClient.findGuestsByNameExact
                 (facility.getId(), "Fred", "Flintstone");
 
@@ -223,6 +229,7 @@ public class GuestClientTest extends AbstractClientTest {
 
     // insert() tests
 
+    @Isolated
     @Test
     public void insertHappy() throws Exception {
 
@@ -230,7 +237,7 @@ public class GuestClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Chester");
+        Facility facility = facilityClient.findByNameExact(facilityName("Chester"));
         Guest guest = newGuest(facility.getId());
         Guest inserted = guestClient.insert(guest);
 
@@ -243,6 +250,7 @@ public class GuestClientTest extends AbstractClientTest {
 
     }
 
+    @Isolated
     @Test
     public void insertBadRequest() throws Exception {
 
@@ -250,7 +258,7 @@ public class GuestClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Oakland");
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
 
         // Completely empty instance
         final Guest guest0 = new Guest();
@@ -271,6 +279,7 @@ public class GuestClientTest extends AbstractClientTest {
 
     }
 
+    @Isolated
     @Test
     public void insertNotUnique() throws Exception {
 
@@ -278,7 +287,7 @@ public class GuestClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Chester");
+        Facility facility = facilityClient.findByNameExact(facilityName("Chester"));
         Guest guest = newGuest(facility.getId());
         Guest inserted = guestClient.insert(guest);
 
@@ -289,6 +298,7 @@ public class GuestClientTest extends AbstractClientTest {
 
     // update() tests
 
+    @Isolated
     @Test
     public void updateHappy() throws Exception {
 
@@ -296,7 +306,7 @@ public class GuestClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("San Francisco");
+        Facility facility = facilityClient.findByNameExact(facilityName("San Francisco"));
 
         // Change something but keep the name
         Guest guest1 = facilityClient.findGuestsByNameExact
@@ -313,6 +323,7 @@ public class GuestClientTest extends AbstractClientTest {
 
     }
 
+    @Isolated
     @Test
     public void updateBadRequest() throws Exception {
 
@@ -320,7 +331,7 @@ public class GuestClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("San Jose");
+        Facility facility = facilityClient.findByNameExact(facilityName("San Jose"));
 
         // Required firstName
         Guest guest1 = facilityClient.findGuestsByNameExact
@@ -338,6 +349,7 @@ public class GuestClientTest extends AbstractClientTest {
 
     }
 
+    @Isolated
     @Test
     public void updateNotUnique() throws Exception {
 
@@ -345,8 +357,8 @@ public class GuestClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility1 = facilityClient.findByNameExact("Chester");
-        Facility facility2 = facilityClient.findByNameExact("Oakland");
+        Facility facility1 = facilityClient.findByNameExact(facilityName("Chester"));
+        Facility facility2 = facilityClient.findByNameExact(facilityName("Oakland"));
 
         // Violate name uniqueness within facility
         Guest guest1 = facilityClient.findGuestsByNameExact
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <p>Iterator over the elements of a JSON array, parsing one element at a
+ * time from the underlying stream so that memory use does not depend on
+ * the size of the array.  The stream is closed after the last element,
+ * or when this iterator is closed.</p>
+ *
+ * @param <T> Type of the array elements
+ */
+public class JsonArrayIterator<T> implements Iterator<T>, Closeable {
+
+    // Instance Variables ----------------------------------------------------
+
+    private boolean closed = false;
+    private final Closeable closeable;
+    private final JsonParser parser;
+    private final ObjectReader reader;
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * @param reader Reader for the element type
+     * @param stream Stream positioned at the start of the array
+     * @param closeable Resource to close along with the stream
+     *                  (such as the HTTP response), or <code>null</code>
+     */
+    public JsonArrayIterator(ObjectReader reader,
+                             InputStream stream,
+                             Closeable closeable) throws IOException {
+        this.closeable = closeable;
+        this.parser = reader.getFactory().createParser(stream);
+        this.reader = reader;
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            close();
+            throw new IOException("Expected a JSON array");
+        }
+        advance();
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            parser.close();
+            if (closeable != null) {
+                closeable.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed;
+    }
+
+    @Override
+    public T next() {
+        if (closed) {
+            throw new NoSuchElementException();
+        }
+        try {
+            T element = reader.readValue(parser);
+            advance();
+            return element;
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Return a sequential stream over the remaining elements, which closes
+    // this iterator when the stream is closed
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.NONNULL | Spliterator.ORDERED), false)
+                .onClose(this::close);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    // Move to the start of the next element, closing at the end of the array
+    private void advance() throws IOException {
+        JsonToken token = parser.nextToken();
+        if ((token == null) || (token == JsonToken.END_ARRAY)) {
+            close();
+        }
+    }
+
+}
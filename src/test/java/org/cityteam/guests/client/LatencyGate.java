@@ -0,0 +1,223 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Latency regression gate for the integration suite.  In
+ * <code>record</code> mode, the duration of each test (excluding
+ * reseeding) and the median latency of each endpoint (from
+ * {@link ClientMetrics}) are saved to a baseline file when the JVM exits,
+ * merged with what the file already holds.  In <code>check</code> mode, a
+ * test fails if it took longer than its baseline times the tolerance plus
+ * the slack.  Likewise, when an endpoint's median latency exceeds its
+ * baseline, the run fails once at the end, listing every slower endpoint
+ * (see {@link LatencyGateSuite}, which the <code>latency-check</code>
+ * profile runs).  These system properties configure it:</p>
+ * <ul>
+ *     <li><code>guests.latency</code> - <code>off</code>,
+ *         <code>record</code>, or <code>check</code> (default off)</li>
+ *     <li><code>guests.latency.baseline</code> - Baseline file
+ *         (default <code>latency-baseline.json</code>)</li>
+ *     <li><code>guests.latency.tolerance</code> - Allowed slowdown factor
+ *         (default 2.0)</li>
+ *     <li><code>guests.latency.slack</code> - Milliseconds always allowed
+ *         on top, so that very fast tests are not flaky (default 50)</li>
+ * </ul>
+ */
+public class LatencyGate {
+
+    // Public Classes --------------------------------------------------------
+
+    public enum Mode {
+        CHECK,
+        OFF,
+        RECORD
+    }
+
+    // Static Variables ------------------------------------------------------
+
+    // Endpoints with fewer samples than this are not checked
+    public static final int MIN_SAMPLES = 5;
+
+    private static final String ENDPOINTS = "endpoints";
+    private static final String TESTS = "tests";
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    private static LatencyGate global = null;
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Path baseline;
+    private final Map<String, Double> baselineEndpoints = new TreeMap<>();
+    private final Map<String, Double> baselineTests = new TreeMap<>();
+    private final Set<String> checkedEndpoints = ConcurrentHashMap.newKeySet();
+    private final Mode mode;
+    private final Map<String, Double> recordedTests = new ConcurrentHashMap<>();
+    private final double slackMillis;
+    private final double tolerance;
+
+    // Constructors ----------------------------------------------------------
+
+    public LatencyGate(Mode mode, Path baseline,
+                       double tolerance, double slackMillis) {
+        this.baseline = baseline;
+        this.mode = mode;
+        this.slackMillis = slackMillis;
+        this.tolerance = tolerance;
+        if (mode == Mode.CHECK) {
+            load();
+        }
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    // Return the gate configured by system properties, which saves its
+    // baseline at JVM exit in record mode
+    public static synchronized LatencyGate global() {
+        if (global == null) {
+            global = new LatencyGate(
+                    Mode.valueOf(System.getProperty("guests.latency", "off")
+                            .toUpperCase()),
+                    Paths.get(System.getProperty("guests.latency.baseline",
+                            "latency-baseline.json")),
+                    Double.parseDouble(System.getProperty
+                            ("guests.latency.tolerance", "2.0")),
+                    Double.parseDouble(System.getProperty
+                            ("guests.latency.slack", "50")));
+            if (global.mode == Mode.RECORD) {
+                LatencyGate gate = global;
+                Runtime.getRuntime().addShutdownHook(new Thread(
+                        () -> gate.save(ClientMetrics.global()),
+                        "guests-latency-baseline"));
+            }
+        }
+        return global;
+    }
+
+    // Check endpoint medians against the baseline, failing once for each
+    // endpoint that has become slower
+    public void endpoints(ClientMetrics metrics) {
+        if (mode != Mode.CHECK) {
+            return;
+        }
+        List<String> failures = new ArrayList<>();
+        metrics.getEndpoints().forEach((name, endpoint) -> {
+            Double expected = baselineEndpoints.get(name);
+            if ((expected == null) || (endpoint.getCount() < MIN_SAMPLES)) {
+                return;
+            }
+            double actual = endpoint.percentile(50.0) / 1000.0;
+            if (exceeds(expected, actual) && checkedEndpoints.add(name)) {
+                failures.add(message(name + " median", expected, actual));
+            }
+        });
+        if (!failures.isEmpty()) {
+            throw new AssertionError(String.join("\n", failures));
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    // Write the baseline file, keeping entries for tests and endpoints
+    // that did not run this time
+    public synchronized void save(ClientMetrics metrics) {
+        if (Files.exists(baseline)) {
+            load();
+        }
+        baselineTests.putAll(recordedTests);
+        metrics.getEndpoints().forEach((name, endpoint) -> {
+            if (endpoint.getCount() >= MIN_SAMPLES) {
+                baselineEndpoints.put(name, endpoint.percentile(50.0) / 1000.0);
+            }
+        });
+        Map<String, Map<String, Double>> contents = new TreeMap<>();
+        contents.put(ENDPOINTS, baselineEndpoints);
+        contents.put(TESTS, baselineTests);
+        try {
+            if (baseline.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(baseline.toAbsolutePath().getParent());
+            }
+            mapper.writeValue(baseline.toFile(), contents);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Record or check the duration of a test that passed
+    public void test(String name, long nanos) {
+        double actual = nanos / 1_000_000.0;
+        if (mode == Mode.RECORD) {
+            recordedTests.put(name, actual);
+        } else if (mode == Mode.CHECK) {
+            Double expected = baselineTests.get(name);
+            if ((expected != null) && exceeds(expected, actual)) {
+                throw new AssertionError(message(name, expected, actual));
+            }
+        }
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private boolean exceeds(double expected, double actual) {
+        return actual > (expected * tolerance) + slackMillis;
+    }
+
+    private synchronized void load() {
+        if (!Files.exists(baseline)) {
+            return;
+        }
+        try {
+            Map<String, Map<String, Double>> contents = mapper.readValue
+                    (baseline.toFile(),
+                            new TypeReference<Map<String, Map<String, Double>>>() {});
+            if (contents.get(ENDPOINTS) != null) {
+                baselineEndpoints.putAll(contents.get(ENDPOINTS));
+            }
+            if (contents.get(TESTS) != null) {
+                baselineTests.putAll(contents.get(TESTS));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String message(String name, double expected, double actual) {
+        return String.format("%s took %.1f ms, baseline %.1f ms " +
+                        "(allowed %.1fx + %.0f ms)",
+                name, actual, expected, tolerance, slackMillis);
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.model.InitializationError;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>Every test class in this module, followed by the endpoint check of
+ * {@link LatencyGate}.  The <code>latency-check</code> profile runs this
+ * suite instead of the individual classes, so that endpoint regressions
+ * fail the suite itself, where Surefire reports them like any other
+ * failure.</p>
+ */
+@RunWith(LatencyGateSuite.Runner.class)
+public class LatencyGateSuite {
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @AfterClass
+    public static void afterClass() {
+        LatencyGate.global().endpoints(ClientMetrics.global());
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    // Return the test classes (named *Test, with @Test methods) under the
+    // specified class output directory, as Surefire would find them
+    public static List<Class<?>> testClasses(Path directory) {
+        List<Class<?>> results = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (String name : paths
+                    .map(path -> directory.relativize(path).toString())
+                    .filter(path -> path.endsWith("Test.class"))
+                    .filter(path -> !path.contains("$"))
+                    .map(path -> path.substring(0, path.length() - 6)
+                            .replace(File.separatorChar, '.'))
+                    .sorted()
+                    .collect(Collectors.toList())) {
+                Class<?> clazz = Class.forName(name);
+                if (!Modifier.isAbstract(clazz.getModifiers()) &&
+                        Arrays.stream(clazz.getMethods()).anyMatch(method ->
+                                method.isAnnotationPresent(Test.class))) {
+                    results.add(clazz);
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return results;
+    }
+
+    // Public Classes --------------------------------------------------------
+
+    // Runs the test classes found next to the suite class
+    public static class Runner extends Suite {
+
+        public Runner(Class<?> suite) throws InitializationError {
+            super(suite, testClasses(directory(suite))
+                    .toArray(new Class<?>[0]));
+        }
+
+        private static Path directory(Class<?> suite)
+                throws InitializationError {
+            try {
+                return Paths.get(suite.getProtectionDomain()
+                        .getCodeSource().getLocation().toURI());
+            } catch (URISyntaxException e) {
+                throw new InitializationError(e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.cityteam.guests.client.LatencyGate.Mode.CHECK;
+import static org.cityteam.guests.client.LatencyGate.Mode.RECORD;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThrows;
+
+public class LatencyGateTest {
+
+    // Instance Variables ----------------------------------------------------
+
+    private Path baseline;
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() throws Exception {
+        baseline = Files.createTempDirectory("latency")
+                .resolve("latency-baseline.json");
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void checkTests() {
+
+        LatencyGate recorder = new LatencyGate(RECORD, baseline, 2.0, 10.0);
+        recorder.test("FacilityClientTest.importByFacilityAndDate", millis(100));
+        recorder.save(new ClientMetrics());
+
+        LatencyGate gate = new LatencyGate(CHECK, baseline, 2.0, 10.0);
+        gate.test("FacilityClientTest.importByFacilityAndDate", millis(150));
+        gate.test("FacilityClientTest.importByFacilityAndDate", millis(210));
+        gate.test("TemplateClientTest.generateHappy", millis(10_000));
+        AssertionError error = assertThrows(AssertionError.class,
+                () -> gate.test("FacilityClientTest.importByFacilityAndDate",
+                        millis(211)));
+        assertThat(error.getMessage(), containsString("importByFacilityAndDate"));
+        assertThat(error.getMessage(), containsString("baseline 100.0 ms"));
+
+    }
+
+    @Test
+    public void checkEndpoints() {
+
+        ClientMetrics recorded = new ClientMetrics();
+        record(recorded, "GET /fast", 10, LatencyGate.MIN_SAMPLES);
+        record(recorded, "GET /few", 10, LatencyGate.MIN_SAMPLES - 1);
+        new LatencyGate(RECORD, baseline, 2.0, 0.0).save(recorded);
+
+        LatencyGate gate = new LatencyGate(CHECK, baseline, 2.0, 0.0);
+        ClientMetrics metrics = new ClientMetrics();
+        record(metrics, "GET /fast", 15, LatencyGate.MIN_SAMPLES);
+        record(metrics, "GET /few", 100, LatencyGate.MIN_SAMPLES);
+        gate.endpoints(metrics);
+
+        // Each regression is reported once
+        record(metrics, "GET /fast", 100, LatencyGate.MIN_SAMPLES * 2);
+        AssertionError error = assertThrows(AssertionError.class,
+                () -> gate.endpoints(metrics));
+        assertThat(error.getMessage(), containsString("GET /fast median"));
+        gate.endpoints(metrics);
+
+    }
+
+    @Test
+    public void saveMerges() {
+
+        LatencyGate first = new LatencyGate(RECORD, baseline, 2.0, 0.0);
+        first.test("A.one", millis(10));
+        first.save(new ClientMetrics());
+        LatencyGate second = new LatencyGate(RECORD, baseline, 2.0, 0.0);
+        second.test("B.two", millis(10));
+        second.save(new ClientMetrics());
+
+        LatencyGate gate = new LatencyGate(CHECK, baseline, 2.0, 0.0);
+        assertThrows(AssertionError.class, () -> gate.test("A.one", millis(50)));
+        assertThrows(AssertionError.class, () -> gate.test("B.two", millis(50)));
+
+    }
+
+    @Test
+    public void suiteClasses() throws Exception {
+
+        List<Class<?>> classes = LatencyGateSuite.testClasses(Paths.get
+                (LatencyGateTest.class.getProtectionDomain()
+                        .getCodeSource().getLocation().toURI()));
+        assertThat(classes, hasItem(FacilityClientTest.class));
+        assertThat(classes, hasItem(LatencyGateTest.class));
+        assertThat(classes, not(hasItem(AbstractClientTest.class)));
+        assertThat(classes, not(hasItem(LatencyGateSuite.class)));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static long millis(long millis) {
+        return millis * 1_000_000;
+    }
+
+    private static void record(ClientMetrics metrics, String endpoint,
+                               long millis, int count) {
+        for (int i = 0; i < count; i++) {
+            metrics.endpoint(endpoint).record(200, millis(millis));
+        }
+    }
+
+}
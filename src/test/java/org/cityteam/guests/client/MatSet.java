@@ -0,0 +1,193 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+/**
+ * <p>Immutable set of mat numbers, parsed once from the range strings used
+ * by <code>Template</code> (<code>allMats</code>, <code>handicapMats</code>,
+ * and <code>socketMats</code>) such as <code>"1-10,12,15-20"</code>, and
+ * held as a <code>BitSet</code>.</p>
+ */
+public final class MatSet implements Iterable<Integer> {
+
+    // Static Variables ------------------------------------------------------
+
+    public static final MatSet EMPTY = new MatSet(new BitSet());
+
+    // Instance Variables ----------------------------------------------------
+
+    private final BitSet bits;
+
+    // Constructors ----------------------------------------------------------
+
+    private MatSet(BitSet bits) {
+        this.bits = bits;
+    }
+
+    // Static Methods --------------------------------------------------------
+
+    public static MatSet of(int... matNumbers) {
+        BitSet bits = new BitSet();
+        for (int matNumber : matNumbers) {
+            bits.set(check(matNumber));
+        }
+        return new MatSet(bits);
+    }
+
+    // Parse a comma-separated list of mat numbers and ranges (inclusive),
+    // where null or blank means no mats
+    public static MatSet parse(String mats) {
+        if ((mats == null) || mats.isBlank()) {
+            return EMPTY;
+        }
+        BitSet bits = new BitSet();
+        for (String item : mats.split(",")) {
+            String range = item.trim();
+            try {
+                int dash = range.indexOf('-', 1);
+                if (dash < 0) {
+                    bits.set(check(Integer.parseInt(range)));
+                } else {
+                    int from = check(Integer.parseInt
+                            (range.substring(0, dash).trim()));
+                    int to = check(Integer.parseInt
+                            (range.substring(dash + 1).trim()));
+                    if (from > to) {
+                        throw new IllegalArgumentException("Mat range '" +
+                                range + "' is backwards in '" + mats + "'");
+                    }
+                    bits.set(from, to + 1);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid mat range '" +
+                        range + "' in '" + mats + "'");
+            }
+        }
+        return new MatSet(bits);
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public boolean contains(int matNumber) {
+        return (matNumber > 0) && bits.get(matNumber);
+    }
+
+    // Is every mat in the specified set also in this one?
+    public boolean containsAll(MatSet that) {
+        BitSet missing = (BitSet) that.bits.clone();
+        missing.andNot(bits);
+        return missing.isEmpty();
+    }
+
+    public MatSet difference(MatSet that) {
+        BitSet result = (BitSet) bits.clone();
+        result.andNot(that.bits);
+        return new MatSet(result);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        return (object instanceof MatSet) && bits.equals(((MatSet) object).bits);
+    }
+
+    @Override
+    public int hashCode() {
+        return bits.hashCode();
+    }
+
+    public MatSet intersection(MatSet that) {
+        BitSet result = (BitSet) bits.clone();
+        result.and(that.bits);
+        return new MatSet(result);
+    }
+
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    // Iterate over mat numbers in ascending order
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            private int next = bits.nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public Integer next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                int result = next;
+                next = bits.nextSetBit(next + 1);
+                return result;
+            }
+        };
+    }
+
+    public int size() {
+        return bits.cardinality();
+    }
+
+    // Return mat numbers in ascending order
+    public IntStream stream() {
+        return bits.stream();
+    }
+
+    // Return the canonical range string, such as "1-10,12,15-20"
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        int from = bits.nextSetBit(0);
+        while (from >= 0) {
+            int to = bits.nextClearBit(from) - 1;
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(from);
+            if (to > from) {
+                sb.append('-').append(to);
+            }
+            from = bits.nextSetBit(to + 1);
+        }
+        return sb.toString();
+    }
+
+    public MatSet union(MatSet that) {
+        BitSet result = (BitSet) bits.clone();
+        result.or(that.bits);
+        return new MatSet(result);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static int check(int matNumber) {
+        if (matNumber < 1) {
+            throw new IllegalArgumentException("Mat number " + matNumber +
+                    " must be positive");
+        }
+        return matNumber;
+    }
+
+}
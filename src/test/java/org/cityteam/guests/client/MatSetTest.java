@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThrows;
+
+public class MatSetTest {
+
+    // Test Methods ----------------------------------------------------------
+
+    // parse() tests
+
+    @Test
+    public void parseHappy() {
+
+        MatSet mats = MatSet.parse("1-5, 7 ,10-12,3");
+        assertThat(mats.size(), is(equalTo(9)));
+        assertThat(mats, is(equalTo(MatSet.of(1, 2, 3, 4, 5, 7, 10, 11, 12))));
+        assertThat(mats.toString(), is(equalTo("1-5,7,10-12")));
+        assertThat(MatSet.parse(mats.toString()), is(equalTo(mats)));
+
+        assertThat(MatSet.parse("1-100").size(), is(equalTo(100)));
+        assertThat(MatSet.parse("42").toString(), is(equalTo("42")));
+
+    }
+
+    @Test
+    public void parseEmpty() {
+
+        assertThat(MatSet.parse(null).isEmpty(), is(true));
+        assertThat(MatSet.parse("").isEmpty(), is(true));
+        assertThat(MatSet.parse("  ").isEmpty(), is(true));
+        assertThat(MatSet.EMPTY.toString(), is(equalTo("")));
+
+    }
+
+    @Test
+    public void parseInvalid() {
+
+        assertThrows(IllegalArgumentException.class,
+                () -> MatSet.parse("0-5"));
+        assertThrows(IllegalArgumentException.class,
+                () -> MatSet.parse("-5"));
+        assertThrows(IllegalArgumentException.class,
+                () -> MatSet.parse("5-1"));
+        assertThrows(IllegalArgumentException.class,
+                () -> MatSet.parse("1-5,,7"));
+        assertThrows(IllegalArgumentException.class,
+                () -> MatSet.parse("1-x"));
+
+    }
+
+    // Set operation tests
+
+    @Test
+    public void containsHappy() {
+
+        MatSet mats = MatSet.parse("2-4,8");
+        assertThat(mats.contains(0), is(false));
+        assertThat(mats.contains(1), is(false));
+        assertThat(mats.contains(2), is(true));
+        assertThat(mats.contains(4), is(true));
+        assertThat(mats.contains(5), is(false));
+        assertThat(mats.contains(8), is(true));
+        assertThat(mats.contains(-1), is(false));
+        assertThat(mats.containsAll(MatSet.parse("3,8")), is(true));
+        assertThat(mats.containsAll(MatSet.parse("3,9")), is(false));
+
+    }
+
+    @Test
+    public void operationsHappy() {
+
+        MatSet a = MatSet.parse("1-10");
+        MatSet b = MatSet.parse("5-15");
+        assertThat(a.union(b), is(equalTo(MatSet.parse("1-15"))));
+        assertThat(a.intersection(b), is(equalTo(MatSet.parse("5-10"))));
+        assertThat(a.difference(b), is(equalTo(MatSet.parse("1-4"))));
+
+        // Operands are unchanged
+        assertThat(a.toString(), is(equalTo("1-10")));
+        assertThat(b.toString(), is(equalTo("5-15")));
+
+    }
+
+    @Test
+    public void iterateHappy() {
+
+        List<Integer> mats = new ArrayList<>();
+        for (int mat : MatSet.parse("9,1-3,6")) {
+            mats.add(mat);
+        }
+        assertThat(mats, is(equalTo(List.of(1, 2, 3, 6, 9))));
+        assertThat(MatSet.parse("9,1-3,6").stream().sum(), is(equalTo(21)));
+
+    }
+
+}
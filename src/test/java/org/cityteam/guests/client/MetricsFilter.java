@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <p>Jersey client filter (registered by {@link SharedClientBuilder}) that
+ * records every request in {@link ClientMetrics}: latency and status when
+ * the response arrives, and payload bytes as entities are written and
+ * read.</p>
+ */
+public class MetricsFilter
+        implements ClientRequestFilter, ClientResponseFilter, WriterInterceptor {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final String ENDPOINT =
+            MetricsFilter.class.getName() + ".endpoint";
+    private static final String STARTED =
+            MetricsFilter.class.getName() + ".started";
+
+    // Instance Variables ----------------------------------------------------
+
+    private final ClientMetrics metrics;
+
+    // Constructors ----------------------------------------------------------
+
+    public MetricsFilter(ClientMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context)
+            throws IOException {
+        Object endpoint = context.getProperty(ENDPOINT);
+        if (endpoint != null) {
+            ClientMetrics.Endpoint counts = metrics.endpoint((String) endpoint);
+            context.setOutputStream(
+                    new FilterOutputStream(context.getOutputStream()) {
+                        @Override
+                        public void write(int b) throws IOException {
+                            out.write(b);
+                            counts.addRequestBytes(1);
+                        }
+
+                        @Override
+                        public void write(byte[] b, int off, int len)
+                                throws IOException {
+                            out.write(b, off, len);
+                            counts.addRequestBytes(len);
+                        }
+                    });
+        }
+        context.proceed();
+    }
+
+    @Override
+    public void filter(ClientRequestContext request) {
+        request.setProperty(ENDPOINT,
+                ClientMetrics.endpoint(request.getMethod(), request.getUri()));
+        request.setProperty(STARTED, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ClientRequestContext request,
+                       ClientResponseContext response) {
+        Object endpoint = request.getProperty(ENDPOINT);
+        Object started = request.getProperty(STARTED);
+        if ((endpoint == null) || (started == null)) {
+            return;
+        }
+        ClientMetrics.Endpoint counts = metrics.endpoint((String) endpoint);
+        counts.record(response.getStatus(), System.nanoTime() - (Long) started);
+        if (response.hasEntity()) {
+            response.setEntityStream(
+                    new FilterInputStream(response.getEntityStream()) {
+                        @Override
+                        public int read() throws IOException {
+                            int b = in.read();
+                            if (b >= 0) {
+                                counts.addResponseBytes(1);
+                            }
+                            return b;
+                        }
+
+                        @Override
+                        public int read(byte[] b, int off, int len)
+                                throws IOException {
+                            int n = in.read(b, off, len);
+                            if (n > 0) {
+                                counts.addResponseBytes(n);
+                            }
+                            return n;
+                        }
+                    });
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Ban;
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Registration;
+import org.cityteam.guests.model.Template;
+
+import javax.ws.rs.core.GenericType;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p>Paged and keyset-cursor versions of the unbounded list endpoints.
+ * Each method returns a {@link Pager} whose cursor is the sort key the
+ * endpoint already orders by, such as last name plus first name for
+ * guests.</p>
+ */
+public class PagedClient extends AbstractClient {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final Comparator<Ban> BAN_ORDER = Comparator
+            .comparing(Ban::getGuestId)
+            .thenComparing(Ban::getBanFrom);
+
+    private static final Comparator<Guest> GUEST_NAME_ORDER = Comparator
+            .comparing(Guest::getLastName)
+            .thenComparing(Guest::getFirstName);
+
+    private static final Comparator<Guest> GUEST_ORDER = Comparator
+            .comparing(Guest::getFacilityId)
+            .thenComparing(GUEST_NAME_ORDER);
+
+    private static final Comparator<Registration> REGISTRATION_ORDER = Comparator
+            .comparing(Registration::getFacilityId)
+            .thenComparing(Registration::getRegistrationDate)
+            .thenComparing(Registration::getMatNumber);
+
+    private static final Comparator<Template> TEMPLATE_ORDER = Comparator
+            .comparing(Template::getName);
+
+    // Public Methods --------------------------------------------------------
+
+    // Paged equivalent of BanClient.findAll()
+    public Pager<Ban> findAllBans() {
+        return new Pager<>(getBaseTarget().path("/bans"),
+                new GenericType<List<Ban>>() {},
+                BAN_ORDER,
+                ban -> ban.getGuestId() + "|" + ban.getBanFrom());
+    }
+
+    // Paged equivalent of GuestClient.findAll()
+    public Pager<Guest> findAllGuests() {
+        return new Pager<>(getBaseTarget().path("/guests"),
+                new GenericType<List<Guest>>() {},
+                GUEST_ORDER,
+                guest -> guest.getFacilityId() + "|" +
+                        guest.getLastName() + "|" + guest.getFirstName());
+    }
+
+    // Paged equivalent of RegistrationClient.findAll()
+    public Pager<Registration> findAllRegistrations() {
+        return new Pager<>(getBaseTarget().path("/registrations"),
+                new GenericType<List<Registration>>() {},
+                REGISTRATION_ORDER,
+                registration -> registration.getFacilityId() + "|" +
+                        registration.getRegistrationDate() + "|" +
+                        registration.getMatNumber());
+    }
+
+    // Paged equivalent of TemplateClient.findAll()
+    public Pager<Template> findAllTemplates() {
+        return new Pager<>(getBaseTarget().path("/templates"),
+                new GenericType<List<Template>>() {},
+                TEMPLATE_ORDER,
+                Template::getName);
+    }
+
+    // Paged equivalent of FacilityClient.findGuestsByName()
+    public Pager<Guest> findGuestsByName(Long facilityId, String name) {
+        return new Pager<>(getBaseTarget()
+                        .path("/facilities")
+                        .path(facilityId.toString())
+                        .path("/guests/name")
+                        .path(name),
+                new GenericType<List<Guest>>() {},
+                GUEST_NAME_ORDER,
+                guest -> guest.getLastName() + "|" + guest.getFirstName());
+    }
+
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Ban;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Registration;
+import org.cityteam.guests.model.Template;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.GenericType;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+
+public class PagedClientTest extends AbstractClientTest {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final BanClient banClient = new BanClient();
+    private final FacilityClient facilityClient = new FacilityClient();
+    private final GuestClient guestClient = new GuestClient();
+    private final PagedClient pagedClient = new PagedClient();
+    private final RegistrationClient registrationClient =
+            new RegistrationClient();
+    private final TemplateClient templateClient = new TemplateClient();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        reseed();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // after() tests
+
+    @ReadOnly
+    @Test
+    public void afterHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        List<Guest> guests = guestClient.findAll();
+        Pager<Guest> pager = pagedClient.findAllGuests();
+        List<Guest> paged = new ArrayList<>();
+        Guest last = null;
+        while (true) {
+            List<Guest> page = pager.after(last, 2);
+            assertThat(page.size(), is(lessThanOrEqualTo(2)));
+            if (page.isEmpty()) {
+                break;
+            }
+            paged.addAll(page);
+            last = page.get(page.size() - 1);
+        }
+        assertThat(paged, is(equalTo(guests)));
+
+    }
+
+    // iterator() tests, repeating the findAllHappy() sort checks across
+    // page boundaries
+
+    @ReadOnly
+    @Test
+    public void findAllBansHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        List<Ban> bans = collect(pagedClient.findAllBans().iterator(2),
+                ban -> "" + ban.getGuestId() + "|" + ban.getBanFrom());
+        assertThat(bans, is(equalTo(banClient.findAll())));
+
+    }
+
+    @ReadOnly
+    @Test
+    public void findAllGuestsHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        List<Guest> guests = collect(pagedClient.findAllGuests().iterator(2),
+                guest -> guest.getFacilityId() + "|" +
+                        guest.getLastName() + "|" + guest.getFirstName());
+        assertThat(guests, is(equalTo(guestClient.findAll())));
+
+    }
+
+    @ReadOnly
+    @Test
+    public void findAllRegistrationsHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        List<Registration> registrations =
+                collect(pagedClient.findAllRegistrations().iterator(3),
+                        registration -> registration.getFacilityId() +
+                                "|" + registration.getRegistrationDate() +
+                                "|" + registration.getMatNumber());
+        assertThat(registrations, is(equalTo(registrationClient.findAll())));
+
+    }
+
+    @ReadOnly
+    @Test
+    public void findAllTemplatesHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        List<Template> templates =
+                collect(pagedClient.findAllTemplates().iterator(2),
+                        Template::getName);
+        assertThat(templates, is(equalTo(templateClient.findAll())));
+
+    }
+
+    @ReadOnly
+    @Isolated
+    @Test
+    public void findGuestsByNameHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
+        List<Guest> guests = collect(pagedClient
+                        .findGuestsByName(facility.getId(), "ubble").iterator(1),
+                guest -> guest.getLastName() + "|" + guest.getFirstName());
+        assertThat(guests, is(equalTo(
+                facilityClient.findGuestsByName(facility.getId(), "ubble"))));
+
+    }
+
+    @ReadOnly
+    @Isolated
+    @Test
+    public void findGuestsByNameNoMatch() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Iterator<Guest> guests = pagedClient
+                .findGuestsByName(Long.MAX_VALUE, "ubble").iterator(2);
+        assertThat(guests.hasNext(), is(false));
+
+    }
+
+    // iterator() against the stand-in walks keyset pages, requesting the
+    // next page before the caller reaches it
+
+    @ReadOnly
+    @Test
+    public void iteratorServerPaged() throws Exception {
+
+        if (disabled() || !EmbeddedServer.ENABLED) {
+            return;
+        }
+
+        List<Registration> registrations = registrationClient.findAll();
+        assertThat(registrations.size(), is(greaterThan(3)));
+        List<String> queries = new CopyOnWriteArrayList<>();
+        Iterator<Registration> iterator = registrations(queries).iterator(3);
+        assertThat(iterator.next(), is(equalTo(registrations.get(0))));
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((queries.size() < 2) &&
+                (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(10);
+        }
+        assertThat(queries.size(), is(2));
+
+        List<Registration> paged = new ArrayList<>();
+        paged.add(registrations.get(0));
+        iterator.forEachRemaining(paged::add);
+        assertThat(paged, is(equalTo(registrations)));
+        assertThat(queries.size(), is((registrations.size() / 3) + 1));
+        assertThat(queries.get(0), not(containsString("after=")));
+        for (String query : queries.subList(1, queries.size())) {
+            assertThat(query, containsString("after="));
+            assertThat(query, not(containsString("offset=")));
+        }
+
+    }
+
+    // page() tests
+
+    @ReadOnly
+    @Test
+    public void pageHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        List<Registration> registrations = registrationClient.findAll();
+        Pager<Registration> pager = pagedClient.findAllRegistrations();
+        int limit = 3;
+        for (int offset = 0; offset <= registrations.size(); offset += limit) {
+            List<Registration> expected = registrations.subList(offset,
+                    Math.min(offset + limit, registrations.size()));
+            assertThat(pager.page(offset, limit), is(equalTo(expected)));
+        }
+
+    }
+
+    // A page at an offset must not start at the front of the list, even
+    // when the whole list fits within the limit
+    @ReadOnly
+    @Test
+    public void pageOffsetWithinLimit() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        List<Registration> registrations = registrationClient.findAll();
+        assertThat(registrations.size(), is(greaterThan(5)));
+        Pager<Registration> pager = pagedClient.findAllRegistrations();
+        int limit = registrations.size() + 10;
+        assertThat(pager.page(5, limit), is(equalTo(
+                registrations.subList(5, registrations.size()))));
+        assertThat(pager.page(0, limit), is(equalTo(registrations)));
+        assertThat(pager.page(registrations.size(), limit).size(), is(0));
+
+    }
+
+    // The stand-in honors limit and offset, so each page is one request,
+    // plus the single probe that checks the first nonzero offset
+    @ReadOnly
+    @Test
+    public void pageServerPaged() throws Exception {
+
+        if (disabled() || !EmbeddedServer.ENABLED) {
+            return;
+        }
+
+        List<Registration> registrations = registrationClient.findAll();
+        List<String> queries = new CopyOnWriteArrayList<>();
+        Pager<Registration> pager = registrations(queries);
+        int limit = 3;
+        int pages = 0;
+        for (int offset = 0; offset <= registrations.size(); offset += limit) {
+            List<Registration> expected = registrations.subList(offset,
+                    Math.min(offset + limit, registrations.size()));
+            assertThat(pager.page(offset, limit), is(equalTo(expected)));
+            pages++;
+        }
+        assertThat(queries.size(), is(pages + 1));
+        for (String query : queries) {
+            assertThat(query, containsString("limit=3"));
+        }
+
+    }
+
+    // A server that ignores limit and offset is downloaded once, and the
+    // pages are sliced from that list for the rest of the pager's life
+    @Test
+    public void pageUnpagedServer() throws Exception {
+
+        StandInConnector connector = new StandInConnector(request ->
+                StandInConnector.ok(request, "[{\"name\":\"A\"}," +
+                        "{\"name\":\"B\"},{\"name\":\"C\"}," +
+                        "{\"name\":\"D\"},{\"name\":\"E\"}]"));
+        Pager<Template> pager = templates
+                (connector.client().target("http://stand-in/templates"));
+        assertThat(names(pager.page(0, 2)), is(equalTo("A,B")));
+        assertThat(connector.getCalls(), is(1));
+        assertThat(names(pager.page(2, 2)), is(equalTo("C,D")));
+        assertThat(names(pager.page(4, 2)), is(equalTo("E")));
+        assertThat(names(pager.after(pager.page(1, 1).get(0), 10)),
+                is(equalTo("C,D,E")));
+        assertThat(connector.getCalls(), is(1));
+
+        // Everything fits within the limit, so the first call cannot tell
+        // and the nonzero offset costs exactly one probe
+        pager = templates
+                (connector.client().target("http://stand-in/templates"));
+        assertThat(names(pager.page(3, 10)), is(equalTo("D,E")));
+        assertThat(connector.getCalls(), is(3));
+        assertThat(names(pager.page(1, 10)), is(equalTo("B,C,D,E")));
+        assertThat(connector.getCalls(), is(3));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    // Drain the iterator, checking that keys are strictly ascending
+    private <M> List<M> collect(Iterator<M> iterator, Function<M, String> key) {
+        List<M> results = new ArrayList<>();
+        String previousKey = null;
+        while (iterator.hasNext()) {
+            M result = iterator.next();
+            String thisKey = key.apply(result);
+            if (previousKey != null) {
+                assertThat(thisKey, is(greaterThan(previousKey)));
+            }
+            previousKey = thisKey;
+            results.add(result);
+        }
+        assertThat(results.size(), is(greaterThan(0)));
+        return results;
+    }
+
+    // Return the names of the specified templates, comma separated
+    private String names(List<Template> templates) {
+        return templates.stream()
+                .map(Template::getName)
+                .collect(Collectors.joining(","));
+    }
+
+    // Return a registrations pager that records the query of each request
+    private Pager<Registration> registrations(List<String> queries) {
+        ClientRequestFilter filter = request ->
+                queries.add(String.valueOf(request.getUri().getQuery()));
+        return new Pager<>(pagedClient.getBaseTarget().path("/registrations")
+                        .register(filter, ClientRequestFilter.class),
+                new GenericType<List<Registration>>() {},
+                Comparator.comparing(Registration::getFacilityId)
+                        .thenComparing(Registration::getRegistrationDate)
+                        .thenComparing(Registration::getMatNumber),
+                registration -> registration.getFacilityId() + "|" +
+                        registration.getRegistrationDate() + "|" +
+                        registration.getMatNumber());
+    }
+
+    // Return a templates pager on the specified target
+    private Pager<Template> templates(WebTarget target) {
+        return new Pager<>(target,
+                new GenericType<List<Template>>() {},
+                Comparator.comparing(Template::getName),
+                Template::getName);
+    }
+
+}
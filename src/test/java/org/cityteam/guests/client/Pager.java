@@ -0,0 +1,222 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.craigmcc.library.shared.exception.InternalServerError;
+
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * <p>Paged access to one list endpoint, either by offset or by keyset
+ * cursor (the sort key of the last element already seen).  Requests pass
+ * <code>limit</code> plus <code>offset</code> or <code>after</code> query
+ * parameters.  A server that ignores them returns the complete list, in
+ * which case the page is cut out on the client side, so results are the
+ * same either way.  That list is then kept for the life of the pager and
+ * every later page is cut from it, so walking all pages downloads it at
+ * most twice (once more if a short page at a nonzero offset has to be
+ * compared with the first page).</p>
+ *
+ * @param <M> Model class returned by the endpoint
+ */
+public class Pager<M> {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Comparator<M> comparator;
+    private final Function<M, String> key;
+    private final WebTarget target;
+    private final GenericType<List<M>> type;
+
+    // The whole list, once the server is known to ignore paging
+    private volatile List<M> all = null;
+
+    // Whether the server honors limit and offset, or null if not yet known
+    private volatile Boolean paging = null;
+
+    // Constructors ----------------------------------------------------------
+
+    /**
+     * @param target Target for the list endpoint
+     * @param type Type of the list the endpoint returns
+     * @param comparator Sort order of the endpoint
+     * @param key Cursor value for the sort key of an element
+     */
+    public Pager(WebTarget target,
+                 GenericType<List<M>> type,
+                 Comparator<M> comparator,
+                 Function<M, String> key) {
+        this.comparator = comparator;
+        this.key = key;
+        this.target = target;
+        this.type = type;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    // Return up to limit elements sorting after the specified element
+    // (or from the start if null)
+    public List<M> after(M last, int limit) throws InternalServerError {
+        List<M> results = fetch(last, limit);
+        return new ArrayList<>(results.subList(0,
+                Math.min(limit, results.size())));
+    }
+
+    // Return an iterator over every element, fetching limit elements at a
+    // time and requesting each page while the previous one is consumed
+    public Iterator<M> iterator(int limit) throws InternalServerError {
+        return new PageIterator(limit);
+    }
+
+    // Return up to limit elements starting at the zero-relative offset
+    public List<M> page(int offset, int limit) throws InternalServerError {
+        List<M> results = all;
+        if (results == null) {
+            results = get(target
+                    .queryParam("limit", limit)
+                    .queryParam("offset", offset));
+            if (results.size() > limit) {
+                unpaged(results);
+            } else if ((offset == 0) || !pagingIgnored(results, limit)) {
+                return results;
+            }
+        }
+        int from = Math.min(offset, results.size());
+        int to = Math.min(offset + limit, results.size());
+        return new ArrayList<>(results.subList(from, to));
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    // Return the elements after last, which is more than limit elements
+    // only if the server does not support paging
+    private List<M> fetch(M last, int limit) throws InternalServerError {
+        List<M> results = all;
+        if (results == null) {
+            WebTarget paged = target.queryParam("limit", limit);
+            results = get((last == null) ? paged :
+                    paged.queryParam("after", key.apply(last)));
+            if (results.size() > limit) {
+                unpaged(results);
+            }
+        }
+        if (last == null) {
+            return results;
+        }
+        int skip = 0;
+        while ((skip < results.size()) &&
+                (comparator.compare(results.get(skip), last) <= 0)) {
+            skip++;
+        }
+        return (skip == 0) ? results : results.subList(skip, results.size());
+    }
+
+    // Return true if the server returned the whole list for a page at a
+    // nonzero offset of at most limit elements, which a paging server
+    // would have started after the first page.  Decided by comparing with
+    // the first page, once per pager (an empty page is the same either way)
+    private boolean pagingIgnored(List<M> results, int limit)
+            throws InternalServerError {
+        if ((paging == null) && !results.isEmpty()) {
+            if (results.equals(get(target
+                    .queryParam("limit", limit)
+                    .queryParam("offset", 0)))) {
+                unpaged(results);
+            } else {
+                paging = true;
+            }
+        }
+        return Boolean.FALSE.equals(paging);
+    }
+
+    // Remember the whole list returned by a server that ignores paging
+    private void unpaged(List<M> results) {
+        all = results;
+        paging = false;
+    }
+
+    private List<M> get(WebTarget paged) throws InternalServerError {
+        Response response = paged
+                .request(MediaType.APPLICATION_JSON)
+                .get();
+        try {
+            if (response.getStatus() != AbstractClient.RESPONSE_OK) {
+                throw new InternalServerError(response.readEntity(String.class));
+            }
+            List<M> results = response.readEntity(type);
+            return (results != null) ? results : Collections.emptyList();
+        } finally {
+            response.close();
+        }
+    }
+
+    // Private Classes -------------------------------------------------------
+
+    private class PageIterator implements Iterator<M> {
+
+        private Iterator<M> current;
+        private final int limit;
+        private CompletableFuture<List<M>> next;
+
+        PageIterator(int limit) throws InternalServerError {
+            this.limit = limit;
+            accept(fetch(null, limit));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (next == null) {
+                    return false;
+                }
+                accept(next.join());
+            }
+            return true;
+        }
+
+        @Override
+        public M next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        // Start on a newly fetched page, prefetching the one after it
+        // unless this page was short (or was the whole unpaged list)
+        private void accept(List<M> page) {
+            current = page.iterator();
+            next = null;
+            if (page.size() == limit) {
+                M last = page.get(limit - 1);
+                next = ClientExecutor.supply(() -> fetch(last, limit));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.craigmcc.library.shared.exception.NotUnique;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.cityteam.guests.client.GenerateResult.Status.CONFLICT;
+import static org.cityteam.guests.client.GenerateResult.Status.FAILED;
+import static org.cityteam.guests.client.GenerateResult.Status.GENERATED;
+import static org.cityteam.guests.client.GenerateResult.Status.SKIPPED;
+
+/**
+ * <p>Opt-in <code>TemplateClient</code> that generates registrations for a
+ * range of dates, with up to <code>parallelism</code> dates in flight at
+ * once.  Dates are started in ascending order.  Once any date reports a
+ * conflict or other failure, no further dates are started; those are
+ * reported as <code>SKIPPED</code>.</p>
+ */
+public class RangeTemplateClient extends TemplateClient {
+
+    // Static Variables ------------------------------------------------------
+
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    // Instance Variables ----------------------------------------------------
+
+    private final int parallelism;
+
+    // Constructors ----------------------------------------------------------
+
+    public RangeTemplateClient() {
+        this(DEFAULT_PARALLELISM);
+    }
+
+    public RangeTemplateClient(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    // Generate registrations for each date from firstDate to lastDate
+    // (inclusive), returning the result for every date in the range
+    public SortedMap<LocalDate, GenerateResult> generate(Long templateId,
+                                                         LocalDate firstDate,
+                                                         LocalDate lastDate) {
+
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = firstDate; !date.isAfter(lastDate);
+             date = date.plusDays(1)) {
+            dates.add(date);
+        }
+
+        GenerateResult[] results = new GenerateResult[dates.size()];
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean stopped = new AtomicBoolean(false);
+        CompletableFuture<?>[] lanes =
+                new CompletableFuture<?>[Math.min(parallelism, dates.size())];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = ClientExecutor.supply(() -> {
+                lane(templateId, dates, results, next, stopped);
+                return null;
+            });
+        }
+        CompletableFuture.allOf(lanes).join();
+
+        SortedMap<LocalDate, GenerateResult> map = new TreeMap<>();
+        for (int i = 0; i < results.length; i++) {
+            map.put(dates.get(i), (results[i] != null) ? results[i] :
+                    new GenerateResult(dates.get(i), SKIPPED, null, null));
+        }
+        return map;
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    // One lane of the pipeline: claim the next date, generate it, repeat
+    private void lane(Long templateId,
+                      List<LocalDate> dates,
+                      GenerateResult[] results,
+                      AtomicInteger next,
+                      AtomicBoolean stopped) {
+        int index;
+        while (!stopped.get() &&
+                ((index = next.getAndIncrement()) < dates.size())) {
+            LocalDate date = dates.get(index);
+            try {
+                results[index] = new GenerateResult(date, GENERATED,
+                        super.generate(templateId, date), null);
+            } catch (NotUnique e) {
+                stopped.set(true);
+                results[index] = new GenerateResult(date, CONFLICT, null, e);
+            } catch (Exception e) {
+                stopped.set(true);
+                results[index] = new GenerateResult(date, FAILED, null, e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Template;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.SortedMap;
+
+import static org.cityteam.guests.client.GenerateResult.Status.CONFLICT;
+import static org.cityteam.guests.client.GenerateResult.Status.GENERATED;
+import static org.cityteam.guests.client.GenerateResult.Status.SKIPPED;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class RangeTemplateClientTest extends AbstractClientTest {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final FacilityClient facilityClient = new FacilityClient();
+    private final TemplateClient templateClient = new TemplateClient();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        reseed();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // generate() tests
+
+    @Isolated
+    @Test
+    public void generateHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility = facilityClient.findByNameExact(facilityName("San Francisco"));
+        Template template = facilityClient.findTemplatesByNameExact
+                (facility.getId(), "San Francisco COVID");
+        LocalDate firstDate = LocalDate.parse("2021-03-01");
+        LocalDate lastDate = LocalDate.parse("2021-03-31");
+
+        SortedMap<LocalDate, GenerateResult> results =
+                new RangeTemplateClient(8).generate
+                        (template.getId(), firstDate, lastDate);
+
+        assertThat(results.size(), is(equalTo(31)));
+        assertThat(results.firstKey(), is(equalTo(firstDate)));
+        assertThat(results.lastKey(), is(equalTo(lastDate)));
+        for (GenerateResult result : results.values()) {
+            assertThat(result.toString(), result.getStatus(),
+                    is(equalTo(GENERATED)));
+            assertThat(result.getRegistrations().size(), is(equalTo(12)));
+            assertThat(facilityClient.findRegistrationsByFacilityAndDate
+                            (facility.getId(), result.getRegistrationDate()),
+                    is(equalTo(result.getRegistrations())));
+        }
+
+    }
+
+    @Isolated
+    @Test
+    public void generateConflict() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility = facilityClient.findByNameExact(facilityName("San Francisco"));
+        Template template = facilityClient.findTemplatesByNameExact
+                (facility.getId(), "San Francisco COVID");
+        LocalDate firstDate = LocalDate.parse("2021-04-01");
+        LocalDate conflictDate = LocalDate.parse("2021-04-10");
+        LocalDate lastDate = LocalDate.parse("2021-04-30");
+        templateClient.generate(template.getId(), conflictDate);
+
+        // One at a time, every date after the conflict is skipped
+        SortedMap<LocalDate, GenerateResult> results =
+                new RangeTemplateClient(1).generate
+                        (template.getId(), firstDate, lastDate);
+
+        assertThat(results.size(), is(equalTo(30)));
+        for (GenerateResult result : results.values()) {
+            LocalDate date = result.getRegistrationDate();
+            if (date.isBefore(conflictDate)) {
+                assertThat(result.toString(), result.getStatus(),
+                        is(equalTo(GENERATED)));
+            } else if (date.equals(conflictDate)) {
+                assertThat(result.toString(), result.getStatus(),
+                        is(equalTo(CONFLICT)));
+            } else {
+                assertThat(result.toString(), result.getStatus(),
+                        is(equalTo(SKIPPED)));
+                assertThat(facilityClient.findRegistrationsByFacilityAndDate
+                        (facility.getId(), date).size(), is(equalTo(0)));
+            }
+        }
+
+    }
+
+    @Isolated
+    @Test
+    public void generateConflictParallel() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility = facilityClient.findByNameExact(facilityName("San Francisco"));
+        Template template = facilityClient.findTemplatesByNameExact
+                (facility.getId(), "San Francisco COVID");
+        LocalDate firstDate = LocalDate.parse("2021-05-01");
+        LocalDate lastDate = LocalDate.parse("2021-05-31");
+        templateClient.generate(template.getId(), firstDate);
+
+        // The first date conflicts, so the other lanes stop claiming
+        // dates as soon as it is reported
+        int parallelism = 4;
+        SortedMap<LocalDate, GenerateResult> results =
+                new RangeTemplateClient(parallelism).generate
+                        (template.getId(), firstDate, lastDate);
+
+        assertThat(results.get(firstDate).getStatus(), is(equalTo(CONFLICT)));
+        int skipped = 0;
+        for (GenerateResult result : results.values()) {
+            if (result.getStatus() == SKIPPED) {
+                skipped++;
+            } else if (!result.getRegistrationDate().equals(firstDate)) {
+                assertThat(result.toString(), result.getStatus(),
+                        is(not(equalTo(CONFLICT))));
+            }
+        }
+        assertThat(skipped, is(greaterThan(0)));
+
+    }
+
+}
@@ -27,7 +27,6 @@ import org.junit.Test;
 import java.time.LocalDate;
 import java.util.List;
 
-import static java.lang.Boolean.TRUE;
 import static org.cityteam.guests.model.types.PaymentType.AG;
 import static org.cityteam.guests.model.types.PaymentType.CT;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -49,18 +48,14 @@ public class RegistrationClientTest extends AbstractClientTest {
 
     @Before
     public void before() {
-        if ((depopulateEnabled == null) || (TRUE == depopulateEnabled)) {
-            depopulate();
-        }
-        if ((populateEnabled == null) || (TRUE == populateEnabled)) {
-            populate();
-        }
+        reseed();
     }
 
     // Test Methods ----------------------------------------------------------
 
     // assign() tests
 
+    @Isolated
     @Test
     public void assignHappy() throws Exception {
 
@@ -68,7 +63,7 @@ public class RegistrationClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Oakland");
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
         LocalDate registrationDate = LocalDate.parse("2020-07-09");
         Registration registration = newRegistration
                 (facility.getId(), 3, registrationDate);
@@ -94,6 +89,7 @@ public class RegistrationClientTest extends AbstractClientTest {
 
     // deassign() tests
 
+    @Isolated
     @Test
     public void deassignHappy() throws Exception {
 
@@ -101,7 +97,7 @@ public class RegistrationClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("San Francisco");
+        Facility facility = facilityClient.findByNameExact(facilityName("San Francisco"));
         LocalDate registrationDate = LocalDate.parse("2020-07-04");
         Registration registration = newRegistration
                 (facility.getId(), 3, registrationDate);
@@ -153,6 +149,8 @@ public class RegistrationClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void deleteNotFound() throws Exception {
 
@@ -167,6 +165,7 @@ public class RegistrationClientTest extends AbstractClientTest {
 
     // find() tests
 
+    @ReadOnly
     @Test
     public void findHappy() throws Exception {
 
@@ -184,6 +183,8 @@ public class RegistrationClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findNotFound() throws Exception {
 
@@ -198,6 +199,7 @@ public class RegistrationClientTest extends AbstractClientTest {
 
     // findAll() tests
 
+    @ReadOnly
     @Test
     public void findAllHappy() throws Exception {
 
@@ -223,6 +225,7 @@ public class RegistrationClientTest extends AbstractClientTest {
 
     // insert() tests
 
+    @Isolated
     @Test
     public void insertHappy() throws Exception {
 
@@ -230,7 +233,7 @@ public class RegistrationClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Chester");
+        Facility facility = facilityClient.findByNameExact(facilityName("Chester"));
         LocalDate registrationDate = LocalDate.parse("2020-07-08");
         Registration registration = newRegistration
                 (facility.getId(), 1, registrationDate);
@@ -254,6 +257,7 @@ public class RegistrationClientTest extends AbstractClientTest {
 
     // update() tests
 
+    @Isolated
     @Test
     public void updateHappy() throws Exception {
 
@@ -261,7 +265,7 @@ public class RegistrationClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Chester");
+        Facility facility = facilityClient.findByNameExact(facilityName("Chester"));
         LocalDate registrationDate = LocalDate.parse("2020-07-07");
         Registration registration = newRegistration
                 (facility.getId(), 2, registrationDate);
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.apache.connector.ApacheHttpClientBuilderConfigurator;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.JerseyClient;
+import org.glassfish.jersey.client.JerseyClientBuilder;
+import org.glassfish.jersey.client.RequestEntityProcessing;
+import org.glassfish.jersey.client.filter.EncodingFilter;
+import org.glassfish.jersey.message.DeflateEncoder;
+import org.glassfish.jersey.message.GZipEncoder;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.core.Configuration;
+import java.security.KeyStore;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * <p>JAX-RS <code>ClientBuilder</code> (registered through
+ * <code>META-INF/services</code>) that hands every caller, and therefore
+ * every <code>AbstractClient</code> subclass, the same Jersey client.
+ * Callers that configure their builder differently (other properties, or
+ * components of other classes) get a client of their own, shared in turn
+ * with callers configured the same way, so that no configuration is
+ * dropped.  Callers that set their own executor or TLS settings always
+ * get a client of their own.  These clients send requests through a pool
+ * of keep-alive connections, tuned by these system properties:</p>
+ * <ul>
+ *     <li><code>guests.client.shared</code> - Set to <code>false</code> to
+ *         build a new, unpooled client per caller (default true)</li>
+ *     <li><code>guests.client.maxConnections</code> - Maximum pooled
+ *         connections in total (default 100)</li>
+ *     <li><code>guests.client.maxPerRoute</code> - Maximum pooled
+ *         connections per host and port (default 20)</li>
+ *     <li><code>guests.client.leaseTimeout</code> - Milliseconds to wait
+ *         for a pooled connection (default 30000)</li>
+ *     <li><code>guests.client.singleFlight</code> - Set to
+ *         <code>true</code> to merge a GET with an identical one already
+ *         in flight (default false, see {@link SingleFlightConnector})</li>
+ *     <li><code>guests.client.conditional</code> - Set to
+ *         <code>true</code> to revalidate stored responses with
+ *         conditional GETs, instead of sending them unconditionally
+ *         (default false, see {@link ConditionalFilter})</li>
+ *     <li><code>guests.client.conditionalEntries</code> - Maximum stored
+ *         responses for conditional GETs (default 1000)</li>
+ *     <li><code>guests.client.compression</code> - Set to
+ *         <code>false</code> to neither accept compressed responses nor
+ *         compress request bodies (default true)</li>
+ *     <li><code>guests.client.compressionEncoding</code> - Encoding for
+ *         compressed request bodies, <code>gzip</code> or
+ *         <code>deflate</code> (default gzip, see
+ *         {@link CompressionInterceptor})</li>
+ *     <li><code>guests.client.compressionMinSize</code> - Smallest request
+ *         body, in bytes, to compress, such as 1024.  Not every server
+ *         accepts compressed request bodies, so they are sent as they are
+ *         unless this is set (default -1, never compress)</li>
+ *     <li><code>guests.client.smile</code> - Set to <code>true</code> to
+ *         prefer Smile responses over JSON (default false, see
+ *         {@link SmileFilter})</li>
+ * </ul>
+ *
+ * <p>Single-flight, conditional GETs, request compression, and Smile are
+ * off unless asked for, so that plain Jersey and JSON are what the tests
+ * exercise by default (<code>mvn test -Pclient-features</code> turns them
+ * all on).</p>
+ *
+ * <p>In virtual thread mode (see {@link ClientExecutor}), asynchronous
+ * requests run on its virtual threads instead of Jersey's pool.  Unless
+ * disabled, every client built here records {@link ClientMetrics}.  Every
+ * client reads and writes models with the cached readers and writers of
+ * the {@link ClientMappers}.</p>
+ */
+public class SharedClientBuilder extends JerseyClientBuilder {
+
+    // Static Variables ------------------------------------------------------
+
+    public static final boolean COMPRESSION = Boolean.parseBoolean
+            (System.getProperty("guests.client.compression", "true"));
+    public static final String COMPRESSION_ENCODING = System.getProperty
+            ("guests.client.compressionEncoding", CompressionInterceptor.GZIP);
+    public static final int COMPRESSION_MIN_SIZE =
+            Integer.getInteger("guests.client.compressionMinSize", -1);
+    public static final boolean CONDITIONAL = Boolean.parseBoolean
+            (System.getProperty("guests.client.conditional", "false"));
+    public static final int CONDITIONAL_ENTRIES =
+            Integer.getInteger("guests.client.conditionalEntries", 1000);
+    public static final int LEASE_TIMEOUT =
+            Integer.getInteger("guests.client.leaseTimeout", 30000);
+    public static final int MAX_CONNECTIONS =
+            Integer.getInteger("guests.client.maxConnections", 100);
+    public static final int MAX_PER_ROUTE =
+            Integer.getInteger("guests.client.maxPerRoute", 20);
+    public static final boolean SHARED = Boolean.parseBoolean
+            (System.getProperty("guests.client.shared", "true"));
+    public static final boolean SMILE = Boolean.parseBoolean
+            (System.getProperty("guests.client.smile", "false"));
+    public static final boolean SINGLE_FLIGHT = Boolean.parseBoolean
+            (System.getProperty("guests.client.singleFlight", "false"));
+
+    // Shared clients, keyed by the configuration of their first caller
+    private static final Map<String, JerseyClient> clients = new HashMap<>();
+
+    // Instance Variables ----------------------------------------------------
+
+    // Has the caller set something a configuration key cannot capture?
+    private boolean unshareable = false;
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public JerseyClient build() {
+        if (!SHARED) {
+            register(new ClientMappers.JsonProvider());
+            register(new ClientMappers.Resolver());
+            if (ClientMetrics.ENABLED) {
+                register(new MetricsFilter(ClientMetrics.global()));
+            }
+            return super.build();
+        }
+        if (unshareable) {
+            return buildPooled();
+        }
+        String key = key(getConfiguration());
+        synchronized (SharedClientBuilder.class) {
+            JerseyClient client = clients.get(key);
+            if (client == null) {
+                client = buildPooled();
+                clients.put(key, client);
+            }
+            return client;
+        }
+    }
+
+    @Override
+    public ClientBuilder executorService(ExecutorService executorService) {
+        unshareable = true;
+        return super.executorService(executorService);
+    }
+
+    @Override
+    public JerseyClientBuilder hostnameVerifier(HostnameVerifier verifier) {
+        unshareable = true;
+        return super.hostnameVerifier(verifier);
+    }
+
+    @Override
+    public JerseyClientBuilder keyStore(KeyStore keyStore, char[] password) {
+        unshareable = true;
+        return super.keyStore(keyStore, password);
+    }
+
+    @Override
+    public ClientBuilder scheduledExecutorService
+            (ScheduledExecutorService scheduledExecutorService) {
+        unshareable = true;
+        return super.scheduledExecutorService(scheduledExecutorService);
+    }
+
+    @Override
+    public JerseyClientBuilder sslContext(SSLContext sslContext) {
+        unshareable = true;
+        return super.sslContext(sslContext);
+    }
+
+    @Override
+    public JerseyClientBuilder trustStore(KeyStore trustStore) {
+        unshareable = true;
+        return super.trustStore(trustStore);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private JerseyClient buildPooled() {
+
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_PER_ROUTE);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(LEASE_TIMEOUT)
+                .build();
+
+        // Keep whatever the caller configured, on pooled connections
+        ClientConfig config = new ClientConfig().loadFrom(getConfiguration());
+        if (SINGLE_FLIGHT) {
+            config.connectorProvider(new SingleFlightConnector.Provider(
+                    new ApacheConnectorProvider(),
+                    ClientMetrics.ENABLED ? ClientMetrics.global() : null));
+        } else {
+            config.connectorProvider(new ApacheConnectorProvider());
+        }
+        config.property(ApacheClientProperties.CONNECTION_MANAGER,
+                connectionManager);
+        // Targets with their own configuration get their own connectors,
+        // none of which may shut down the pool when they are discarded
+        config.property(ApacheClientProperties.CONNECTION_MANAGER_SHARED,
+                true);
+        config.property(ApacheClientProperties.REQUEST_CONFIG,
+                requestConfig);
+        config.property(ClientProperties.REQUEST_ENTITY_PROCESSING,
+                RequestEntityProcessing.BUFFERED);
+        config.register(new ClientMappers.JsonProvider());
+        config.register(new ClientMappers.Resolver());
+        if (ClientMetrics.ENABLED) {
+            config.register(new MetricsFilter(ClientMetrics.global()));
+        }
+        if (CONDITIONAL) {
+            config.register(new ConditionalFilter(CONDITIONAL_ENTRIES));
+        }
+        // Decompress responses here rather than in HttpClient, so that
+        // metrics see the bytes actually received
+        config.register((ApacheHttpClientBuilderConfigurator)
+                        HttpClientBuilder::disableContentCompression,
+                ApacheHttpClientBuilderConfigurator.class);
+        if (COMPRESSION) {
+            config.register(EncodingFilter.class);
+            config.register(GZipEncoder.class);
+            config.register(DeflateEncoder.class);
+            if (COMPRESSION_MIN_SIZE >= 0) {
+                config.register(new CompressionInterceptor
+                        (COMPRESSION_ENCODING, COMPRESSION_MIN_SIZE));
+            }
+        }
+        if (SMILE) {
+            config.register(new SmileFilter());
+            config.register(SmileFilter.provider());
+        }
+        withConfig(config);
+        if (ClientExecutor.VIRTUAL_THREADS && !unshareable) {
+            super.executorService(ClientExecutor.executor());
+        }
+        return super.build();
+
+    }
+
+    // Describe a caller's configuration by its properties and the classes
+    // of its components, so that every AbstractClient subclass (each with
+    // its own instance of the same resolver) shares one client
+    private static String key(Configuration configuration) {
+        Set<String> components = new TreeSet<>();
+        for (Class<?> clazz : configuration.getClasses()) {
+            components.add(clazz.getName());
+        }
+        for (Object instance : configuration.getInstances()) {
+            components.add(instance.getClass().getName());
+        }
+        return new TreeMap<>(configuration.getProperties()) + " " + components;
+    }
+
+}
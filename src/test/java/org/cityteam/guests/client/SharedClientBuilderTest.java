@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.junit.Test;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+
+public class SharedClientBuilderTest {
+
+    // Test Methods ----------------------------------------------------------
+
+    @Test
+    public void executorServiceKept() throws Exception {
+
+        ExecutorService executor = Executors.newSingleThreadExecutor
+                (runnable -> new Thread(runnable, "builder-test"));
+        try {
+            Client client = ClientBuilder.newBuilder()
+                    .executorService(executor)
+                    .register(AbortFilter.class)
+                    .build();
+            if (SharedClientBuilder.SHARED) {
+                assertThat(client, is(not(sameInstance
+                        (ClientBuilder.newBuilder()
+                                .register(AbortFilter.class)
+                                .build()))));
+            }
+            Response response = client.target("http://localhost/")
+                    .request()
+                    .async()
+                    .get()
+                    .get(10, TimeUnit.SECONDS);
+            assertThat(response.getStatus(), is(equalTo(AbortFilter.STATUS)));
+            assertThat(AbortFilter.thread.getName(), startsWith("builder-test"));
+        } finally {
+            executor.shutdownNow();
+        }
+
+    }
+
+    @Test
+    public void propertiesKept() {
+
+        Client client = ClientBuilder.newBuilder()
+                .property("guests.test.property", "kept")
+                .build();
+        assertThat(client.getConfiguration().getProperty
+                ("guests.test.property"), is(equalTo("kept")));
+        assertThat(ClientBuilder.newClient().getConfiguration()
+                .getProperty("guests.test.property"), is((Object) null));
+
+    }
+
+    @Test
+    public void registrationsKept() {
+
+        Client client = ClientBuilder.newBuilder()
+                .register(AbortFilter.class)
+                .build();
+        Response response = client.target("http://localhost/")
+                .request()
+                .get();
+        assertThat(response.getStatus(), is(equalTo(AbortFilter.STATUS)));
+        assertThat(ClientBuilder.newClient().getConfiguration()
+                .isRegistered(AbortFilter.class), is(false));
+
+    }
+
+    @Test
+    public void sameConfigurationShared() {
+
+        if (!SharedClientBuilder.SHARED) {
+            return;
+        }
+
+        assertThat(ClientBuilder.newClient(),
+                is(sameInstance(ClientBuilder.newClient())));
+        assertThat(ClientBuilder.newBuilder()
+                        .register(new AbortFilter())
+                        .build(),
+                is(sameInstance(ClientBuilder.newBuilder()
+                        .register(new AbortFilter())
+                        .build())));
+
+    }
+
+    // Public Classes --------------------------------------------------------
+
+    public static class AbortFilter implements ClientRequestFilter {
+
+        private static final int STATUS = 299;
+
+        private static volatile Thread thread = null;
+
+        @Override
+        public void filter(ClientRequestContext request) {
+            thread = Thread.currentThread();
+            request.abortWith(Response.status(STATUS).build());
+        }
+
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * <p>Coalesces concurrent calls with the same key: the first caller (the
+ * leader) runs the call, and every caller that arrives with the same key
+ * while it is still running waits for, and receives, the leader's result
+ * or exception instead of running the call again.  Once the call finishes
+ * the key is forgotten, so nothing is cached.</p>
+ *
+ * @param <T> Result type of the coalesced calls
+ */
+public class SingleFlight<T> {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final ConcurrentMap<String, CompletableFuture<T>> flights =
+            new ConcurrentHashMap<>();
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder merged = new LongAdder();
+
+    // Public Methods --------------------------------------------------------
+
+    // Return the result of the call in flight for this key, running it
+    // first if there is none.  Exceptions thrown by the leader's call are
+    // rethrown to every caller.
+    public T execute(String key, Supplier<T> call) {
+        return execute(key, call, null);
+    }
+
+    // As above, calling onMerged (if any) when joining another's flight
+    public T execute(String key, Supplier<T> call, Runnable onMerged) {
+        CompletableFuture<T> flight = new CompletableFuture<>();
+        CompletableFuture<T> leader = flights.putIfAbsent(key, flight);
+        if (leader != null) {
+            merged.increment();
+            if (onMerged != null) {
+                onMerged.run();
+            }
+            try {
+                return leader.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        leaders.increment();
+        try {
+            T result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    // Return the number of calls that actually ran
+    public long getLeaders() {
+        return leaders.sum();
+    }
+
+    // Return the number of calls that waited for another caller's result
+    public long getMerged() {
+        return merged.sum();
+    }
+
+    // Return the number of calls in flight right now
+    public int getInFlight() {
+        return flights.size();
+    }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.client.spi.Connector;
+import org.glassfish.jersey.client.spi.ConnectorProvider;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.Configuration;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Jersey connector (installed by {@link SharedClientBuilder}) that sends
+ * identical concurrent GET requests only once.  While one GET is in
+ * flight, any other GET for the same URI (path and query) with the same
+ * headers waits for it, through a shared {@link SingleFlight}, and then
+ * receives its own copy of the same status, headers, and body.  Merged
+ * requests are counted per endpoint in {@link ClientMetrics}.</p>
+ *
+ * <p>A GET never joins one sent before the latest write (any other
+ * method) through these connectors completed, so a caller that changes
+ * something and then reads it back always sees its own change.</p>
+ *
+ * <p>Coalescing means buffering each response body in memory, so callers
+ * that stream large responses set the {@link #BYPASS} request property to
+ * <code>true</code> to go straight to the wrapped connector.</p>
+ */
+public class SingleFlightConnector implements Connector {
+
+    // Static Variables ------------------------------------------------------
+
+    public static final String BYPASS =
+            SingleFlightConnector.class.getName() + ".bypass";
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Connector connector;
+    private final SingleFlight<Buffered> flights;
+    private final ClientMetrics metrics;
+    private final AtomicLong writes; // Completed writes, part of each key
+
+    // Constructors ----------------------------------------------------------
+
+    public SingleFlightConnector(Connector connector,
+                                 SingleFlight<Buffered> flights,
+                                 AtomicLong writes,
+                                 ClientMetrics metrics) {
+        this.connector = connector;
+        this.flights = flights;
+        this.metrics = metrics;
+        this.writes = writes;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    @Override
+    public ClientResponse apply(ClientRequest request) {
+        if (!HttpMethod.GET.equals(request.getMethod())) {
+            try {
+                return connector.apply(request);
+            } finally {
+                writes.incrementAndGet();
+            }
+        }
+        if (request.hasEntity() ||
+                Boolean.TRUE.equals(request.getProperty(BYPASS))) {
+            return connector.apply(request);
+        }
+        return flights.execute(key(request),
+                () -> Buffered.of(connector.apply(request)),
+                () -> {
+                    if (metrics != null) {
+                        metrics.endpoint(ClientMetrics.endpoint
+                                (request.getMethod(), request.getUri()))
+                                .addMerged();
+                    }
+                }).toResponse(request);
+    }
+
+    // Like the Apache connector, complete asynchronous requests on the
+    // thread that Jersey dispatched them to
+    @Override
+    public Future<?> apply(ClientRequest request,
+                           AsyncConnectorCallback callback) {
+        try {
+            callback.response(apply(request));
+        } catch (Throwable t) {
+            callback.failure(t);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void close() {
+        connector.close();
+    }
+
+    @Override
+    public String getName() {
+        return connector.getName();
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    // Requests are identical if their URIs and (sorted) headers match,
+    // and no write has completed between them
+    private String key(ClientRequest request) {
+        StringBuilder sb = new StringBuilder().append(writes.get())
+                .append(' ').append(request.getUri());
+        Map<String, List<String>> headers =
+                new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(request.getStringHeaders());
+        headers.forEach((name, values) ->
+                sb.append('\n').append(name).append(": ").append(values));
+        return sb.toString();
+    }
+
+    // Public Classes --------------------------------------------------------
+
+    /**
+     * <p>A response read fully into memory, which can be handed to any
+     * number of requests.</p>
+     */
+    public static final class Buffered {
+
+        private final byte[] entity;
+        private final MultivaluedMap<String, String> headers;
+        private final Response.StatusType status;
+
+        private Buffered(Response.StatusType status,
+                         MultivaluedMap<String, String> headers,
+                         byte[] entity) {
+            this.entity = entity;
+            this.headers = headers;
+            this.status = status;
+        }
+
+        private static Buffered of(ClientResponse response) {
+            try {
+                byte[] entity = null;
+                if (response.hasEntity()) {
+                    try (InputStream stream = response.getEntityStream()) {
+                        entity = stream.readAllBytes();
+                    }
+                }
+                return new Buffered(response.getStatusInfo(),
+                        new MultivaluedHashMap<>(response.getHeaders()),
+                        entity);
+            } catch (IOException e) {
+                throw new ProcessingException(e);
+            } finally {
+                response.close();
+            }
+        }
+
+        private ClientResponse toResponse(ClientRequest request) {
+            ClientResponse response = new ClientResponse(status, request);
+            headers.forEach((name, values) ->
+                    response.getHeaders().addAll(name, values));
+            if (entity != null) {
+                response.setEntityStream(new ByteArrayInputStream(entity));
+            }
+            return response;
+        }
+
+    }
+
+    /**
+     * <p>Wraps the connectors of another provider, with every connector
+     * sharing the same in-flight requests.</p>
+     */
+    public static class Provider implements ConnectorProvider {
+
+        private final SingleFlight<Buffered> flights = new SingleFlight<>();
+        private final ClientMetrics metrics;
+        private final ConnectorProvider provider;
+        private final AtomicLong writes = new AtomicLong();
+
+        public Provider(ConnectorProvider provider, ClientMetrics metrics) {
+            this.metrics = metrics;
+            this.provider = provider;
+        }
+
+        @Override
+        public Connector getConnector(Client client,
+                                      Configuration configuration) {
+            return new SingleFlightConnector(
+                    provider.getConnector(client, configuration),
+                    flights, writes, metrics);
+        }
+
+        public SingleFlight<Buffered> getFlights() {
+            return flights;
+        }
+
+    }
+
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Template;
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.JerseyClientBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest extends AbstractClientTest {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final String BODY = "[{\"id\":1}]";
+
+    private static final int CALLERS = 16;
+
+    private static final String URI =
+            "http://localhost:8080/guests/api/facilities/1/templates";
+
+    // Instance Variables ----------------------------------------------------
+
+    private final FacilityClient facilityClient = new FacilityClient();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        reseed();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // SingleFlight tests (no server needed)
+
+    @ReadOnly
+    @Test
+    public void executeDistinctKeys() throws Exception {
+
+        SingleFlight<String> flights = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String key = "key" + i;
+            results.add(ClientExecutor.supply(() ->
+                    flights.execute(key, () -> await(release, key))));
+        }
+        waitUntil(() -> flights.getInFlight() == 3);
+        release.countDown();
+        for (int i = 0; i < 3; i++) {
+            assertThat(results.get(i).get(), is(equalTo("key" + i)));
+        }
+        assertThat(flights.getLeaders(), is(3L));
+        assertThat(flights.getMerged(), is(0L));
+
+        // Nothing is remembered once a call completes
+        assertThat(flights.execute("key0", () -> "again"), is("again"));
+        assertThat(flights.getInFlight(), is(0));
+
+    }
+
+    @ReadOnly
+    @Test
+    public void executeFailure() throws Exception {
+
+        SingleFlight<String> flights = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<String>> results = launch(() ->
+                flights.execute("key", () -> {
+                    await(release, "ignored");
+                    throw new IllegalStateException("failed");
+                }));
+        waitUntil(() -> flights.getMerged() == CALLERS - 1);
+        release.countDown();
+        Throwable first = null;
+        for (CompletableFuture<String> result : results) {
+            ExecutionException e =
+                    assertThrows(ExecutionException.class, result::get);
+            assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+            if (first == null) {
+                first = e.getCause();
+            }
+            assertThat(e.getCause(), is(sameInstance(first)));
+        }
+        assertThat(flights.getLeaders(), is(1L));
+        assertThat(flights.getInFlight(), is(0));
+
+    }
+
+    @ReadOnly
+    @Test
+    public void executeMerged() throws Exception {
+
+        SingleFlight<Object> flights = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        List<CompletableFuture<Object>> results = launch(() ->
+                flights.execute("key", () -> {
+                    calls.incrementAndGet();
+                    return await(release, new Object());
+                }));
+        waitUntil(() -> flights.getMerged() == CALLERS - 1);
+        release.countDown();
+        Object first = results.get(0).get();
+        for (CompletableFuture<Object> result : results) {
+            assertThat(result.get(), is(sameInstance(first)));
+        }
+        assertThat(calls.get(), is(1));
+        assertThat(flights.getLeaders(), is(1L));
+        assertThat(flights.getInFlight(), is(0));
+
+    }
+
+    // SingleFlightConnector tests (stand-in connector, no server needed)
+
+    @ReadOnly
+    @Test
+    public void connectorMerged() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+        StandInConnector connector = counting(release);
+        ClientMetrics metrics = new ClientMetrics();
+        SingleFlightConnector.Provider provider =
+                new SingleFlightConnector.Provider
+                        ((client, configuration) -> connector, metrics);
+        Client client = new JerseyClientBuilder()
+                .withConfig(new ClientConfig().connectorProvider(provider))
+                .build();
+        try {
+            List<CompletableFuture<String>> results = launch(() ->
+                    client.target(URI)
+                            .request(MediaType.APPLICATION_JSON)
+                            .get(String.class));
+            waitUntil(() -> provider.getFlights().getMerged() == CALLERS - 1);
+            release.countDown();
+
+            // Every caller reads its own copy of the one response
+            for (CompletableFuture<String> result : results) {
+                assertThat(result.get(), is(equalTo(BODY)));
+            }
+            assertThat(connector.getCalls(), is(1));
+            assertThat(metrics.endpoint(ClientMetrics.endpoint("GET",
+                    java.net.URI.create(URI))).getMerged(),
+                    is((long) CALLERS - 1));
+        } finally {
+            client.close();
+        }
+
+    }
+
+    @ReadOnly
+    @Test
+    public void connectorNotMerged() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+        StandInConnector connector = counting(release);
+        SingleFlightConnector.Provider provider =
+                new SingleFlightConnector.Provider
+                        ((client, configuration) -> connector, null);
+        Client client = new JerseyClientBuilder()
+                .withConfig(new ClientConfig().connectorProvider(provider))
+                .build();
+        try {
+            // Different queries, different headers, and bypassed requests
+            // are all sent, even while an identical GET is in flight
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            results.add(ClientExecutor.supply(() -> client.target(URI)
+                    .request(MediaType.APPLICATION_JSON)
+                    .get(String.class)));
+            results.add(ClientExecutor.supply(() -> client.target(URI)
+                    .queryParam("limit", 10)
+                    .request(MediaType.APPLICATION_JSON)
+                    .get(String.class)));
+            results.add(ClientExecutor.supply(() -> client.target(URI)
+                    .request(MediaType.TEXT_PLAIN)
+                    .get(String.class)));
+            results.add(ClientExecutor.supply(() -> client.target(URI)
+                    .request(MediaType.APPLICATION_JSON)
+                    .property(SingleFlightConnector.BYPASS, true)
+                    .get(String.class)));
+            waitUntil(() -> connector.getCalls() == results.size());
+            release.countDown();
+            for (CompletableFuture<String> result : results) {
+                assertThat(result.get(), is(equalTo(BODY)));
+            }
+            assertThat(provider.getFlights().getMerged(), is(0L));
+        } finally {
+            client.close();
+        }
+
+    }
+
+    @ReadOnly
+    @Test
+    public void connectorReadsOwnWrites() throws Exception {
+
+        CountDownLatch release = new CountDownLatch(1);
+        StandInConnector connector = counting(release);
+        SingleFlightConnector.Provider provider =
+                new SingleFlightConnector.Provider
+                        ((client, configuration) -> connector, null);
+        Client client = new JerseyClientBuilder()
+                .withConfig(new ClientConfig().connectorProvider(provider))
+                .build();
+        try {
+            // Another caller's GET is in flight when this caller writes
+            CompletableFuture<String> before =
+                    ClientExecutor.supply(() -> client.target(URI)
+                            .request(MediaType.APPLICATION_JSON)
+                            .get(String.class));
+            waitUntil(() -> connector.getCalls() == 1);
+            client.target(URI).request(MediaType.APPLICATION_JSON)
+                    .post(Entity.json("{}"), String.class);
+
+            // So this caller's identical GET must be sent again
+            CompletableFuture<String> after =
+                    ClientExecutor.supply(() -> client.target(URI)
+                            .request(MediaType.APPLICATION_JSON)
+                            .get(String.class));
+            waitUntil(() -> connector.getCalls() == 3);
+            release.countDown();
+            assertThat(before.get(), is(equalTo(BODY)));
+            assertThat(after.get(), is(equalTo(BODY)));
+            assertThat(provider.getFlights().getMerged(), is(0L));
+            assertThat(provider.getFlights().getLeaders(), is(2L));
+        } finally {
+            client.close();
+        }
+
+    }
+
+    // Shared client tests
+
+    @ReadOnly
+    @Test
+    public void sharedClientConcurrent() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility =
+                facilityClient.findByNameExact(facilityName("Oakland"));
+        List<Template> expected =
+                facilityClient.findTemplatesByFacilityId(facility.getId());
+        assertThat(expected.size(), is(greaterThan(0)));
+
+        // Whether or not any of these were merged, all must see the same
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<List<Template>>> results = launch(() -> {
+            await(start, null);
+            return facilityClient.findTemplatesByFacilityId(facility.getId());
+        });
+        start.countDown();
+        for (CompletableFuture<List<Template>> result : results) {
+            assertThat(result.get(), is(equalTo(expected)));
+        }
+
+        // Callers each get their own copy, even when merged
+        assertThat(results.get(0).get(), is(equalTo(results.get(1).get())));
+        results.get(0).get().clear();
+        assertThat(results.get(1).get().size(), is(expected.size()));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    // Wait for the latch, then return the specified result
+    private static <T> T await(CountDownLatch latch, T result) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out waiting for latch");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+
+    // Count requests, each GET waiting for the latch, all returning the
+    // same JSON body
+    private static StandInConnector counting(CountDownLatch release) {
+        return new StandInConnector(request -> {
+            if (HttpMethod.GET.equals(request.getMethod())) {
+                await(release, null);
+            }
+            return StandInConnector.ok(request, BODY);
+        });
+    }
+
+    // Run the call from CALLERS threads at once
+    private static <T> List<CompletableFuture<T>> launch(Callable<T> call) {
+        List<CompletableFuture<T>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(ClientExecutor.supply(call));
+        }
+        return results;
+    }
+
+    private static void waitUntil(BooleanSupplier condition)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for callers");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Registration;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+public class SmileFilterTest extends AbstractClientTest {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final GenericType<List<Facility>> FACILITIES =
+            new GenericType<List<Facility>>() {};
+
+    private static final List<Facility> RESPONSE = List.of(
+            new Facility(null, null, null, null, "Chester",
+                    null, null, null),
+            new Facility(null, null, null, null, "Oakland",
+                    null, null, null));
+
+    private static final String URI =
+            "http://localhost:8080/guests/api/facilities";
+
+    // Instance Variables ----------------------------------------------------
+
+    private final FacilityClient facilityClient = new FacilityClient();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        reseed();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // Stand-in connector tests (no server needed)
+
+    @ReadOnly
+    @Test
+    public void fallbackJson() {
+
+        StandInConnector connector = responding(false);
+        Client client = client(connector);
+        try {
+            List<Facility> facilities = client.target(URI)
+                    .request(MediaType.APPLICATION_JSON)
+                    .get(FACILITIES);
+            assertThat(connector.getHeader(HttpHeaders.ACCEPT),
+                    startsWith(SmileFilter.APPLICATION_SMILE));
+            assertThat(facilities, is(equalTo(RESPONSE)));
+        } finally {
+            client.close();
+        }
+
+    }
+
+    @ReadOnly
+    @Test
+    public void negotiateSmile() {
+
+        StandInConnector connector = responding(true);
+        Client client = client(connector);
+        try {
+            List<Facility> facilities = client.target(URI)
+                    .request(MediaType.APPLICATION_JSON)
+                    .get(FACILITIES);
+            assertThat(connector.getHeader(HttpHeaders.ACCEPT),
+                    startsWith(SmileFilter.APPLICATION_SMILE));
+            assertThat(facilities, is(equalTo(RESPONSE)));
+        } finally {
+            client.close();
+        }
+
+    }
+
+    @ReadOnly
+    @Test
+    public void notNegotiated() {
+
+        StandInConnector connector = responding(false);
+        Client client = client(connector);
+        try {
+            // Requests that accept more than JSON
+            client.target(URI)
+                    .request(MediaType.APPLICATION_JSON, MediaType.TEXT_PLAIN)
+                    .get(String.class);
+            assertThat(connector.getHeader(HttpHeaders.ACCEPT),
+                    startsWith(MediaType.APPLICATION_JSON + ","));
+
+            // Bypassed requests
+            client.target(URI)
+                    .request(MediaType.APPLICATION_JSON)
+                    .property(SmileFilter.BYPASS, true)
+                    .get(String.class);
+            assertThat(connector.getHeader(HttpHeaders.ACCEPT), is(MediaType.APPLICATION_JSON));
+        } finally {
+            client.close();
+        }
+
+    }
+
+    // Shared client tests
+
+    @ReadOnly
+    @Test
+    public void sharedClientMatchesJson() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        // Whichever format the server chose, results match those in JSON
+        List<Facility> facilities = facilityClient.findAll();
+        assertThat(facilities.size(), is(greaterThan(0)));
+        assertThat(facilities, is(equalTo(json(facilityClient.getBaseTarget()
+                .path("/facilities"), FACILITIES))));
+
+        Facility facility =
+                facilityClient.findByNameExact(facilityName("Chester"));
+        LocalDate registrationDate = LocalDate.parse("2020-07-04");
+        List<Registration> registrations = facilityClient
+                .findRegistrationsByFacilityAndDate
+                        (facility.getId(), registrationDate);
+        assertThat(registrations.size(), is(greaterThan(0)));
+        assertThat(registrations, is(equalTo(json(facilityClient
+                        .getBaseTarget()
+                        .path("/facilities")
+                        .path(facility.getId().toString())
+                        .path("/registrations")
+                        .path(registrationDate.toString()),
+                new GenericType<List<Registration>>() {}))));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static Client client(StandInConnector connector) {
+        return connector.client(new SmileFilter(), SmileFilter.provider());
+    }
+
+    private static <T> T json(WebTarget target,
+                              GenericType<T> type) {
+        return target.request(MediaType.APPLICATION_JSON)
+                .property(SmileFilter.BYPASS, true)
+                .get(type);
+    }
+
+    // Answer with the same facilities, in Smile (when accepted and
+    // enabled) or JSON
+    private static StandInConnector responding(boolean smile) {
+        return new StandInConnector(request -> {
+            boolean binary = smile && request.getHeaderString
+                    (HttpHeaders.ACCEPT).contains(SmileFilter.APPLICATION_SMILE);
+            ObjectMapper mapper =
+                    binary ? ClientMappers.smile() : new ObjectMapper();
+            try {
+                return StandInConnector.ok(request, binary
+                                ? SmileFilter.APPLICATION_SMILE
+                                : MediaType.APPLICATION_JSON,
+                        mapper.writeValueAsBytes(RESPONSE));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+}
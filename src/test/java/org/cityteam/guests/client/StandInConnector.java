@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.glassfish.jersey.client.ClientConfig;
+import org.glassfish.jersey.client.ClientRequest;
+import org.glassfish.jersey.client.ClientResponse;
+import org.glassfish.jersey.client.JerseyClientBuilder;
+import org.glassfish.jersey.client.spi.AsyncConnectorCallback;
+import org.glassfish.jersey.client.spi.Connector;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * <p>Jersey connector for tests that need no server.  Each request is
+ * answered by the specified responder, after its headers and body (as
+ * written, so after any compression) are kept for the test to inspect,
+ * and requests are counted.  Build a client on it with
+ * {@link #client(Object...)}, or wrap it in another connector
+ * provider.</p>
+ */
+public class StandInConnector implements Connector {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile byte[] entity = null;
+    private volatile Map<String, String> headers = Collections.emptyMap();
+    private final Function<ClientRequest, ClientResponse> responder;
+
+    // Constructors ----------------------------------------------------------
+
+    public StandInConnector(Function<ClientRequest, ClientResponse> responder) {
+        this.responder = responder;
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    // Return a response with the specified status and no body
+    public static ClientResponse empty(ClientRequest request,
+                                       Response.Status status) {
+        return new ClientResponse(status, request);
+    }
+
+    // Return a 200 response with the specified body and content type
+    public static ClientResponse ok(ClientRequest request,
+                                    String contentType,
+                                    byte[] body) {
+        ClientResponse response =
+                new ClientResponse(Response.Status.OK, request);
+        response.getHeaders().putSingle(HttpHeaders.CONTENT_TYPE, contentType);
+        response.setEntityStream(new ByteArrayInputStream(body));
+        return response;
+    }
+
+    // Return a 200 response with the specified JSON body
+    public static ClientResponse ok(ClientRequest request, String json) {
+        return ok(request, MediaType.APPLICATION_JSON,
+                json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Return a response with the specified status and plain text body
+    public static ClientResponse text(ClientRequest request,
+                                      Response.Status status,
+                                      String message) {
+        ClientResponse response = new ClientResponse(status, request);
+        response.getHeaders().putSingle
+                (HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN);
+        response.setEntityStream(new ByteArrayInputStream
+                (message.getBytes(StandardCharsets.UTF_8)));
+        return response;
+    }
+
+    @Override
+    public ClientResponse apply(ClientRequest request) {
+        calls.incrementAndGet();
+        Map<String, String> received =
+                new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (request.hasEntity()) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            request.setStreamProvider(contentLength -> buffer);
+            try {
+                request.writeEntity();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            entity = buffer.toByteArray();
+        }
+        for (String name : request.getStringHeaders().keySet()) {
+            received.put(name, request.getHeaderString(name));
+        }
+        headers = received;
+        return responder.apply(request);
+    }
+
+    @Override
+    public Future<?> apply(ClientRequest request,
+                           AsyncConnectorCallback callback) {
+        callback.response(apply(request));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Return a client that sends every request to this connector, with
+    // the specified components registered
+    public Client client(Object... components) {
+        JerseyClientBuilder builder = new JerseyClientBuilder()
+                .withConfig(new ClientConfig().connectorProvider
+                        ((client, configuration) -> this));
+        for (Object component : components) {
+            builder.register(component);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    // Return the number of requests received so far
+    public int getCalls() {
+        return calls.get();
+    }
+
+    // Return the body of the last request that had one, as written
+    public byte[] getEntity() {
+        return entity;
+    }
+
+    // Return the specified header of the last request, if it had one
+    public String getHeader(String name) {
+        return headers.get(name);
+    }
+
+    @Override
+    public String getName() {
+        return "stand-in";
+    }
+
+}
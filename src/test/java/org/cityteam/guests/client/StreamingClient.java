@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Registration;
+import org.craigmcc.library.shared.exception.InternalServerError;
+
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+/**
+ * <p>Streaming variants of the list endpoints that can return very large
+ * results.  Elements are parsed incrementally as the stream is consumed,
+ * so memory use stays flat regardless of result size.  Callers must close
+ * the returned stream (try-with-resources) if they stop early.</p>
+ */
+public class StreamingClient extends AbstractClient {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final WebTarget facilitiesTarget = getBaseTarget()
+            .path("/facilities");
+
+    private final WebTarget guestsTarget = getBaseTarget()
+            .path("/guests");
+
+    private final WebTarget registrationsTarget = getBaseTarget()
+            .path("/registrations");
+
+    // Public Methods --------------------------------------------------------
+
+    // Streaming equivalent of GuestClient.findAll()
+    public Stream<Guest> findAllGuests() throws InternalServerError {
+        return stream(guestsTarget, Guest.class);
+    }
+
+    // Streaming equivalent of RegistrationClient.findAll()
+    public Stream<Registration> findAllRegistrations()
+            throws InternalServerError {
+        return stream(registrationsTarget, Registration.class);
+    }
+
+    // Streaming equivalent of FacilityClient.findRegistrationsByFacilityAndDate()
+    public Stream<Registration> findRegistrationsByFacilityAndDate
+            (Long facilityId, LocalDate registrationDate)
+            throws InternalServerError {
+        return stream(facilitiesTarget
+                        .path(facilityId.toString())
+                        .path("/registrations")
+                        .path(registrationDate.toString()),
+                Registration.class);
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private <T> Stream<T> stream(WebTarget target, Class<T> type)
+            throws InternalServerError {
+        // Never buffer a whole stream to share or store it, and parse
+        // only JSON
+        Response response = target
+                .request(MediaType.APPLICATION_JSON)
+                .property(ConditionalFilter.BYPASS, true)
+                .property(SingleFlightConnector.BYPASS, true)
+                .property(SmileFilter.BYPASS, true)
+                .get();
+        if (response.getStatus() != RESPONSE_OK) {
+            String message = response.readEntity(String.class);
+            response.close();
+            throw new InternalServerError(message);
+        }
+        try {
+            return new JsonArrayIterator<T>(ClientMappers.reader(type),
+                    response.readEntity(InputStream.class),
+                    response::close).stream();
+        } catch (IOException e) {
+            response.close();
+            throw new InternalServerError(e.getMessage());
+        }
+    }
+
+}
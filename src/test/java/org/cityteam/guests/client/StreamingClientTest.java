@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.cityteam.guests.model.Registration;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class StreamingClientTest extends AbstractClientTest {
+
+    // Instance Variables ----------------------------------------------------
+
+    private final FacilityClient facilityClient = new FacilityClient();
+    private final GuestClient guestClient = new GuestClient();
+    private final RegistrationClient registrationClient =
+            new RegistrationClient();
+    private final StreamingClient streamingClient = new StreamingClient();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        reseed();
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // Streamed results must match the List-based endpoints
+
+    @ReadOnly
+    @Test
+    public void findAllGuestsHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        List<Guest> guests = guestClient.findAll();
+        assertThat(guests.size(), is(greaterThan(0)));
+        try (Stream<Guest> stream = streamingClient.findAllGuests()) {
+            assertThat(stream.collect(Collectors.toList()),
+                    is(equalTo(guests)));
+        }
+
+    }
+
+    @ReadOnly
+    @Test
+    public void findAllRegistrationsHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        List<Registration> registrations = registrationClient.findAll();
+        assertThat(registrations.size(), is(greaterThan(0)));
+        try (Stream<Registration> stream =
+                     streamingClient.findAllRegistrations()) {
+            assertThat(stream.collect(Collectors.toList()),
+                    is(equalTo(registrations)));
+        }
+
+    }
+
+    @ReadOnly
+    @Test
+    public void findRegistrationsByFacilityAndDateHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        LocalDate registrationDate = LocalDate.parse("2020-07-04");
+        for (Facility facility : facilityClient.findAll()) {
+            List<Registration> registrations =
+                    facilityClient.findRegistrationsByFacilityAndDate
+                            (facility.getId(), registrationDate);
+            try (Stream<Registration> stream =
+                         streamingClient.findRegistrationsByFacilityAndDate
+                                 (facility.getId(), registrationDate)) {
+                assertThat(stream.collect(Collectors.toList()),
+                        is(equalTo(registrations)));
+            }
+        }
+
+    }
+
+    // Stopping early must release the connection back to the pool
+
+    @ReadOnly
+    @Test
+    public void findAllGuestsPartial() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        for (int i = 0; i < SharedClientBuilder.MAX_PER_ROUTE * 2; i++) {
+            try (Stream<Guest> stream = streamingClient.findAllGuests()) {
+                assertThat(stream.findFirst().isPresent(), is(true));
+            }
+        }
+
+    }
+
+    // Retained heap must stay flat while streaming a large generated payload
+
+    @ReadOnly
+    @Test
+    public void heapBounded() throws Exception {
+
+        int count = 500_000;
+        long baseline = retained();
+        long peak = 0;
+        int seen = 0;
+        ObjectMapper mapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        try (JsonArrayIterator<Guest> iterator = new JsonArrayIterator<>(
+                mapper.readerFor(Guest.class), new GuestsPayload(count), null)) {
+            while (iterator.hasNext()) {
+                Guest guest = iterator.next();
+                seen++;
+                assertThat(guest.getId(), is(equalTo((long) seen)));
+                if (seen % 50_000 == 0) {
+                    peak = Math.max(peak, retained() - baseline);
+                }
+            }
+        }
+
+        assertThat(seen, is(count));
+        // Materializing these guests in a List would retain ~100MB
+        assertThat(peak, is(lessThan(16L * 1024 * 1024)));
+
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    private static long retained() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Private Classes -------------------------------------------------------
+
+    // Generates a JSON array of guests on the fly, without holding it all
+    private static class GuestsPayload extends InputStream {
+
+        private byte[] buffer = "[".getBytes(StandardCharsets.UTF_8);
+        private final int count;
+        private int next = 1;
+        private int offset = 0;
+
+        GuestsPayload(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public int read() {
+            if ((offset >= buffer.length) && !fill()) {
+                return -1;
+            }
+            return buffer[offset++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if ((offset >= buffer.length) && !fill()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.length - offset);
+            System.arraycopy(buffer, offset, bytes, off, n);
+            offset += n;
+            return n;
+        }
+
+        private boolean fill() {
+            if (next > count + 1) {
+                return false;
+            }
+            String text;
+            if (next > count) {
+                text = "]";
+            } else {
+                text = (next > 1 ? "," : "") +
+                        "{\"id\":" + next +
+                        ",\"comments\":\"Generated guest number " + next + "\"" +
+                        ",\"facilityId\":1" +
+                        ",\"firstName\":\"First" + next + "\"" +
+                        ",\"lastName\":\"Last" + next + "\"}";
+            }
+            next++;
+            buffer = text.getBytes(StandardCharsets.UTF_8);
+            offset = 0;
+            return true;
+        }
+
+    }
+
+}
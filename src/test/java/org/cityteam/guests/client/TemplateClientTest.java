@@ -26,9 +26,11 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 
-import static java.lang.Boolean.TRUE;
 import static org.cityteam.guests.model.types.FeatureType.H;
 import static org.cityteam.guests.model.types.FeatureType.S;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -51,12 +53,7 @@ public class TemplateClientTest extends AbstractClientTest {
 
     @Before
     public void before() {
-        if ((depopulateEnabled == null) || (TRUE == depopulateEnabled)) {
-            depopulate();
-        }
-        if ((populateEnabled == null) || (TRUE == populateEnabled)) {
-            populate();
-        }
+        reseed();
     }
 
     // Test Methods ----------------------------------------------------------
@@ -85,6 +82,8 @@ public class TemplateClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void deleteNotFound() throws Exception {
 
@@ -99,6 +98,7 @@ public class TemplateClientTest extends AbstractClientTest {
 
     // find() tests
 
+    @ReadOnly
     @Test
     public void findHappy() throws Exception {
 
@@ -116,6 +116,8 @@ public class TemplateClientTest extends AbstractClientTest {
 
     }
 
+    @ReadOnly
+    @Isolated
     @Test
     public void findNotFound() throws Exception {
 
@@ -130,6 +132,7 @@ public class TemplateClientTest extends AbstractClientTest {
 
     // findAll() tests
 
+    @ReadOnly
     @Test
     public void findAllHappy() throws Exception {
 
@@ -153,6 +156,7 @@ public class TemplateClientTest extends AbstractClientTest {
 
     // generate() tests
 
+    @Isolated
     @Test
     public void generateHappy() throws Exception {
 
@@ -160,47 +164,84 @@ public class TemplateClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("San Francisco");
+        Facility facility = facilityClient.findByNameExact(facilityName("San Francisco"));
         Template template = findTemplatesByNameExact(facility.getId(),
                 "San Francisco COVID");
 
+        MatSet allMats = MatSet.parse(template.getAllMats());
+        MatSet handicapMats = MatSet.parse(template.getHandicapMats());
+        MatSet socketMats = MatSet.parse(template.getSocketMats());
+        assertThat(allMats.size(), is(equalTo(12)));
+        assertThat(allMats.containsAll(handicapMats.union(socketMats)),
+                is(true));
+        assertThat(handicapMats.intersection(socketMats),
+                is(equalTo(MatSet.of(3))));
+        assertThat(handicapMats.contains(1), is(true));
+        assertThat(socketMats.contains(5), is(true));
+
         LocalDate registrationDate = LocalDate.parse("2020-07-07");
         List<Registration> registrations = templateClient.generate
                 (template.getId(), registrationDate);
-        assertThat(registrations.size(), is(equalTo(12)));
+        assertThat(registrations.size(), is(equalTo(allMats.size())));
 
+        int[] generatedMats = new int[registrations.size()];
+        int generated = 0;
         for (Registration registration : registrations) {
+            assertThat(registration.getMatNumber(), is(notNullValue()));
+            int matNumber = registration.getMatNumber();
             assertThat(registration.getComments(), is(nullValue()));
             assertThat(registration.getFacilityId(),
                     is(equalTo(facility.getId())));
-            if (registration.getMatNumber() == 1) {
-                assertThat(registration.getFeatures().contains(H),
-                        is(true));
-            } else if (registration.getMatNumber() == 3) {
+            if (handicapMats.contains(matNumber) ||
+                    socketMats.contains(matNumber)) {
                 assertThat(registration.getFeatures().contains(H),
-                        is(true));
+                        is(handicapMats.contains(matNumber)));
                 assertThat(registration.getFeatures().contains(S),
-                        is(true));
-            } else if (registration.getMatNumber() == 5) {
-                assertThat(registration.getFeatures().contains(S),
-                        is(true));
+                        is(socketMats.contains(matNumber)));
             } else {
                 assertThat(registration.getFeatures(), is(nullValue()));
             }
             assertThat(registration.getGuestId(), is(nullValue()));
-            assertThat(registration.getMatNumber(), is(notNullValue()));
             assertThat(registration.getPaymentAmount(), is(nullValue()));
             assertThat(registration.getPaymentType(), is(nullValue()));
             assertThat(registration.getShowerTime(), is(nullValue()));
             assertThat(registration.getWakeupTime(), is(nullValue()));
             assertThat(registration.getRegistrationDate(),
                     is(equalTo(registrationDate)));
+            generatedMats[generated++] = matNumber;
+        }
+        assertThat(MatSet.of(generatedMats), is(equalTo(allMats)));
+        checkPreview(TemplatePreview.generate(template, registrationDate),
+                registrations);
+
+    }
+
+    @Isolated
+    @Test
+    public void generatePreviewHappy() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        Facility facility = facilityClient.findByNameExact(facilityName("San Francisco"));
+        LocalDate registrationDate = LocalDate.parse("2020-07-08");
+        for (Template template :
+                facilityClient.findTemplatesByFacilityId(facility.getId())) {
+            List<Registration> preview =
+                    TemplatePreview.generate(template, registrationDate);
+            List<Registration> registrations = templateClient.generate
+                    (template.getId(), registrationDate);
+            checkPreview(preview, registrations);
+            facilityClient.deleteRegistrationsByFacilityAndDate
+                    (facility.getId(), registrationDate);
         }
 
     }
 
     // insert() tests
 
+    @Isolated
     @Test
     public void insertHappy() throws Exception {
 
@@ -208,7 +249,7 @@ public class TemplateClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("San Francisco");
+        Facility facility = facilityClient.findByNameExact(facilityName("San Francisco"));
         Template template = newTemplate(facility.getId());
         Template inserted = templateClient.insert(template);
 
@@ -220,6 +261,7 @@ public class TemplateClientTest extends AbstractClientTest {
 
     }
 
+    @Isolated
     @Test
     public void insertBadRequest() throws Exception {
 
@@ -227,7 +269,7 @@ public class TemplateClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("San Jose");
+        Facility facility = facilityClient.findByNameExact(facilityName("San Jose"));
 
         // Completely empty instance
         final Template template0 = new Template();
@@ -242,6 +284,7 @@ public class TemplateClientTest extends AbstractClientTest {
 
     }
 
+    @Isolated
     @Test
     public void insertNotUnique() throws Exception {
 
@@ -249,7 +292,7 @@ public class TemplateClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("San Jose");
+        Facility facility = facilityClient.findByNameExact(facilityName("San Jose"));
         Template template = newTemplate(facility.getId());
         template.setName("San Jose COVID");
         assertThrows(NotUnique.class,
@@ -259,6 +302,7 @@ public class TemplateClientTest extends AbstractClientTest {
 
     // update() tests
 
+    @Isolated
     @Test
     public void updateHappy() throws Exception {
 
@@ -266,7 +310,7 @@ public class TemplateClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Oakland");
+        Facility facility = facilityClient.findByNameExact(facilityName("Oakland"));
 
         // Change something but keep the name
         Template template1 =
@@ -284,6 +328,7 @@ public class TemplateClientTest extends AbstractClientTest {
 
     }
 
+    @Isolated
     @Test
     public void updateBadRequest() throws Exception {
 
@@ -291,7 +336,7 @@ public class TemplateClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Chester");
+        Facility facility = facilityClient.findByNameExact(facilityName("Chester"));
 
         // Required field
         Template template1 =
@@ -303,6 +348,7 @@ public class TemplateClientTest extends AbstractClientTest {
 
     }
 
+    @Isolated
     @Test
     public void updateNotUnique() throws Exception {
 
@@ -310,7 +356,7 @@ public class TemplateClientTest extends AbstractClientTest {
             return;
         }
 
-        Facility facility = facilityClient.findByNameExact("Chester");
+        Facility facility = facilityClient.findByNameExact(facilityName("Chester"));
 
         // Violate name uniqueness
         Template template1 =
@@ -324,6 +370,32 @@ public class TemplateClientTest extends AbstractClientTest {
 
     // Support Methods -------------------------------------------------------
 
+    // Previewed registrations must match generated ones in everything
+    // except the fields assigned by the server
+    private void checkPreview(List<Registration> preview,
+                              List<Registration> registrations) {
+        List<Registration> generated = new ArrayList<>(registrations);
+        generated.sort(Comparator.comparing(Registration::getMatNumber));
+        assertThat(preview.size(), is(equalTo(generated.size())));
+        for (int i = 0; i < preview.size(); i++) {
+            Registration expected = generated.get(i);
+            Registration actual = preview.get(i);
+            assertThat(actual.getMatNumber(),
+                    is(equalTo(expected.getMatNumber())));
+            assertThat(actual.getFacilityId(),
+                    is(equalTo(expected.getFacilityId())));
+            assertThat(actual.getRegistrationDate(),
+                    is(equalTo(expected.getRegistrationDate())));
+            assertThat(actual.getFeatures() == null ? null :
+                            new HashSet<>(actual.getFeatures()),
+                    is(equalTo(expected.getFeatures() == null ? null :
+                            new HashSet<>(expected.getFeatures()))));
+            assertThat(actual.getComments(), is(expected.getComments()));
+            assertThat(actual.getGuestId(), is(expected.getGuestId()));
+            assertThat(actual.getPaymentType(), is(expected.getPaymentType()));
+        }
+    }
+
     private Template findTemplatesByNameExact(Long facilityId, String name)
         throws InternalServerError, NotFound
     {
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Registration;
+import org.cityteam.guests.model.Template;
+import org.cityteam.guests.model.types.FeatureType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Computes locally the registrations that
+ * <code>TemplateClient.generate()</code> would create for a template and
+ * date, so template layouts can be tried out without writing to the
+ * server.  Previewed registrations have no id, timestamps, or version.</p>
+ */
+public final class TemplatePreview {
+
+    // Constructors ----------------------------------------------------------
+
+    private TemplatePreview() {
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    // Return one unassigned registration per mat in allMats, in mat number
+    // order, with H and/or S features for handicap and socket mats
+    public static List<Registration> generate(Template template,
+                                              LocalDate registrationDate) {
+        MatSet handicapMats = MatSet.parse(template.getHandicapMats());
+        MatSet socketMats = MatSet.parse(template.getSocketMats());
+        List<Registration> registrations = new ArrayList<>();
+        for (int matNumber : MatSet.parse(template.getAllMats())) {
+            List<FeatureType> features = new ArrayList<>();
+            if (handicapMats.contains(matNumber)) {
+                features.add(FeatureType.H);
+            }
+            if (socketMats.contains(matNumber)) {
+                features.add(FeatureType.S);
+            }
+            registrations.add(new Registration(
+                    template.getFacilityId(),
+                    features.isEmpty() ? null : features,
+                    matNumber,
+                    registrationDate
+            ));
+        }
+        return registrations;
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Executor that runs each task on its own virtual thread, with at most
+ * <code>maxConcurrency</code> tasks running at once (the rest park
+ * cheaply until a permit frees up).  On JVMs without virtual threads,
+ * tasks run on a fixed pool of <code>maxConcurrency</code> daemon
+ * platform threads instead, so the number of OS threads stays
+ * bounded.</p>
+ *
+ * <p>{@link #shutdownNow()} interrupts running tasks, and returns the
+ * tasks that were still waiting for a permit.</p>
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY =
+            virtualThreadFactory();
+
+    private static final Method IS_VIRTUAL = isVirtualMethod();
+
+    // Instance Variables ----------------------------------------------------
+
+    private final Object lock = new Object();
+    private final ExecutorService pool; // Without virtual threads only
+    private final Semaphore permits;
+    private final AtomicInteger running = new AtomicInteger();
+    private volatile boolean shutdown = false;
+    private volatile boolean stopped = false; // By shutdownNow()
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private final ConcurrentMap<Thread, Runnable> waiting =
+            new ConcurrentHashMap<>();
+
+    // Constructors ----------------------------------------------------------
+
+    public VirtualThreadExecutor(int maxConcurrency) {
+        this.permits = new Semaphore(maxConcurrency);
+        if (VIRTUAL_THREAD_FACTORY != null) {
+            this.pool = null;
+        } else {
+            AtomicInteger count = new AtomicInteger();
+            this.pool = Executors.newFixedThreadPool(maxConcurrency,
+                    runnable -> {
+                        Thread thread = new Thread(runnable,
+                                "guests-client-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    // Public Methods --------------------------------------------------------
+
+    public static boolean isAvailable() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    // Is the specified thread a virtual thread?
+    public static boolean isVirtual(Thread thread) {
+        try {
+            return (IS_VIRTUAL != null) && (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        if (pool != null) {
+            return pool.awaitTermination(timeout, unit);
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            while (!isTerminated()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (pool != null) {
+            pool.execute(command);
+            return;
+        }
+        Thread thread = VIRTUAL_THREAD_FACTORY.newThread(() -> {
+            Thread current = Thread.currentThread();
+            try {
+                if (stopped) {
+                    return;
+                }
+                permits.acquire();
+                try {
+                    // Unless shutdownNow() has already claimed it
+                    if (waiting.remove(current) != null) {
+                        command.run();
+                    }
+                } finally {
+                    permits.release();
+                }
+            } catch (InterruptedException e) {
+                current.interrupt();
+            } finally {
+                waiting.remove(current);
+                threads.remove(current);
+                if (running.decrementAndGet() == 0) {
+                    synchronized (lock) {
+                        lock.notifyAll();
+                    }
+                }
+            }
+        });
+        // Registered under the lock, so shutdownNow() either sees this
+        // task as waiting or it is rejected here
+        synchronized (lock) {
+            if (shutdown) {
+                throw new RejectedExecutionException("Executor is shut down");
+            }
+            running.incrementAndGet();
+            threads.add(thread);
+            waiting.put(thread, command);
+        }
+        thread.start();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return (pool != null) ? pool.isShutdown() : shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return (pool != null) ?
+                pool.isTerminated() : shutdown && (running.get() == 0);
+    }
+
+    @Override
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        synchronized (lock) {
+            shutdown = true;
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        if (pool != null) {
+            shutdown = true;
+            return pool.shutdownNow();
+        }
+        List<Runnable> unstarted = new ArrayList<>();
+        synchronized (lock) {
+            shutdown = true;
+            stopped = true;
+            for (Thread thread : waiting.keySet()) {
+                Runnable command = waiting.remove(thread);
+                if (command != null) {
+                    unstarted.add(command);
+                }
+            }
+            threads.forEach(Thread::interrupt);
+        }
+        return unstarted;
+    }
+
+    // Private Methods -------------------------------------------------------
+
+    // Thread.isVirtual() where available
+    private static Method isVirtualMethod() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    // Thread.ofVirtual().factory() where available, looked up reflectively
+    // so that this class still compiles and runs on older JVMs
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory =
+                    Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2020 CityTeam, craigmcc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cityteam.guests.client;
+
+import org.cityteam.guests.model.Ban;
+import org.cityteam.guests.model.Facility;
+import org.cityteam.guests.model.Guest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.hamcrest.Matchers.startsWith;
+
+public class VirtualThreadExecutorTest extends AbstractClientTest {
+
+    // Static Variables ------------------------------------------------------
+
+    private static final int MAX_CONCURRENCY = 16;
+
+    // Instance Variables ----------------------------------------------------
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    private final VirtualThreadExecutor executor =
+            new VirtualThreadExecutor(MAX_CONCURRENCY);
+
+    private final FacilityClient facilityClient = new FacilityClient();
+    private final GuestClient guestClient = new GuestClient();
+
+    // Lifecycle Methods -----------------------------------------------------
+
+    @Before
+    public void before() {
+        reseed();
+    }
+
+    @After
+    public void after() throws Exception {
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+    }
+
+    // Test Methods ----------------------------------------------------------
+
+    // Concurrency limit holds even when thousands of tasks are queued
+
+    @ReadOnly
+    @Isolated
+    @Test
+    public void concurrencyLimitHappy() throws Exception {
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            final int value = i;
+            futures.add(supply(() -> {
+                Thread.sleep(1);
+                return value;
+            }));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertThat(futures.get(i).get(), is(i));
+        }
+        assertThat(maxActive.get(), is(lessThanOrEqualTo(MAX_CONCURRENCY)));
+
+    }
+
+    // Tasks run on virtual threads where the JVM has them, and otherwise
+    // on no more than MAX_CONCURRENCY platform threads
+
+    @ReadOnly
+    @Test
+    public void threadsHappy() throws Exception {
+
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<Thread>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(supply(() -> {
+                Thread.sleep(1);
+                return Thread.currentThread();
+            }));
+        }
+        for (CompletableFuture<Thread> future : futures) {
+            threads.add(future.get());
+        }
+
+        for (Thread thread : threads) {
+            assertThat(VirtualThreadExecutor.isVirtual(thread),
+                    is(VirtualThreadExecutor.isAvailable()));
+        }
+        if (!VirtualThreadExecutor.isAvailable()) {
+            assertThat(threads.size(),
+                    is(lessThanOrEqualTo(MAX_CONCURRENCY)));
+        }
+
+    }
+
+    // shutdownNow() interrupts running tasks
+
+    @ReadOnly
+    @Test
+    public void shutdownNowInterrupts() throws Exception {
+
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+                interrupted.complete(false);
+            } catch (InterruptedException e) {
+                interrupted.complete(true);
+            }
+        });
+        assertThat(started.await(10, TimeUnit.SECONDS), is(true));
+
+        executor.shutdownNow();
+        assertThat(interrupted.get(10, TimeUnit.SECONDS), is(true));
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+
+    }
+
+    // ClientExecutor builds the same executors as the shared client uses
+
+    @ReadOnly
+    @Test
+    public void clientExecutorModes() throws Exception {
+
+        for (boolean virtualThreads : new boolean[] { true, false }) {
+            ExecutorService executor =
+                    ClientExecutor.newExecutor(virtualThreads, MAX_CONCURRENCY);
+            try {
+                CompletableFuture<Thread> thread = new CompletableFuture<>();
+                executor.execute(() -> thread.complete(Thread.currentThread()));
+                assertThat(VirtualThreadExecutor.isVirtual(thread.get()),
+                        is(virtualThreads && VirtualThreadExecutor.isAvailable()));
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+    }
+
+    // Asynchronous requests on the shared client run on ClientExecutor
+    // threads when guests.client.virtualThreads is set (mvn test
+    // -Pvirtual-threads), and on Jersey's own threads otherwise
+
+    @ReadOnly
+    @Test
+    public void sharedClientAsync() throws Exception {
+
+        Client client = ClientBuilder.newClient();
+        Response response = client.target("http://localhost/")
+                .register(ThreadFilter.class)
+                .request()
+                .async()
+                .get()
+                .get(10, TimeUnit.SECONDS);
+        assertThat(response.getStatus(), is(equalTo(200)));
+
+        Thread thread = ThreadFilter.thread;
+        assertThat(thread, is(not(sameInstance(Thread.currentThread()))));
+        if (ClientExecutor.VIRTUAL_THREADS) {
+            assertThat(VirtualThreadExecutor.isVirtual(thread),
+                    is(VirtualThreadExecutor.isAvailable()));
+            if (!VirtualThreadExecutor.isAvailable()) {
+                assertThat(thread.getName(), startsWith("guests-client-"));
+            }
+        } else {
+            assertThat(VirtualThreadExecutor.isVirtual(thread), is(false));
+        }
+
+    }
+
+    // Fan out ban lookups for every guest of every facility, many times over
+
+    @ReadOnly
+    @Test
+    public void fanOutStress() throws Exception {
+
+        if (disabled()) {
+            return;
+        }
+
+        List<Guest> guests = new ArrayList<>();
+        for (Facility facility : facilityClient.findAll()) {
+            guests.addAll(facilityClient.findGuestsByFacilityId(facility.getId()));
+        }
+        assertThat(guests.size(), is(greaterThan(0)));
+
+        List<List<Ban>> expecteds = new ArrayList<>();
+        for (Guest guest : guests) {
+            expecteds.add(guestClient.findBansByGuestId(guest.getId()));
+        }
+
+        int rounds = Math.max(1, 2000 / guests.size());
+        List<CompletableFuture<List<Ban>>> futures = new ArrayList<>();
+        for (int round = 0; round < rounds; round++) {
+            for (Guest guest : guests) {
+                futures.add(supply(
+                        () -> guestClient.findBansByGuestId(guest.getId())));
+            }
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertThat(futures.get(i).get(),
+                    is(equalTo(expecteds.get(i % guests.size()))));
+        }
+        assertThat(maxActive.get(), is(lessThanOrEqualTo(MAX_CONCURRENCY)));
+
+    }
+
+    // Support Methods -------------------------------------------------------
+
+    // Run the call on the executor under test, tracking how many run at once
+    private <T> CompletableFuture<T> supply(Callable<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                result.complete(call.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+        return result;
+    }
+
+    // Public Classes --------------------------------------------------------
+
+    // Records the thread a request runs on, without sending anything
+    public static class ThreadFilter implements ClientRequestFilter {
+
+        private static volatile Thread thread = null;
+
+        @Override
+        public void filter(ClientRequestContext request) {
+            thread = Thread.currentThread();
+            request.abortWith(Response.ok().build());
+        }
+
+    }
+
+}